@@ -0,0 +1,76 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration2.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockServletContext;
+
+/**
+ * 读取系统配置的基准测试，比较单个文件、组合配置、配置快照和流式加载的紧凑配置。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigBenchmark {
+    @Param({
+        "single", "combined", "snapshot", "streaming"
+    })
+    public String mode;
+
+    private Configuration config;
+
+    @Setup
+    public void setup() {
+        MockServletContext servletContext = new MockServletContext();
+        switch (mode) {
+            case "single":
+                servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg");
+                break;
+            case "combined":
+                servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig2.cfg");
+                break;
+            case "streaming":
+                servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig2.cfg");
+                servletContext.setInitParameter("systemConfigStreaming", "true");
+                break;
+            default:
+                servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig2.cfg");
+                servletContext.setInitParameter("systemConfigSnapshot", "true");
+                break;
+        }
+        config = new DefaultWebSystemContext(servletContext).getConfig();
+    }
+
+    @Benchmark
+    public String getString() {
+        return config.getString("test");
+    }
+
+    @Benchmark
+    public int getInt() {
+        return config.getInt("xyz");
+    }
+
+    @Benchmark
+    public String getString_missing() {
+        return config.getString("missing", "default");
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockServletContext;
+
+/**
+ * 查找系统环境的基准测试，Servlet 上下文中有若干无关属性。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebSystemContextMxBenchmark {
+    @Param({
+        "10", "100"
+    })
+    public int attributeCount;
+
+    private MockServletContext rootServletContext;
+
+    private MockServletContext namedServletContext;
+
+    @Setup
+    public void setup() {
+        rootServletContext = createServletContext();
+        WebSystemContextMx.setWebSystemContext(rootServletContext, new DefaultWebSystemContext(rootServletContext));
+
+        namedServletContext = createServletContext();
+        // 不经过索引直接设置属性，查找时遍历全部属性
+        namedServletContext.setAttribute("net.matrix.webapp.benchmark", new DefaultWebSystemContext(namedServletContext));
+    }
+
+    private MockServletContext createServletContext() {
+        MockServletContext servletContext = new MockServletContext();
+        for (int index = 0; index < attributeCount; index++) {
+            servletContext.setAttribute("attribute" + index, Integer.valueOf(index));
+        }
+        return servletContext;
+    }
+
+    @Benchmark
+    public WebSystemContext getWebSystemContext() {
+        return WebSystemContextMx.getWebSystemContext(rootServletContext);
+    }
+
+    @Benchmark
+    public WebSystemContext getCachedWebSystemContext() {
+        return WebSystemContextMx.getCachedWebSystemContext(rootServletContext);
+    }
+
+    @Benchmark
+    public WebSystemContext findWebSystemContext_root() {
+        return WebSystemContextMx.findWebSystemContext(rootServletContext);
+    }
+
+    @Benchmark
+    public WebSystemContext findWebSystemContext_scan() {
+        return WebSystemContextMx.findWebSystemContext(namedServletContext);
+    }
+}
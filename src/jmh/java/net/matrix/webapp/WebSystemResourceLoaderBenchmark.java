@@ -0,0 +1,54 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockServletContext;
+
+/**
+ * 解析资源路径的基准测试，比较是否使用路径解析缓存。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebSystemResourceLoaderBenchmark {
+    @Param({
+        "0", "256"
+    })
+    public int cacheSize;
+
+    private WebSystemResourceLoader resourceLoader;
+
+    @Setup
+    public void setup() {
+        resourceLoader = new WebSystemResourceLoader(new MockServletContext(), cacheSize, false);
+    }
+
+    @Benchmark
+    public Resource getResource_path() {
+        return resourceLoader.getResource("/WEB-INF/sysconfig.cfg");
+    }
+
+    @Benchmark
+    public Resource getResource_classpath() {
+        return resourceLoader.getResource("classpath:log4j2-test.xml");
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.ServletContextEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockServletContext;
+
+/**
+ * 完整启动和停止系统的基准测试。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SystemInitializeListenerBenchmark {
+    @Param({
+        "false", "true"
+    })
+    public String parallel;
+
+    @Benchmark
+    public SystemInitializeListener startup() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig2.cfg");
+        servletContext.setInitParameter("systemInitializeParallel", parallel);
+        ServletContextEvent event = new ServletContextEvent(servletContext);
+        SystemInitializeListener listener = new SystemInitializeListener();
+
+        listener.contextInitialized(event);
+        listener.contextDestroyed(event);
+        return listener;
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.matrix.app.DefaultSystemController;
+import net.matrix.app.SystemContext;
+import net.matrix.app.SystemController;
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 组合的系统控制器，按组件声明的依赖关系控制多个组件。
+ * 初始化和启动时互不依赖的组件通过 {@link PhaseExecutor} 并行执行，失败的组件不影响与它无关的组件；
+ * 暂停和停止时按相反的顺序依次执行，只停止初始化成功的组件，停止失败只记录日志。
+ * 系统环境中注册了 {@link ManagedExecutors} 时使用其任务执行器。
+ */
+public class CompositeSystemController
+    extends DefaultSystemController {
+    /**
+     * 日志记录器。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(CompositeSystemController.class);
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(CompositeSystemController.class).useCurrentLocale();
+
+    /**
+     * 按添加顺序排列的组件。
+     */
+    private final Map<String, Component> components = new LinkedHashMap<>();
+
+    /**
+     * 初始化成功的组件名。
+     */
+    private final Set<String> initialized = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 添加组件，名称和依赖由 {@link SystemComponent} 声明，其它控制器使用类名且没有依赖。
+     *
+     * @param controller
+     *     组件。
+     * @return 本对象。
+     * @throws IllegalArgumentException
+     *     组件名重复。
+     */
+    @Nonnull
+    public CompositeSystemController addComponent(@Nonnull SystemController controller) {
+        if (controller instanceof SystemComponent component) {
+            return addComponent(component.getName(), component, component.getDependencies().toArray(new String[0]));
+        }
+        return addComponent(controller.getClass().getName(), controller);
+    }
+
+    /**
+     * 添加组件。依赖的组件可以后添加。
+     *
+     * @param name
+     *     组件名。
+     * @param controller
+     *     组件。
+     * @param dependencies
+     *     依赖的组件名。
+     * @return 本对象。
+     * @throws IllegalArgumentException
+     *     组件名重复。
+     */
+    @Nonnull
+    public synchronized CompositeSystemController addComponent(@Nonnull String name, @Nonnull SystemController controller, @Nonnull String... dependencies) {
+        if (components.containsKey(name)) {
+            throw new IllegalArgumentException(RBMF.format("组件 {0} 重复添加", name));
+        }
+        components.put(name, new Component(name, controller, dependencies));
+        if (context != null) {
+            controller.setContext(context);
+        }
+        return this;
+    }
+
+    /**
+     * 获取按依赖关系排序的组件名，每个组件排在它依赖的组件之后，没有依赖关系的组件保持添加顺序。
+     *
+     * @return 组件名。
+     * @throws IllegalStateException
+     *     依赖的组件不存在或存在循环依赖。
+     */
+    @Nonnull
+    public synchronized List<String> getComponentNames() {
+        List<String> names = new ArrayList<>();
+        for (Component component : sortComponents()) {
+            names.add(component.name);
+        }
+        return names;
+    }
+
+    @Override
+    public synchronized void setContext(SystemContext context) {
+        super.setContext(context);
+        for (Component component : components.values()) {
+            component.controller.setContext(context);
+        }
+    }
+
+    @Override
+    public void init() {
+        execute("init", component -> {
+            component.controller.init();
+            initialized.add(component.name);
+        });
+    }
+
+    @Override
+    public void start() {
+        execute("start", component -> {
+            if (initialized.contains(component.name)) {
+                component.controller.start();
+            }
+        });
+    }
+
+    @Override
+    public void suspend() {
+        executeReversed("suspend", SystemController::suspend);
+    }
+
+    @Override
+    public void resume() {
+        for (Component component : sortInitialized()) {
+            component.controller.resume();
+        }
+    }
+
+    @Override
+    public void stop() {
+        List<Component> sortedComponents = sortInitialized();
+        Collections.reverse(sortedComponents);
+        for (Component component : sortedComponents) {
+            try {
+                component.controller.stop();
+            } catch (RuntimeException e) {
+                LOG.error(RBMF.get("组件 {} 执行 {} 失败"), component.name, "stop", e);
+            } finally {
+                initialized.remove(component.name);
+            }
+        }
+    }
+
+    /**
+     * 获取初始化成功且尚未停止的组件名，停止期间可以用来查看未完成的组件。
+     *
+     * @return 组件名，按依赖关系排序。
+     */
+    @Nonnull
+    public List<String> getRunningComponentNames() {
+        List<String> names = new ArrayList<>();
+        for (Component component : sortInitialized()) {
+            names.add(component.name);
+        }
+        return names;
+    }
+
+    /**
+     * 按依赖关系并行执行组件动作，依赖的组件失败时不执行。
+     *
+     * @param action
+     *     动作名。
+     * @param componentAction
+     *     组件动作。
+     */
+    private void execute(String action, Consumer<Component> componentAction) {
+        PhaseExecutor phases = new PhaseExecutor();
+        for (Component component : sortComponents()) {
+            phases.addPhase(component.name, () -> componentAction.accept(component), component.dependencies);
+        }
+
+        ManagedExecutors executors = context == null ? null : context.lookupObject(ManagedExecutors.class);
+        if (executors != null) {
+            phases.execute(executors.getTaskExecutor(), (name, phaseAction) -> runComponent(action, name, phaseAction));
+            return;
+        }
+        // 组件的初始化和启动多为阻塞操作，线程数不受处理器数限制
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(phases.getPhaseNames().size(), 1));
+        try {
+            phases.execute(executor, (name, phaseAction) -> runComponent(action, name, phaseAction));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 执行一个组件动作并记录日志。失败由 {@link PhaseExecutor} 汇总后抛出。
+     */
+    private static void runComponent(String action, String name, Runnable phaseAction) {
+        phaseAction.run();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(RBMF.get("组件 {} 执行 {} 完成"), name, action);
+        }
+    }
+
+    /**
+     * 按依赖关系的相反顺序依次执行初始化成功的组件的动作，失败只记录日志。
+     *
+     * @param action
+     *     动作名。
+     * @param controllerAction
+     *     组件动作。
+     */
+    private void executeReversed(String action, Consumer<SystemController> controllerAction) {
+        List<Component> sortedComponents = sortInitialized();
+        Collections.reverse(sortedComponents);
+        for (Component component : sortedComponents) {
+            try {
+                controllerAction.accept(component.controller);
+            } catch (RuntimeException e) {
+                LOG.error(RBMF.get("组件 {} 执行 {} 失败"), component.name, action, e);
+            }
+        }
+    }
+
+    /**
+     * 获取按依赖关系排序的初始化成功的组件。
+     */
+    private synchronized List<Component> sortInitialized() {
+        List<Component> sortedComponents = new ArrayList<>();
+        for (Component component : sortComponents()) {
+            if (initialized.contains(component.name)) {
+                sortedComponents.add(component);
+            }
+        }
+        return sortedComponents;
+    }
+
+    /**
+     * 按依赖关系排序组件。
+     */
+    private synchronized List<Component> sortComponents() {
+        List<Component> sortedComponents = new ArrayList<>(components.size());
+        Map<String, Boolean> visited = new LinkedHashMap<>();
+        for (Component component : components.values()) {
+            visit(component, visited, sortedComponents);
+        }
+        return sortedComponents;
+    }
+
+    /**
+     * 深度优先访问组件，依赖的组件先加入结果。访问中的组件标记为 {@code false}，访问完成的组件标记为 {@code true}。
+     */
+    private void visit(Component component, Map<String, Boolean> visited, List<Component> sortedComponents) {
+        Boolean state = visited.get(component.name);
+        if (Boolean.TRUE.equals(state)) {
+            return;
+        }
+        if (Boolean.FALSE.equals(state)) {
+            throw new IllegalStateException(RBMF.format("组件 {0} 存在循环依赖", component.name));
+        }
+
+        visited.put(component.name, Boolean.FALSE);
+        for (String dependency : component.dependencies) {
+            Component dependencyComponent = components.get(dependency);
+            if (dependencyComponent == null) {
+                throw new IllegalStateException(RBMF.format("组件 {0} 依赖的组件 {1} 不存在", component.name, dependency));
+            }
+            visit(dependencyComponent, visited, sortedComponents);
+        }
+        visited.put(component.name, Boolean.TRUE);
+        sortedComponents.add(component);
+    }
+
+    /**
+     * 组件。
+     */
+    private static final class Component {
+        /**
+         * 组件名。
+         */
+        final String name;
+
+        /**
+         * 组件。
+         */
+        final SystemController controller;
+
+        /**
+         * 依赖的组件名。
+         */
+        final String[] dependencies;
+
+        /**
+         * 构造器。
+         */
+        Component(String name, SystemController controller, String[] dependencies) {
+            this.name = name;
+            this.controller = controller;
+            this.dependencies = dependencies.clone();
+        }
+    }
+}
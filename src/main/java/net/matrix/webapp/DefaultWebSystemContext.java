@@ -4,12 +4,31 @@
  */
 package net.matrix.webapp;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import jakarta.servlet.ServletContext;
 
@@ -17,12 +36,17 @@ import org.apache.commons.configuration2.AbstractConfiguration;
 import org.apache.commons.configuration2.CombinedConfiguration;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.event.ConfigurationEvent;
+import org.apache.commons.configuration2.event.EventSource;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
 import org.apache.commons.configuration2.io.FileHandler;
 import org.apache.commons.configuration2.tree.OverrideCombiner;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
@@ -33,13 +57,31 @@ import net.matrix.app.DefaultSystemController;
 import net.matrix.app.SystemController;
 import net.matrix.java.lang.reflect.ReflectionMx;
 import net.matrix.text.ResourceBundleMessageFormatter;
+import net.matrix.webapp.config.AbstractSetting;
+import net.matrix.webapp.config.BooleanSetting;
+import net.matrix.webapp.config.CompactConfiguration;
+import net.matrix.webapp.config.CompiledConfigurationCache;
+import net.matrix.webapp.config.ConfigFileWatcher;
+import net.matrix.webapp.config.ConfigurationSnapshot;
+import net.matrix.webapp.config.DurationSetting;
+import net.matrix.webapp.config.IntSetting;
+import net.matrix.webapp.config.LazyLayeredConfiguration;
+import net.matrix.webapp.config.LongSetting;
+import net.matrix.webapp.config.MeteredConfiguration;
+import net.matrix.webapp.config.ReloadableConfiguration;
+import net.matrix.webapp.config.SharedConfigurationCache;
+import net.matrix.webapp.config.StreamingPropertiesLoader;
+import net.matrix.webapp.monitor.StartupReport;
+import net.matrix.webapp.monitor.SystemMetrics;
 
 /**
- * 默认的基于 Web 的系统环境。
+ * 默认的基于 Web 的系统环境。<br>
+ * 系统资源加载器、系统配置和系统控制器在第一次获取时创建。继承的 {@code resourceLoader}、{@code config}、{@code controller}
+ * 字段在创建或设置后同步更新，未创建时为 {@code null}，子类应通过对应的 get 方法读取。
  */
 public class DefaultWebSystemContext
     extends DefaultSystemContext
-    implements WebSystemContext {
+    implements WebSystemContext, Closeable {
     /**
      * 日志记录器。
      */
@@ -60,17 +102,122 @@ public class DefaultWebSystemContext
      */
     private static final String DEFAULT_CONFIG_LOCATION = "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig.dev.cfg";
 
+    /**
+     * 系统配置加载并行度的 Servlet 上下文参数名。
+     */
+    private static final String CONFIG_LOAD_PARALLELISM_PARAM = "systemConfigLoadParallelism";
+
+    /**
+     * 系统配置热加载开关的 Servlet 上下文参数名。
+     */
+    private static final String CONFIG_RELOAD_PARAM = "systemConfigReload";
+
+    /**
+     * 系统配置快照开关的 Servlet 上下文参数名。
+     */
+    private static final String CONFIG_SNAPSHOT_PARAM = "systemConfigSnapshot";
+
+    /**
+     * 运行指标开关的 Servlet 上下文参数名。
+     */
+    private static final String METRICS_ENABLED_PARAM = "systemMetricsEnabled";
+
+    /**
+     * 按配置键记录读取次数开关的 Servlet 上下文参数名。开启运行指标时有效，默认不按键记录。
+     */
+    private static final String METRICS_CONFIG_KEYS_PARAM = "systemMetricsConfigKeys";
+
+    /**
+     * 系统配置按需加载开关的 Servlet 上下文参数名。
+     */
+    private static final String CONFIG_LAZY_PARAM = "systemConfigLazy";
+
+    /**
+     * 系统配置位置中键前缀提示的分隔符。
+     */
+    private static final String CONFIG_KEY_PREFIX_SEPARATOR = "#";
+
+    /**
+     * 编译后的系统配置缓存开关的 Servlet 上下文参数名。
+     */
+    private static final String CONFIG_CACHE_PARAM = "systemConfigCache";
+
+    /**
+     * 编译后的系统配置缓存在临时目录中的文件名。
+     */
+    private static final String CONFIG_CACHE_FILE = "system-config.cache";
+
+    /**
+     * 共享解析结果开关的 Servlet 上下文参数名。开启后内容相同的系统配置文件通过 {@link SharedConfigurationCache} 只解析一次。
+     */
+    private static final String CONFIG_SHARE_PARAM = "systemConfigShare";
+
+    /**
+     * 流式加载开关的 Servlet 上下文参数名。开启后通过 {@link StreamingPropertiesLoader} 把全部系统配置文件合并为一个紧凑的配置。
+     */
+    private static final String CONFIG_STREAMING_PARAM = "systemConfigStreaming";
+
+    /**
+     * 资源路径解析缓存容量的 Servlet 上下文参数名。
+     */
+    private static final String RESOURCE_CACHE_SIZE_PARAM = "systemResourceCacheSize";
+
+    /**
+     * 资源路径解析缓存检查文件修改时间开关的 Servlet 上下文参数名。
+     */
+    private static final String RESOURCE_CACHE_VALIDATE_PARAM = "systemResourceCacheValidate";
+
     /**
      * 系统控制器类名的 Servlet 上下文参数名。
      */
     private static final String CONTROLLER_CLASS_PARAM = "systemControllerClass";
 
+    /**
+     * 系统组件类名列表的 Servlet 上下文参数名。设置后使用 {@link CompositeSystemController}。
+     */
+    private static final String CONTROLLER_COMPONENTS_PARAM = "systemControllerComponents";
+
+    /**
+     * 通过 {@link ServiceLoader} 发现 {@link SystemComponent} 开关的 Servlet 上下文参数名。开启后使用 {@link CompositeSystemController}。
+     */
+    private static final String CONTROLLER_DISCOVER_PARAM = "systemControllerDiscover";
+
     /**
      * Servlet 上下文。
      */
     @Nonnull
     protected final ServletContext servletContext;
 
+    /**
+     * 系统配置文件监视器，热加载时使用。
+     */
+    private ConfigFileWatcher configWatcher;
+
+    /**
+     * 并行加载系统配置文件的线程池，未使用时为 {@code null}。
+     */
+    private ExecutorService configLoadExecutor;
+
+    /**
+     * 系统资源加载器。
+     */
+    private final LazyComponent<ResourceLoader> lazyResourceLoader = new LazyComponent<>(this::initResourceLoader);
+
+    /**
+     * 系统配置。
+     */
+    private final LazyComponent<Configuration> lazyConfig = new LazyComponent<>(this::initConfig);
+
+    /**
+     * 系统控制器。
+     */
+    private final LazyComponent<SystemController> lazyController = new LazyComponent<>(this::initController);
+
+    /**
+     * 创建的系统配置项，系统配置被替换时重新绑定。读写时锁定自身。
+     */
+    private final Set<AbstractSetting> settings = new HashSet<>();
+
     /**
      * 构造器。
      */
@@ -78,84 +225,808 @@ public class DefaultWebSystemContext
         this.servletContext = servletContext;
     }
 
+    @Override
+    public void setResourceLoader(ResourceLoader resourceLoader) {
+        setComponent(lazyResourceLoader, resourceLoader);
+        this.resourceLoader = resourceLoader;
+    }
+
     @Override
     public ResourceLoader getResourceLoader() {
-        if (resourceLoader == null) {
-            resourceLoader = new WebSystemResourceLoader(servletContext);
+        return lazyResourceLoader.get();
+    }
+
+    /**
+     * 创建系统资源加载器并同步继承的字段。
+     */
+    private ResourceLoader initResourceLoader() {
+        ResourceLoader newResourceLoader = createResourceLoader();
+        resourceLoader = newResourceLoader;
+        return newResourceLoader;
+    }
+
+    /**
+     * 创建系统资源加载器。
+     *
+     * @return 系统资源加载器。
+     */
+    @Nonnull
+    protected ResourceLoader createResourceLoader() {
+        int cacheSize = NumberUtils.toInt(servletContext.getInitParameter(RESOURCE_CACHE_SIZE_PARAM), 0);
+        boolean cacheValidate = BooleanUtils.toBoolean(servletContext.getInitParameter(RESOURCE_CACHE_VALIDATE_PARAM));
+        return new WebSystemResourceLoader(servletContext, cacheSize, cacheValidate);
+    }
+
+    @Override
+    public void setConfig(Configuration config) {
+        // 原系统配置的文件监视不再需要
+        replaceConfigWatcher(null);
+        setComponent(lazyConfig, config);
+        this.config = config;
+        if (config != null) {
+            rebindSettings(config);
         }
-        return resourceLoader;
     }
 
     @Override
     public Configuration getConfig() {
-        if (config == null) {
-            String configLocationsParam = StringUtils.defaultIfBlank(servletContext.getInitParameter(CONFIG_LOCATION_PARAM), DEFAULT_CONFIG_LOCATION);
-            String[] configLocations = StringUtils.split(configLocationsParam, ",; \t\n");
-            configLocations = StringUtils.stripAll(configLocations);
+        return lazyConfig.get();
+    }
 
-            List<AbstractConfiguration> configList = new ArrayList<>();
-            for (String configLocation : configLocations) {
-                if (StringUtils.isBlank(configLocation)) {
-                    continue;
+    /**
+     * 创建系统配置，重新绑定配置项并同步继承的字段。
+     */
+    private Configuration initConfig() {
+        Configuration newConfig = rebindSettings(createConfig());
+        config = newConfig;
+        return newConfig;
+    }
+
+    /**
+     * 加载系统配置。
+     *
+     * @return 系统配置。
+     */
+    @Nonnull
+    protected Configuration createConfig() {
+        warnConflictingConfigModes();
+        Configuration newConfig;
+        List<String> configLocations = getConfigLocations();
+        if (BooleanUtils.toBoolean(servletContext.getInitParameter(CONFIG_RELOAD_PARAM))) {
+            List<AbstractConfiguration> configList = loadConfigs(configLocations);
+            newConfig = startConfigReload(configLocations, configList, combineConfigs(configList));
+        } else if (BooleanUtils.toBoolean(servletContext.getInitParameter(CONFIG_LAZY_PARAM))) {
+            newConfig = loadLazyConfig(configLocations);
+        } else if (BooleanUtils.toBoolean(servletContext.getInitParameter(CONFIG_CACHE_PARAM))) {
+            newConfig = loadCompiledConfig(configLocations);
+        } else if (BooleanUtils.toBoolean(servletContext.getInitParameter(CONFIG_STREAMING_PARAM))) {
+            newConfig = loadStreamingConfig(configLocations);
+        } else {
+            newConfig = combineConfigs(loadConfigs(configLocations));
+        }
+        if (BooleanUtils.toBoolean(servletContext.getInitParameter(METRICS_ENABLED_PARAM))) {
+            newConfig = new MeteredConfiguration(newConfig, SystemMetrics.getInstance(),
+                BooleanUtils.toBoolean(servletContext.getInitParameter(METRICS_CONFIG_KEYS_PARAM)));
+        }
+        return newConfig;
+    }
+
+    /**
+     * 同时开启多种系统配置加载方式时记录警告。加载方式的优先顺序为热加载、按需加载、编译后的缓存、流式加载，只使用优先的一种。
+     */
+    private void warnConflictingConfigModes() {
+        List<String> modes = new ArrayList<>();
+        for (String modeParam : new String[] {
+            CONFIG_RELOAD_PARAM, CONFIG_LAZY_PARAM, CONFIG_CACHE_PARAM, CONFIG_STREAMING_PARAM
+        }) {
+            if (BooleanUtils.toBoolean(servletContext.getInitParameter(modeParam))) {
+                modes.add(modeParam);
+            }
+        }
+        if (modes.size() > 1) {
+            LOG.warn(RBMF.get("系统配置加载方式 {} 同时开启，只使用 {}"), modes, modes.get(0));
+        }
+        if (!modes.isEmpty() && CONFIG_LAZY_PARAM.equals(modes.get(0)) && BooleanUtils.toBoolean(servletContext.getInitParameter(CONFIG_SNAPSHOT_PARAM))) {
+            LOG.warn(RBMF.get("按需加载的系统配置不使用快照，忽略 {}"), CONFIG_SNAPSHOT_PARAM);
+        }
+    }
+
+    /**
+     * 按需加载系统配置。启动时只检查系统配置文件是否存在，每个文件在第一次查找可能由它提供的键时才加载。
+     * 系统配置位置可以带键前缀提示，格式为 {@code 位置#前缀1|前缀2}，查找不匹配的键时不加载该文件。覆盖顺序与立即加载相同。
+     *
+     * @param configLocations
+     *     系统配置位置。
+     * @return 系统配置。
+     */
+    @Nonnull
+    protected LazyLayeredConfiguration loadLazyConfig(@Nonnull List<String> configLocations) {
+        LazyLayeredConfiguration layeredConfig = new LazyLayeredConfiguration();
+        StartupReport startupReport = lookupObject(StartupReport.class);
+        for (String configLocation : configLocations) {
+            if (!getResourceLoader().getResource(getConfigPath(configLocation)).exists()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(RBMF.get("未找到系统配置文件 {}"), configLocation);
                 }
+                continue;
+            }
+            String keyPrefixes = StringUtils.substringAfter(configLocation, CONFIG_KEY_PREFIX_SEPARATOR);
+            layeredConfig.addLayer(configLocation, List.of(StringUtils.split(keyPrefixes, '|')), () -> loadConfig(configLocation, startupReport));
+        }
+        return layeredConfig;
+    }
 
-                Resource configResource = getResourceLoader().getResource(configLocation);
-                if (!configResource.exists()) {
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug(RBMF.get("未找到系统配置文件 {}"), configResource);
-                    }
-                    continue;
+    /**
+     * 流式加载系统配置。按覆盖顺序逐个读取系统配置文件，直接合并为一个 {@link CompactConfiguration}，
+     * 不为每个文件建立配置对象。不处理 {@code include}。开启快照时编译为 {@link ConfigurationSnapshot}。
+     *
+     * @param configLocations
+     *     系统配置位置。
+     * @return 系统配置。
+     */
+    @Nonnull
+    protected Configuration loadStreamingConfig(@Nonnull List<String> configLocations) {
+        StreamingPropertiesLoader loader = new StreamingPropertiesLoader();
+        StartupReport startupReport = lookupObject(StartupReport.class);
+        for (String configLocation : configLocations) {
+            Resource configResource = getResourceLoader().getResource(getConfigPath(configLocation));
+            if (!configResource.exists()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(RBMF.get("未找到系统配置文件 {}"), configResource);
+                }
+                continue;
+            }
+
+            StartupReport.Measurement measurement = startupReport == null ? null : startupReport.begin("loadConfig " + configLocation);
+            boolean failed = true;
+            try {
+                loader.load(configResource.getInputStream());
+                failed = false;
+            } catch (IOException e) {
+                throw new ConfigurationRuntimeException(RBMF.format("系统配置文件 {0} 加载失败", configResource), e);
+            } finally {
+                if (measurement != null) {
+                    measurement.end(failed);
                 }
+            }
+            LOG.info(RBMF.get("系统配置文件 {} 加载完成"), configResource);
+        }
+        return combineConfigs(List.of(loader.build()));
+    }
+
+    /**
+     * 去掉系统配置位置中的键前缀提示。
+     *
+     * @param configLocation
+     *     系统配置位置。
+     * @return 资源位置。
+     */
+    @Nonnull
+    private static String getConfigPath(String configLocation) {
+        return StringUtils.substringBefore(configLocation, CONFIG_KEY_PREFIX_SEPARATOR);
+    }
+
+    /**
+     * 通过编译后的系统配置缓存加载系统配置。缓存与源文件一致时直接使用缓存，否则加载源文件并重新写入缓存。
+     * 缓存保存在 Servlet 容器的临时目录中，结果总是 {@link ConfigurationSnapshot}。热加载时不使用缓存。
+     *
+     * @param configLocations
+     *     系统配置位置。
+     * @return 系统配置。
+     */
+    @Nonnull
+    protected Configuration loadCompiledConfig(@Nonnull List<String> configLocations) {
+        Object tempDir = servletContext.getAttribute(ServletContext.TEMPDIR);
+        if (!(tempDir instanceof File tempDirectory)) {
+            LOG.debug(RBMF.get("没有 Servlet 临时目录，不使用系统配置缓存"));
+            return combineConfigs(loadConfigs(configLocations));
+        }
+        CompiledConfigurationCache cache = new CompiledConfigurationCache(tempDirectory.toPath().resolve(CONFIG_CACHE_FILE));
+
+        List<CompiledConfigurationCache.SourceStamp> sources = new ArrayList<>();
+        try {
+            for (String configLocation : configLocations) {
+                sources.add(CompiledConfigurationCache.SourceStamp.of(configLocation, getResourceLoader().getResource(getConfigPath(configLocation))));
+            }
+        } catch (IOException e) {
+            LOG.warn(RBMF.get("系统配置文件读取失败，不使用系统配置缓存"), e);
+            return combineConfigs(loadConfigs(configLocations));
+        }
+
+        ConfigurationSnapshot cachedConfig = cache.load(sources);
+        if (cachedConfig != null) {
+            LOG.info(RBMF.get("系统配置从缓存 {} 加载完成"), cache.getCacheFile());
+            return cachedConfig;
+        }
+
+        // 缓存中保存未替换变量的值，快照在写入后生成
+        Configuration combinedConfig = combineMemberConfigs(loadConfigs(configLocations));
+        try {
+            cache.store(sources, combinedConfig);
+        } catch (IOException e) {
+            LOG.warn(RBMF.get("系统配置缓存 {} 写入失败"), cache.getCacheFile(), e);
+        }
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(combinedConfig);
+        releaseConfig(combinedConfig);
+        return snapshot;
+    }
+
+    /**
+     * 获取系统配置位置。
+     *
+     * @return 系统配置位置，按覆盖顺序从低到高排列，可以带键前缀提示。
+     */
+    @Nonnull
+    protected List<String> getConfigLocations() {
+        String configLocationsParam = StringUtils.defaultIfBlank(servletContext.getInitParameter(CONFIG_LOCATION_PARAM), DEFAULT_CONFIG_LOCATION);
+        String[] configLocations = StringUtils.split(configLocationsParam, ",; \t\n");
+        configLocations = StringUtils.stripAll(configLocations);
+
+        List<String> locations = new ArrayList<>();
+        for (String configLocation : configLocations) {
+            if (StringUtils.isNotBlank(configLocation)) {
+                locations.add(configLocation);
+            }
+        }
+        return locations;
+    }
 
-                try {
-                    PropertiesConfiguration memberConfig = new PropertiesConfiguration();
-                    FileHandler fileHandler = new FileHandler(memberConfig);
-                    fileHandler.load(configResource.getInputStream());
-                    configList.add(memberConfig);
-                    LOG.info(RBMF.get("系统配置文件 {} 加载完成"), configResource);
-                } catch (IOException | ConfigurationException e) {
-                    throw new ConfigurationRuntimeException(RBMF.format("系统配置文件 {0} 加载失败", configResource), e);
+    /**
+     * 判断系统配置是否可能包含指定前缀的键。按需加载时只根据系统配置位置的键前缀提示判断，不读取系统配置文件，
+     * 没有匹配的键前缀提示时返回 {@code false}；其它方式加载系统配置后判断。
+     *
+     * @param keyPrefix
+     *     键前缀。
+     * @return 是否可能包含。
+     */
+    public boolean mayContainConfigKeys(@Nonnull String keyPrefix) {
+        if (BooleanUtils.toBoolean(servletContext.getInitParameter(CONFIG_LAZY_PARAM))) {
+            for (String configLocation : getConfigLocations()) {
+                String keyPrefixes = StringUtils.substringAfter(configLocation, CONFIG_KEY_PREFIX_SEPARATOR);
+                for (String locationKeyPrefix : StringUtils.split(keyPrefixes, '|')) {
+                    if (locationKeyPrefix.startsWith(keyPrefix) || keyPrefix.startsWith(locationKeyPrefix)) {
+                        return true;
+                    }
                 }
             }
-            if (configList.isEmpty()) {
-                LOG.info(RBMF.get("未加载系统配置文件"));
-                config = new PropertiesConfiguration();
-            } else if (configList.size() == 1) {
-                config = configList.get(0);
+            return false;
+        }
+
+        for (Iterator<String> keys = getConfig().getKeys(); keys.hasNext();) {
+            if (keys.next().startsWith(keyPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 加载全部系统配置文件。并行度参数大于 1 时并行加载。已注册 {@link StartupReport} 时记录每个文件的加载耗时。
+     *
+     * @param configLocations
+     *     系统配置位置。
+     * @return 加载的系统配置，顺序与系统配置位置相同，未找到的文件对应 {@code null}。
+     */
+    @Nonnull
+    protected List<AbstractConfiguration> loadConfigs(@Nonnull List<String> configLocations) {
+        int parallelism = NumberUtils.toInt(servletContext.getInitParameter(CONFIG_LOAD_PARALLELISM_PARAM), 1);
+        parallelism = Math.min(parallelism, configLocations.size());
+
+        StartupReport startupReport = lookupObject(StartupReport.class);
+        List<AbstractConfiguration> configList = new ArrayList<>();
+        if (parallelism <= 1) {
+            for (String configLocation : configLocations) {
+                configList.add(loadConfig(configLocation, startupReport));
+            }
+            return configList;
+        }
+
+        ExecutorService executor = getConfigLoadExecutor();
+        List<Future<AbstractConfiguration>> futures = new ArrayList<>();
+        try {
+            for (String configLocation : configLocations) {
+                futures.add(executor.submit(() -> loadConfig(configLocation, startupReport)));
+            }
+            // 按声明顺序等待，失败时报告顺序最靠前的文件
+            for (Future<AbstractConfiguration> future : futures) {
+                configList.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new ConfigurationRuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConfigurationRuntimeException(RBMF.get("系统配置文件加载被中断"), e);
+        } finally {
+            // 失败时不再需要其它文件
+            for (Future<AbstractConfiguration> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return configList;
+    }
+
+    /**
+     * 获取并行加载系统配置文件的线程池，第一次调用时创建，之后重新加载时复用，关闭系统环境时关闭。
+     * 线程数为并行度参数，空闲的线程会结束。
+     *
+     * @return 线程池。
+     */
+    private synchronized ExecutorService getConfigLoadExecutor() {
+        if (configLoadExecutor == null) {
+            int threads = Math.max(NumberUtils.toInt(servletContext.getInitParameter(CONFIG_LOAD_PARALLELISM_PARAM), 1), 1);
+            AtomicInteger sequence = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "system-config-load-" + sequence.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            configLoadExecutor = executor;
+        }
+        return configLoadExecutor;
+    }
+
+    /**
+     * 加载一个系统配置文件并记录耗时。
+     *
+     * @param configLocation
+     *     系统配置位置。
+     * @param startupReport
+     *     启动报告，{@code null} 时不记录。
+     * @return 系统配置，文件不存在时为 {@code null}。
+     */
+    @Nullable
+    private AbstractConfiguration loadConfig(String configLocation, StartupReport startupReport) {
+        if (startupReport == null) {
+            return loadConfig(configLocation);
+        }
+
+        StartupReport.Measurement measurement = startupReport.begin("loadConfig " + configLocation);
+        boolean failed = true;
+        try {
+            AbstractConfiguration memberConfig = loadConfig(configLocation);
+            failed = false;
+            return memberConfig;
+        } finally {
+            measurement.end(failed);
+        }
+    }
+
+    /**
+     * 加载一个系统配置文件。
+     *
+     * @param configLocation
+     *     系统配置位置。
+     * @return 系统配置，文件不存在时为 {@code null}。
+     */
+    @Nullable
+    protected AbstractConfiguration loadConfig(@Nonnull String configLocation) {
+        Resource configResource = getResourceLoader().getResource(getConfigPath(configLocation));
+        if (!configResource.exists()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(RBMF.get("未找到系统配置文件 {}"), configResource);
+            }
+            return null;
+        }
+
+        try {
+            AbstractConfiguration memberConfig;
+            if (BooleanUtils.toBoolean(servletContext.getInitParameter(CONFIG_SHARE_PARAM))) {
+                try (InputStream input = configResource.getInputStream()) {
+                    memberConfig = SharedConfigurationCache.getInstance().load(input.readAllBytes());
+                }
             } else {
-                CombinedConfiguration combinedConfig = new CombinedConfiguration(new OverrideCombiner());
-                for (int index = configList.size() - 1; index >= 0; index--) {
-                    combinedConfig.addConfiguration(configList.get(index));
+                PropertiesConfiguration propertiesConfig = new PropertiesConfiguration();
+                FileHandler fileHandler = new FileHandler(propertiesConfig);
+                try (InputStream input = configResource.getInputStream()) {
+                    fileHandler.load(input);
                 }
-                config = combinedConfig;
+                memberConfig = propertiesConfig;
             }
+            LOG.info(RBMF.get("系统配置文件 {} 加载完成"), configResource);
+            return memberConfig;
+        } catch (IOException | ConfigurationException e) {
+            throw new ConfigurationRuntimeException(RBMF.format("系统配置文件 {0} 加载失败", configResource), e);
         }
-        return config;
+    }
+
+    /**
+     * 按覆盖顺序组合系统配置。开启快照时编译为 {@link ConfigurationSnapshot}。
+     *
+     * @param configList
+     *     系统配置，按覆盖顺序从低到高排列，忽略 {@code null} 元素。
+     * @return 组合后的系统配置。
+     */
+    @Nonnull
+    protected Configuration combineConfigs(@Nonnull List<AbstractConfiguration> memberConfigs) {
+        Configuration combinedConfig = combineMemberConfigs(memberConfigs);
+        if (BooleanUtils.toBoolean(servletContext.getInitParameter(CONFIG_SNAPSHOT_PARAM))) {
+            ConfigurationSnapshot snapshot = new ConfigurationSnapshot(combinedConfig);
+            releaseConfig(combinedConfig);
+            return snapshot;
+        }
+        return combinedConfig;
+    }
+
+    /**
+     * 按覆盖顺序组合系统配置，不编译为快照。
+     *
+     * @param memberConfigs
+     *     系统配置，按覆盖顺序从低到高排列，忽略 {@code null} 元素。
+     * @return 组合后的系统配置。
+     */
+    private static Configuration combineMemberConfigs(List<AbstractConfiguration> memberConfigs) {
+        List<AbstractConfiguration> configList = new ArrayList<>(memberConfigs);
+        configList.removeIf(Objects::isNull);
+        Configuration combinedConfig;
+        if (configList.isEmpty()) {
+            LOG.info(RBMF.get("未加载系统配置文件"));
+            combinedConfig = new PropertiesConfiguration();
+        } else if (configList.size() == 1) {
+            combinedConfig = configList.get(0);
+        } else {
+            CombinedConfiguration overrideConfig = new CombinedConfiguration(new OverrideCombiner());
+            for (int index = configList.size() - 1; index >= 0; index--) {
+                overrideConfig.addConfiguration(configList.get(index));
+            }
+            combinedConfig = overrideConfig;
+        }
+        return combinedConfig;
+    }
+
+    /**
+     * 解除成员配置对组合配置的引用，使不再使用的组合配置可以回收。
+     *
+     * @param config
+     *     不再使用的系统配置。
+     */
+    private static void releaseConfig(Configuration config) {
+        if (config instanceof CombinedConfiguration combinedConfig) {
+            for (Configuration memberConfig : combinedConfig.getConfigurations()) {
+                if (memberConfig instanceof EventSource eventSource) {
+                    eventSource.removeEventListener(ConfigurationEvent.ANY, combinedConfig);
+                }
+            }
+        }
+    }
+
+    /**
+     * 开始监视系统配置文件，文件变化时在监视线程中重新加载变化的文件并替换组合后的系统配置。
+     *
+     * @param configLocations
+     *     系统配置位置。
+     * @param configList
+     *     已加载的系统配置，顺序与系统配置位置相同。
+     * @param combinedConfig
+     *     组合后的系统配置。
+     * @return 可替换的系统配置。
+     */
+    @Nonnull
+    protected ReloadableConfiguration startConfigReload(@Nonnull List<String> configLocations, @Nonnull List<AbstractConfiguration> configList,
+        @Nonnull Configuration combinedConfig) {
+        ReloadableConfiguration reloadableConfig = new ReloadableConfiguration(combinedConfig);
+        // 只在监视线程中修改
+        List<AbstractConfiguration> memberConfigs = new ArrayList<>(configList);
+        List<Path> configFiles = new ArrayList<>();
+        for (String configLocation : configLocations) {
+            configFiles.add(getConfigFile(configLocation));
+        }
+
+        ConfigFileWatcher watcher = new ConfigFileWatcher(configFiles,
+            index -> reloadConfig(reloadableConfig, memberConfigs, configLocations.get(index), index));
+        try {
+            watcher.start();
+            replaceConfigWatcher(watcher);
+        } catch (IOException e) {
+            LOG.warn(RBMF.get("系统配置文件监视启动失败"), e);
+        }
+        return reloadableConfig;
+    }
+
+    /**
+     * 替换系统配置文件监视器并关闭原来的监视器。
+     *
+     * @param watcher
+     *     新的监视器，{@code null} 表示只关闭原来的监视器。
+     */
+    private synchronized void replaceConfigWatcher(ConfigFileWatcher watcher) {
+        if (configWatcher != null) {
+            configWatcher.close();
+        }
+        configWatcher = watcher;
+    }
+
+    /**
+     * 获取系统配置位置对应的文件。文件尚不存在时同样返回路径，以便监视之后创建的文件。
+     *
+     * @param configLocation
+     *     系统配置位置。
+     * @return 文件路径，不对应文件系统中的位置时为 {@code null}。
+     */
+    @Nullable
+    private Path getConfigFile(String configLocation) {
+        Resource configResource = getResourceLoader().getResource(getConfigPath(configLocation));
+        try {
+            return configResource.getFile().toPath();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 重新加载一个系统配置文件，组合完成后替换系统配置。加载失败时保留原来的系统配置。
+     *
+     * @param reloadableConfig
+     *     可替换的系统配置。
+     * @param memberConfigs
+     *     已加载的系统配置。
+     * @param configLocation
+     *     变化的系统配置位置。
+     * @param index
+     *     变化的系统配置序号。
+     */
+    private void reloadConfig(ReloadableConfiguration reloadableConfig, List<AbstractConfiguration> memberConfigs, String configLocation, int index) {
+        AbstractConfiguration memberConfig;
+        try {
+            memberConfig = loadConfig(configLocation);
+        } catch (ConfigurationRuntimeException e) {
+            LOG.error(RBMF.get("系统配置文件 {} 重新加载失败，保留原配置"), configLocation, e);
+            return;
+        }
+        memberConfigs.set(index, memberConfig);
+
+        Configuration newConfig = combineConfigs(memberConfigs);
+        // 组合结果在第一次访问时构建，在替换前遍历一次键，避免读取方承担构建开销
+        newConfig.getKeys();
+        Configuration oldConfig = reloadableConfig.replace(newConfig);
+        releaseConfig(oldConfig);
+        LOG.info(RBMF.get("系统配置文件 {} 重新加载完成"), configLocation);
+    }
+
+    @Override
+    public void setController(SystemController controller) {
+        setComponent(lazyController, controller);
+        this.controller = controller;
     }
 
     @Override
     public SystemController getController() {
-        if (controller == null) {
-            String controllerClassParam = servletContext.getInitParameter(CONTROLLER_CLASS_PARAM);
-            if (controllerClassParam == null) {
-                controller = new DefaultSystemController();
-            } else {
-                try {
-                    Class<?> controllerClass = ClassUtils.getClass(controllerClassParam);
-                    Constructor<?> controllerConstructor = controllerClass.getDeclaredConstructor();
-                    ReflectionMx.makeAccessible(controllerConstructor);
-                    controller = (SystemController) controllerConstructor.newInstance();
-                } catch (ReflectiveOperationException e) {
-                    throw new ConfigurationRuntimeException(RBMF.format("控制器类 {0} 实例化失败", controllerClassParam), e);
+        return lazyController.get();
+    }
+
+    /**
+     * 创建系统控制器并同步继承的字段。
+     */
+    private SystemController initController() {
+        SystemController newController = createController();
+        controller = newController;
+        return newController;
+    }
+
+    /**
+     * 创建系统控制器。设置了系统组件列表或开启了组件发现时创建 {@link CompositeSystemController}，
+     * 依次添加控制器类、系统组件列表中的类和发现的系统组件。
+     *
+     * @return 系统控制器。
+     */
+    @Nonnull
+    protected SystemController createController() {
+        SystemController newController;
+        String controllerClassParam = servletContext.getInitParameter(CONTROLLER_CLASS_PARAM);
+        String[] componentClassNames = ArrayUtils.nullToEmpty(StringUtils.split(servletContext.getInitParameter(CONTROLLER_COMPONENTS_PARAM), ",; \t\n"));
+        boolean discover = BooleanUtils.toBoolean(servletContext.getInitParameter(CONTROLLER_DISCOVER_PARAM));
+        if (componentClassNames.length > 0 || discover) {
+            CompositeSystemController compositeController = new CompositeSystemController();
+            if (controllerClassParam != null) {
+                compositeController.addComponent(instantiateController(controllerClassParam));
+            }
+            for (String componentClassName : componentClassNames) {
+                compositeController.addComponent(instantiateController(componentClassName));
+            }
+            if (discover) {
+                for (SystemComponent component : ServiceLoader.load(SystemComponent.class)) {
+                    compositeController.addComponent(component);
                 }
             }
-            controller.setContext(this);
+            newController = compositeController;
+        } else if (controllerClassParam == null) {
+            newController = new DefaultSystemController();
+        } else {
+            newController = instantiateController(controllerClassParam);
+        }
+        newController.setContext(this);
+        return newController;
+    }
+
+    /**
+     * 使用无参构造器实例化控制器类。
+     */
+    private static SystemController instantiateController(String controllerClassName) {
+        try {
+            Class<?> controllerClass = ClassUtils.getClass(controllerClassName);
+            Constructor<?> controllerConstructor = controllerClass.getDeclaredConstructor();
+            ReflectionMx.makeAccessible(controllerConstructor);
+            return (SystemController) controllerConstructor.newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new ConfigurationRuntimeException(RBMF.format("控制器类 {0} 实例化失败", controllerClassName), e);
+        }
+    }
+
+    /**
+     * 设置组件，{@code null} 表示下次获取时重新创建。
+     */
+    private static <T> void setComponent(LazyComponent<T> component, T value) {
+        if (value == null) {
+            component.reset();
+        } else {
+            component.set(value);
+        }
+    }
+
+    /**
+     * 注册延迟创建的对象，第一次查找时创建，之后的查找返回同一个对象。
+     *
+     * @param <T>
+     *     对象类型。
+     * @param type
+     *     对象类型，同时作为对象名。
+     * @param factory
+     *     创建对象的工厂，不能返回 {@code null}。
+     */
+    public <T> void registerLazyObject(@Nonnull Class<T> type, @Nonnull Supplier<? extends T> factory) {
+        registerLazyObject(type.getName(), factory);
+    }
+
+    /**
+     * 注册延迟创建的对象，第一次查找时创建，之后的查找返回同一个对象。
+     *
+     * @param name
+     *     对象名。
+     * @param factory
+     *     创建对象的工厂，不能返回 {@code null}。
+     */
+    public void registerLazyObject(@Nonnull String name, @Nonnull Supplier<?> factory) {
+        registerObject(name, new LazyComponent<>(factory));
+    }
+
+    @Override
+    public Object lookupObject(String name) {
+        Object object = super.lookupObject(name);
+        if (object instanceof LazyComponent<?> component) {
+            return component.get();
+        }
+        return object;
+    }
+
+    @Override
+    public <T> T lookupObject(String name, Class<T> type) {
+        return type.cast(lookupObject(name));
+    }
+
+    @Override
+    public <T> T lookupObject(Class<T> type) {
+        return lookupObject(type.getName(), type);
+    }
+
+    /**
+     * 查找已创建的对象，延迟创建的对象尚未创建时不创建。
+     *
+     * @param <T>
+     *     对象类型。
+     * @param type
+     *     对象类型，同时作为对象名。
+     * @return 对象，没有或尚未创建时为 {@code null}。
+     */
+    @Nullable
+    public <T> T lookupCreatedObject(@Nonnull Class<T> type) {
+        Object object = super.lookupObject(type.getName());
+        if (object instanceof LazyComponent<?> component) {
+            object = component.getIfCreated();
         }
-        return controller;
+        return type.cast(object);
     }
 
     @Override
     public ServletContext getServletContext() {
         return servletContext;
     }
+
+    /**
+     * {@inheritDoc}<br>
+     * 系统配置被替换时，配置项自动绑定到新的系统配置；关闭系统环境时关闭配置项。
+     */
+    @Override
+    public IntSetting createIntSetting(String key, int defaultValue) {
+        return trackSetting(WebSystemContext.super.createIntSetting(key, defaultValue));
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * 系统配置被替换时，配置项自动绑定到新的系统配置；关闭系统环境时关闭配置项。
+     */
+    @Override
+    public LongSetting createLongSetting(String key, long defaultValue) {
+        return trackSetting(WebSystemContext.super.createLongSetting(key, defaultValue));
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * 系统配置被替换时，配置项自动绑定到新的系统配置；关闭系统环境时关闭配置项。
+     */
+    @Override
+    public BooleanSetting createBooleanSetting(String key, boolean defaultValue) {
+        return trackSetting(WebSystemContext.super.createBooleanSetting(key, defaultValue));
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * 系统配置被替换时，配置项自动绑定到新的系统配置；关闭系统环境时关闭配置项。
+     */
+    @Override
+    public DurationSetting createDurationSetting(String key, Duration defaultValue) {
+        return trackSetting(WebSystemContext.super.createDurationSetting(key, defaultValue));
+    }
+
+    /**
+     * 记录创建的配置项，同时移除已关闭的配置项。
+     */
+    private <T extends AbstractSetting> T trackSetting(T setting) {
+        synchronized (settings) {
+            settings.removeIf(AbstractSetting::isClosed);
+            settings.add(setting);
+        }
+        return setting;
+    }
+
+    /**
+     * 把创建的配置项绑定到新的系统配置。
+     *
+     * @param config
+     *     新的系统配置。
+     * @return 新的系统配置。
+     */
+    private Configuration rebindSettings(Configuration config) {
+        synchronized (settings) {
+            settings.removeIf(AbstractSetting::isClosed);
+            for (AbstractSetting setting : settings) {
+                setting.rebind(config);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * 释放系统环境持有的资源，包括已注册的 {@link ManagedExecutors} 和 {@link WebSystemResourceLoader} 共享的资源内容。
+     */
+    @Override
+    public void close() {
+        replaceConfigWatcher(null);
+        synchronized (this) {
+            if (configLoadExecutor != null) {
+                configLoadExecutor.shutdownNow();
+                configLoadExecutor = null;
+            }
+        }
+        if (lazyResourceLoader.getIfCreated() instanceof WebSystemResourceLoader webResourceLoader) {
+            webResourceLoader.close();
+        }
+        synchronized (settings) {
+            for (AbstractSetting setting : settings) {
+                setting.close();
+            }
+            settings.clear();
+        }
+        // 未创建的延迟对象不需要关闭
+        ManagedExecutors executors = lookupCreatedObject(ManagedExecutors.class);
+        if (executors != null) {
+            executors.close();
+        }
+    }
 }
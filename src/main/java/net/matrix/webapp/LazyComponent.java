@@ -0,0 +1,154 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 延迟创建的组件。第一次获取时创建，并发获取的线程等待同一次创建，创建完成后获取只需读取一次 volatile 变量。
+ * 创建时抛出运行时异常则记录失败，创建的线程收到原异常，之后的获取抛出以原异常为原因的新异常，直到调用 {@link #set(Object)} 或 {@link #reset()}；
+ * 抛出错误时不记录。
+ *
+ * @param <T>
+ *     组件类型。
+ */
+@ThreadSafe
+public final class LazyComponent<T>
+    implements Supplier<T> {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(LazyComponent.class).useCurrentLocale();
+
+    /**
+     * 创建组件的工厂。
+     */
+    private final Supplier<? extends T> factory;
+
+    /**
+     * 创建结果，组件或 {@link Failure}，未创建时为 {@code null}。
+     */
+    private volatile Object result;
+
+    /**
+     * 正在创建组件的线程，用于发现循环依赖。
+     */
+    private Thread creatingThread;
+
+    /**
+     * 构造器。
+     *
+     * @param factory
+     *     创建组件的工厂，不能返回 {@code null}。
+     */
+    public LazyComponent(@Nonnull Supplier<? extends T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * 获取组件，第一次调用时创建。
+     *
+     * @return 组件。
+     * @throws IllegalStateException
+     *     创建过程中再次获取同一个组件，或之前的创建已失败。
+     */
+    @Nonnull
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get() {
+        Object currentResult = result;
+        if (currentResult == null) {
+            currentResult = create();
+        }
+        if (currentResult instanceof Failure failure) {
+            // 每次抛出新的异常，调用者添加的抑制异常不会累积到记录的异常上
+            throw new IllegalStateException(RBMF.get("组件创建失败"), failure.exception);
+        }
+        return (T) currentResult;
+    }
+
+    /**
+     * 获取已创建的组件，不触发创建。
+     *
+     * @return 组件，未创建或创建失败时为 {@code null}。
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T getIfCreated() {
+        Object currentResult = result;
+        if (currentResult instanceof Failure) {
+            return null;
+        }
+        return (T) currentResult;
+    }
+
+    /**
+     * 直接设置组件，替换创建结果。
+     *
+     * @param component
+     *     组件。
+     */
+    public synchronized void set(@Nonnull T component) {
+        result = component;
+    }
+
+    /**
+     * 清除创建结果，下次获取时重新创建。
+     */
+    public synchronized void reset() {
+        result = null;
+    }
+
+    /**
+     * 创建组件并记录结果。
+     */
+    private synchronized Object create() {
+        Object currentResult = result;
+        if (currentResult != null) {
+            return currentResult;
+        }
+        if (creatingThread == Thread.currentThread()) {
+            throw new IllegalStateException(RBMF.get("组件创建过程中再次获取了同一个组件"));
+        }
+
+        creatingThread = Thread.currentThread();
+        try {
+            T component = factory.get();
+            if (component == null) {
+                throw new IllegalStateException(RBMF.get("组件工厂返回了 null"));
+            }
+            result = component;
+            return component;
+        } catch (RuntimeException e) {
+            result = new Failure(e);
+            throw e;
+        } finally {
+            creatingThread = null;
+        }
+    }
+
+    /**
+     * 创建失败。
+     */
+    private static final class Failure {
+        /**
+         * 创建时抛出的异常。
+         */
+        final RuntimeException exception;
+
+        /**
+         * 构造器。
+         */
+        Failure(RuntimeException exception) {
+            this.exception = exception;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.io.Closeable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 随系统环境停止而关闭的执行器。{@link #getTaskExecutor()} 每个任务一个虚拟线程，适合阻塞 I/O，
+ * 运行环境不支持虚拟线程时退化为有界的平台线程池；{@link #getPool(String)} 是按名称区分的有界平台线程池。
+ * 线程数等从系统配置读取：
+ * <ul>
+ * <li>{@code system.executor.<名称>.threads}：线程数，默认为处理器数，任务执行器的退化线程池默认为处理器数的 8 倍</li>
+ * <li>{@code system.executor.<名称>.queueCapacity}：等待队列容量，默认不限</li>
+ * <li>{@code system.executor.shutdownTimeout}：关闭时等待任务完成的毫秒数，默认 10000</li>
+ * </ul>
+ */
+@ThreadSafe
+public class ManagedExecutors
+    implements Closeable {
+    /**
+     * 日志记录器。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(ManagedExecutors.class);
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(ManagedExecutors.class).useCurrentLocale();
+
+    /**
+     * 配置键前缀。
+     */
+    private static final String CONFIG_PREFIX = "system.executor.";
+
+    /**
+     * 任务执行器的名称。
+     */
+    private static final String TASK_EXECUTOR_NAME = "task";
+
+    /**
+     * 系统配置。
+     */
+    @Nonnull
+    private final Configuration config;
+
+    /**
+     * 已创建的执行器。
+     */
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    /**
+     * 是否已关闭。
+     */
+    private volatile boolean closed;
+
+    /**
+     * 构造器。
+     *
+     * @param config
+     *     系统配置。
+     */
+    public ManagedExecutors(@Nonnull Configuration config) {
+        this.config = config;
+    }
+
+    /**
+     * 获取任务执行器，第一次调用时创建。
+     *
+     * @return 任务执行器。
+     * @throws IllegalStateException
+     *     已关闭。
+     */
+    @Nonnull
+    public ExecutorService getTaskExecutor() {
+        return getExecutor(TASK_EXECUTOR_NAME, () -> {
+            ExecutorService virtualExecutor = newVirtualThreadPerTaskExecutor();
+            if (virtualExecutor != null) {
+                return virtualExecutor;
+            }
+            return newPool(TASK_EXECUTOR_NAME, Runtime.getRuntime().availableProcessors() * 8);
+        });
+    }
+
+    /**
+     * 获取有界的平台线程池，第一次调用时创建。
+     *
+     * @param name
+     *     线程池名称。
+     * @return 线程池，等待队列已满时拒绝提交。
+     * @throws IllegalArgumentException
+     *     名称与任务执行器相同。
+     * @throws IllegalStateException
+     *     已关闭。
+     */
+    @Nonnull
+    public ExecutorService getPool(@Nonnull String name) {
+        if (TASK_EXECUTOR_NAME.equals(name)) {
+            throw new IllegalArgumentException(RBMF.format("线程池名称 {0} 已被任务执行器使用", name));
+        }
+        return getExecutor(name, () -> newPool(name, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * 获取执行器，没有时创建。
+     */
+    private ExecutorService getExecutor(String name, Supplier<ExecutorService> factory) {
+        if (closed) {
+            throw new IllegalStateException(RBMF.get("执行器已关闭"));
+        }
+        ExecutorService executor = executors.computeIfAbsent(name, key -> factory.get());
+        if (closed) {
+            // 与关闭并发时由本线程关闭
+            executor.shutdownNow();
+            throw new IllegalStateException(RBMF.get("执行器已关闭"));
+        }
+        return executor;
+    }
+
+    /**
+     * 创建有界的平台线程池。
+     */
+    private ExecutorService newPool(String name, int defaultThreads) {
+        int threads = Math.max(config.getInt(CONFIG_PREFIX + name + ".threads", defaultThreads), 1);
+        int queueCapacity = Math.max(config.getInt(CONFIG_PREFIX + name + ".queueCapacity", Integer.MAX_VALUE), 1);
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity), new NamedThreadFactory(name));
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器。
+     *
+     * @return 虚拟线程执行器，运行环境不支持时为 {@code null}。
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            // 预览版本未开启预览特性
+            LOG.debug(RBMF.get("虚拟线程不可用，使用平台线程"), e);
+            return null;
+        }
+    }
+
+    /**
+     * 获取已创建的执行器名称。
+     *
+     * @return 执行器名称。
+     */
+    @Nonnull
+    public List<String> getExecutorNames() {
+        return new ArrayList<>(executors.keySet());
+    }
+
+    /**
+     * 关闭全部执行器，等待已提交的任务完成，超过系统配置的时间后中断未完成的任务。
+     */
+    @Override
+    public void close() {
+        shutdown(config.getLong(CONFIG_PREFIX + "shutdownTimeout", 10000));
+    }
+
+    /**
+     * 关闭全部执行器，等待已提交的任务完成，超过指定的时间后中断未完成的任务。全部执行器共用一个截止时间。
+     *
+     * @param timeout
+     *     等待时间（毫秒）。
+     * @return 是否全部任务都已结束。
+     */
+    public boolean shutdown(long timeout) {
+        closed = true;
+        for (ExecutorService executor : executors.values()) {
+            executor.shutdown();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        boolean terminated = true;
+        for (Map.Entry<String, ExecutorService> entry : executors.entrySet()) {
+            ExecutorService executor = entry.getValue();
+            try {
+                if (!executor.awaitTermination(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+                    List<Runnable> pending = executor.shutdownNow();
+                    LOG.warn(RBMF.get("执行器 {} 未在截止时间前结束，中断正在执行的任务并丢弃 {} 个等待的任务"), entry.getKey(), pending.size());
+                    terminated = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                terminated = false;
+            }
+        }
+        return terminated;
+    }
+
+    /**
+     * 带名称的守护线程工厂。
+     */
+    private static final class NamedThreadFactory
+        implements ThreadFactory {
+        /**
+         * 线程名前缀。
+         */
+        private final String prefix;
+
+        /**
+         * 线程序号。
+         */
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        /**
+         * 构造器。
+         */
+        NamedThreadFactory(String name) {
+            this.prefix = "system-" + name + '-';
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
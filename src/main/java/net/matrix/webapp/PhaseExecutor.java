@@ -0,0 +1,189 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import net.matrix.java.lang.UncheckedException;
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 分阶段执行器。每个阶段声明所依赖的阶段，依赖全部成功后才执行，互不依赖的阶段可以并发执行。<br>
+ * 失败模型：{@link #execute(Executor, BiConsumer)} 中一个阶段失败后，直接或间接依赖它的阶段不再执行，其它阶段照常执行完毕；
+ * 全部结束后按声明顺序抛出第一个失败，其余失败作为被抑制的异常附加在其上。
+ * {@link #executeSequentially(BiConsumer)} 按声明顺序执行，第一个失败立即抛出，之后的阶段都不再执行。
+ */
+@NotThreadSafe
+public class PhaseExecutor {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(PhaseExecutor.class).useCurrentLocale();
+
+    /**
+     * 按声明顺序排列的阶段。
+     */
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    /**
+     * 声明阶段。依赖的阶段必须先声明，因此按声明顺序依次执行总能满足依赖。
+     *
+     * @param name
+     *     阶段名。
+     * @param action
+     *     阶段动作。
+     * @param dependencies
+     *     依赖的阶段名。
+     * @return 本对象。
+     * @throws IllegalArgumentException
+     *     阶段名重复或依赖的阶段未声明。
+     */
+    @Nonnull
+    public PhaseExecutor addPhase(@Nonnull String name, @Nonnull Runnable action, @Nonnull String... dependencies) {
+        if (phases.containsKey(name)) {
+            throw new IllegalArgumentException(RBMF.format("阶段 {0} 重复声明", name));
+        }
+        for (String dependency : dependencies) {
+            if (!phases.containsKey(dependency)) {
+                throw new IllegalArgumentException(RBMF.format("阶段 {0} 依赖的阶段 {1} 未声明", name, dependency));
+            }
+        }
+        phases.put(name, new Phase(name, action, dependencies));
+        return this;
+    }
+
+    /**
+     * 获取按声明顺序排列的阶段名。
+     *
+     * @return 阶段名。
+     */
+    @Nonnull
+    public List<String> getPhaseNames() {
+        return List.copyOf(phases.keySet());
+    }
+
+    /**
+     * 执行全部阶段，等待全部结束后返回。
+     *
+     * @param executor
+     *     执行阶段动作的执行器，使用调用线程直接执行时按声明顺序依次执行。
+     */
+    public void execute(@Nonnull Executor executor) {
+        execute(executor, (name, action) -> action.run());
+    }
+
+    /**
+     * 执行全部阶段，等待全部结束后返回。
+     *
+     * @param executor
+     *     执行阶段动作的执行器，使用调用线程直接执行时按声明顺序依次执行。
+     * @param interceptor
+     *     阶段动作的拦截器，参数是阶段名和阶段动作，负责调用阶段动作。
+     */
+    public void execute(@Nonnull Executor executor, @Nonnull BiConsumer<String, Runnable> interceptor) {
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        for (Phase phase : phases.values()) {
+            CompletableFuture<?>[] dependencyFutures = new CompletableFuture<?>[phase.dependencies.length];
+            for (int index = 0; index < dependencyFutures.length; index++) {
+                dependencyFutures[index] = futures.get(phase.dependencies[index]);
+            }
+            futures.put(phase.name, CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> phase.run(interceptor), executor));
+        }
+        // 等待全部阶段结束，失败在下面按声明顺序处理
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+
+        List<Throwable> failures = new ArrayList<>();
+        for (Phase phase : phases.values()) {
+            if (phase.failure != null) {
+                failures.add(phase.failure);
+            }
+        }
+        if (failures.isEmpty()) {
+            return;
+        }
+
+        Throwable failure = failures.get(0);
+        for (Throwable otherFailure : failures.subList(1, failures.size())) {
+            failure.addSuppressed(otherFailure);
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        throw new UncheckedException(failure);
+    }
+
+    /**
+     * 在调用线程中按声明顺序执行全部阶段，一个阶段失败后之后的阶段都不再执行。
+     *
+     * @param interceptor
+     *     阶段动作的拦截器，参数是阶段名和阶段动作，负责调用阶段动作。
+     */
+    public void executeSequentially(@Nonnull BiConsumer<String, Runnable> interceptor) {
+        for (Phase phase : phases.values()) {
+            phase.run(interceptor);
+        }
+    }
+
+    /**
+     * 阶段。
+     */
+    private static final class Phase {
+        /**
+         * 阶段名。
+         */
+        final String name;
+
+        /**
+         * 阶段动作。
+         */
+        final Runnable action;
+
+        /**
+         * 依赖的阶段名。
+         */
+        final String[] dependencies;
+
+        /**
+         * 阶段动作的失败。
+         */
+        volatile Throwable failure;
+
+        /**
+         * 构造器。
+         */
+        Phase(String name, Runnable action, String[] dependencies) {
+            this.name = name;
+            this.action = action;
+            this.dependencies = dependencies.clone();
+        }
+
+        /**
+         * 执行阶段动作并记录失败。
+         *
+         * @param interceptor
+         *     阶段动作的拦截器。
+         */
+        void run(BiConsumer<String, Runnable> interceptor) {
+            try {
+                interceptor.accept(name, action);
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.springframework.core.io.Resource;
+
+import net.matrix.java.lang.UncheckedException;
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 共享的资源内容缓冲区。文件系统中的资源只读地映射到内存，其它资源（例如未解压的 WAR 中的条目）只读取一次后缓存在堆中。
+ * 所有调用方共享同一份内容，各自得到独立位置的只读视图，读取时不再复制。<br>
+ * 每次获取时检查文件的大小和修改时间，变化后重新加载；映射期间截断文件仍可能导致已取得的视图读取失败。
+ * 缓存的内容总量有上限，超过上限的资源每次获取时重新加载。映射的文件在缓冲区被回收前保持打开，
+ * Windows 上打开的文件不能删除或替换，因此 Windows 上文件也读取到堆中。关闭后释放缓存的内容。
+ */
+@ThreadSafe
+public class SharedResourceBuffers
+    implements Closeable {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(SharedResourceBuffers.class).useCurrentLocale();
+
+    /**
+     * 默认的缓存内容总量上限（字节）。
+     */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * 是否映射文件。
+     */
+    private static final boolean MAP_FILES = !SystemUtils.IS_OS_WINDOWS;
+
+    /**
+     * 缓存内容总量上限（字节）。
+     */
+    private final long maxSize;
+
+    /**
+     * 已缓存的内容总量（字节）。
+     */
+    private final AtomicLong cachedSize = new AtomicLong();
+
+    /**
+     * 共享的缓冲区，加载在映射外进行。
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 是否已关闭。
+     */
+    private volatile boolean closed;
+
+    /**
+     * 构造器，缓存内容总量上限为 {@value #DEFAULT_MAX_SIZE} 字节。
+     */
+    public SharedResourceBuffers() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * 构造器。
+     *
+     * @param maxSize
+     *     缓存内容总量上限（字节）。
+     */
+    public SharedResourceBuffers(long maxSize) {
+        this.maxSize = Math.max(maxSize, 0);
+    }
+
+    /**
+     * 获取资源内容的只读视图。
+     *
+     * @param resource
+     *     资源。
+     * @return 只读视图，位置为 0。
+     * @throws IOException
+     *     读取资源失败。
+     * @throws IllegalStateException
+     *     已关闭。
+     */
+    @Nonnull
+    public ByteBuffer getBuffer(@Nonnull Resource resource)
+        throws IOException {
+        if (closed) {
+            throw new IllegalStateException(RBMF.get("共享的资源内容已关闭"));
+        }
+        String key = getKey(resource);
+        if (key == null) {
+            return load(resource).buffer;
+        }
+
+        while (true) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                Entry newEntry = new Entry(resource);
+                entry = entries.putIfAbsent(key, newEntry);
+                if (entry == null) {
+                    entry = newEntry;
+                    // 在映射外加载，其它线程等待同一个结果
+                    newEntry.task.run();
+                    newEntry.reserve(key);
+                }
+            }
+
+            Content content;
+            try {
+                content = entry.task.get();
+            } catch (ExecutionException e) {
+                entries.remove(key, entry);
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new UncheckedException(cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(RBMF.format("等待资源 {0} 加载被中断", key));
+            }
+            if (content.isValid()) {
+                return content.buffer.duplicate();
+            }
+            // 文件已修改，重新加载
+            remove(key, entry);
+        }
+    }
+
+    /**
+     * 释放缓冲区，已经取得的视图仍然可用。
+     */
+    public void clear() {
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            remove(mapEntry.getKey(), mapEntry.getValue());
+        }
+    }
+
+    /**
+     * 释放缓冲区并停止缓存。已经取得的视图仍然可用，映射在视图被回收后解除。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        clear();
+    }
+
+    /**
+     * 移除缓存条目并扣除缓存的内容总量。
+     */
+    private void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            cachedSize.addAndGet(-entry.release());
+        }
+    }
+
+    /**
+     * 获取资源的缓存键，资源没有 URI 时为 {@code null}，不缓存。
+     */
+    private static String getKey(Resource resource)
+        throws IOException {
+        if (resource.isFile()) {
+            return resource.getFile().getAbsolutePath();
+        }
+        try {
+            return resource.getURI().toString();
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取资源内容。
+     */
+    private static Content load(Resource resource)
+        throws IOException {
+        if (resource.isFile()) {
+            File file = resource.getFile();
+            // 先记录大小和修改时间，读取期间的修改在下次获取时发现
+            long length = file.length();
+            long lastModified = file.lastModified();
+            ByteBuffer buffer;
+            if (MAP_FILES) {
+                buffer = map(file.toPath());
+            } else {
+                buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).asReadOnlyBuffer();
+            }
+            return new Content(buffer, file, length, lastModified);
+        }
+        try (InputStream input = resource.getInputStream()) {
+            return new Content(ByteBuffer.wrap(input.readAllBytes()).asReadOnlyBuffer(), null, 0, 0);
+        }
+    }
+
+    /**
+     * 只读映射文件。
+     */
+    private static ByteBuffer map(Path file)
+        throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(RBMF.format("文件 {0} 超过可映射的大小", file));
+            }
+            // 关闭通道后映射仍然有效
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * 缓存条目。
+     */
+    private final class Entry {
+        /**
+         * 加载任务。
+         */
+        final FutureTask<Content> task;
+
+        /**
+         * 计入缓存内容总量的大小。
+         */
+        private final AtomicLong reservedSize = new AtomicLong();
+
+        /**
+         * 构造器。
+         */
+        Entry(Resource resource) {
+            this.task = new FutureTask<>(() -> load(resource));
+        }
+
+        /**
+         * 加载成功后计入缓存的内容总量，超过上限时移除条目，之后的获取重新加载。
+         *
+         * @param key
+         *     缓存键。
+         */
+        void reserve(String key) {
+            Content content;
+            try {
+                content = task.get();
+            } catch (ExecutionException | InterruptedException e) {
+                // 由获取方处理
+                return;
+            }
+            long size = content.buffer.capacity();
+            if (cachedSize.addAndGet(size) > maxSize) {
+                cachedSize.addAndGet(-size);
+                entries.remove(key, this);
+                return;
+            }
+            reservedSize.set(size);
+            if (closed) {
+                remove(key, this);
+            } else if (entries.get(key) != this) {
+                // 加载期间已被清除
+                cachedSize.addAndGet(-release());
+            }
+        }
+
+        /**
+         * 取出计入缓存内容总量的大小，只取出一次。
+         *
+         * @return 大小。
+         */
+        long release() {
+            return reservedSize.getAndSet(0);
+        }
+    }
+
+    /**
+     * 加载的资源内容。
+     */
+    private static final class Content {
+        /**
+         * 只读的内容。
+         */
+        final ByteBuffer buffer;
+
+        /**
+         * 对应的文件，不对应文件时为 {@code null}。
+         */
+        final File file;
+
+        /**
+         * 加载时文件的大小。
+         */
+        final long length;
+
+        /**
+         * 加载时文件的修改时间。
+         */
+        final long lastModified;
+
+        /**
+         * 构造器。
+         */
+        Content(ByteBuffer buffer, File file, long length, long lastModified) {
+            this.buffer = buffer;
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * 判断内容是否仍与文件一致。
+         *
+         * @return 是否一致。
+         */
+        boolean isValid() {
+            return file == null || file.length() == length && file.lastModified() == lastModified;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import net.matrix.app.SystemController;
+
+/**
+ * 系统组件，作为 {@link CompositeSystemController} 的成员声明名称和依赖的组件。
+ * 可以通过 {@link java.util.ServiceLoader} 发现，实现类需要有公开的无参构造器。
+ */
+public interface SystemComponent
+    extends SystemController {
+    /**
+     * 获取组件名。
+     *
+     * @return 组件名，默认为类名。
+     */
+    @Nonnull
+    default String getName() {
+        return getClass().getName();
+    }
+
+    /**
+     * 获取依赖的组件名。依赖的组件先初始化、先启动、后停止。
+     *
+     * @return 依赖的组件名。
+     */
+    @Nonnull
+    default List<String> getDependencies() {
+        return List.of();
+    }
+}
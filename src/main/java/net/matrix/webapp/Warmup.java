@@ -0,0 +1,196 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.lang3.ClassUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.matrix.java.lang.reflect.ReflectionMx;
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 系统预热。注册在系统环境中，控制器初始化时可以用 {@link #addTask(String, WarmupTask)} 添加预热任务，
+ * 控制器启动后由 {@link net.matrix.webapp.servlet.SystemInitializeListener} 在时间预算内并行执行。系统配置：
+ * <ul>
+ * <li>{@code system.warmup.timeout}：时间预算（毫秒），默认 30000，超过后中断未完成的任务</li>
+ * <li>{@code system.warmup.iterations}：每个任务的执行次数，默认 1</li>
+ * <li>{@code system.warmup.config}：是否读取全部系统配置项，默认否</li>
+ * <li>{@code system.warmup.resources}：需要解析的资源位置</li>
+ * <li>{@code system.warmup.tasks}：{@link WarmupTask} 实现类名，使用无参构造器创建</li>
+ * </ul>
+ * 预热任务类无法实例化、任务无法提交或执行失败都只记录日志，不影响启动。
+ * 没有添加预热任务、系统配置中也没有 {@value #CONFIG_PREFIX} 开头的配置项时跳过预热，不为此读取系统配置。
+ */
+@ThreadSafe
+public class Warmup {
+    /**
+     * 日志记录器。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(Warmup.class);
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(Warmup.class).useCurrentLocale();
+
+    /**
+     * 配置键前缀。
+     */
+    public static final String CONFIG_PREFIX = "system.warmup.";
+
+    /**
+     * 预热任务。
+     */
+    private final Map<String, WarmupTask> tasks = new LinkedHashMap<>();
+
+    /**
+     * 添加预热任务，同名任务被替换。
+     *
+     * @param name
+     *     任务名。
+     * @param task
+     *     预热任务。
+     */
+    public synchronized void addTask(@Nonnull String name, @Nonnull WarmupTask task) {
+        tasks.put(name, task);
+    }
+
+    /**
+     * 获取预热任务名。
+     *
+     * @return 任务名。
+     */
+    @Nonnull
+    public synchronized List<String> getTaskNames() {
+        return new ArrayList<>(tasks.keySet());
+    }
+
+    /**
+     * 添加系统配置中声明的预热任务，无法实例化的任务类记录日志后跳过。
+     *
+     * @param config
+     *     系统配置。
+     */
+    public void addConfiguredTasks(@Nonnull Configuration config) {
+        if (config.getBoolean(CONFIG_PREFIX + "config", false)) {
+            addTask("config", Warmup::readConfig);
+        }
+        List<String> resources = config.getList(String.class, CONFIG_PREFIX + "resources", List.of());
+        if (!resources.isEmpty()) {
+            addTask("resources", context -> resolveResources(context, resources));
+        }
+        for (String taskClassName : config.getList(String.class, CONFIG_PREFIX + "tasks", List.of())) {
+            try {
+                Class<?> taskClass = ClassUtils.getClass(taskClassName);
+                Constructor<?> taskConstructor = taskClass.getDeclaredConstructor();
+                ReflectionMx.makeAccessible(taskConstructor);
+                addTask(taskClassName, (WarmupTask) taskConstructor.newInstance());
+            } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+                LOG.warn(RBMF.get("预热任务类 {} 实例化失败，跳过"), taskClassName, e);
+            }
+        }
+    }
+
+    /**
+     * 读取全部系统配置项，使按需加载的配置完成加载。
+     */
+    private static void readConfig(WebSystemContext context) {
+        Configuration config = context.getConfig();
+        for (Iterator<String> keys = config.getKeys(); keys.hasNext();) {
+            config.getProperty(keys.next());
+        }
+    }
+
+    /**
+     * 解析资源位置，使资源路径解析缓存就绪。
+     */
+    private static void resolveResources(WebSystemContext context, List<String> resources) {
+        for (String resource : resources) {
+            context.getResourceLoader().getResource(resource).exists();
+        }
+    }
+
+    /**
+     * 在时间预算内并行执行全部预热任务。
+     *
+     * @param context
+     *     系统环境。
+     * @param executor
+     *     执行预热任务的执行器。
+     * @return 是否全部任务都在时间预算内完成。
+     */
+    public boolean run(@Nonnull WebSystemContext context, @Nonnull ExecutorService executor) {
+        Configuration config = context.getConfig();
+        long timeout = config.getLong(CONFIG_PREFIX + "timeout", 30000);
+        int iterations = Math.max(config.getInt(CONFIG_PREFIX + "iterations", 1), 1);
+        Map<String, WarmupTask> currentTasks;
+        synchronized (this) {
+            currentTasks = new LinkedHashMap<>(tasks);
+        }
+        if (currentTasks.isEmpty()) {
+            return true;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        boolean completed = true;
+        for (Map.Entry<String, WarmupTask> entry : currentTasks.entrySet()) {
+            WarmupTask task = entry.getValue();
+            try {
+                futures.put(entry.getKey(), executor.submit(() -> {
+                    for (int iteration = 0; iteration < iterations && !Thread.currentThread().isInterrupted(); iteration++) {
+                        task.warmup(context);
+                    }
+                    return null;
+                }));
+            } catch (RejectedExecutionException e) {
+                LOG.warn(RBMF.get("预热任务 {} 提交失败"), entry.getKey(), e);
+                completed = false;
+            }
+        }
+
+        for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+            Future<?> future = entry.getValue();
+            try {
+                future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                LOG.warn(RBMF.get("预热任务 {} 未在 {} 毫秒内完成"), entry.getKey(), timeout);
+                completed = false;
+            } catch (ExecutionException e) {
+                LOG.warn(RBMF.get("预热任务 {} 失败"), entry.getKey(), e.getCause());
+                completed = false;
+            } catch (CancellationException e) {
+                completed = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<?> otherFuture : futures.values()) {
+                    otherFuture.cancel(true);
+                }
+                return false;
+            }
+        }
+        return completed;
+    }
+}
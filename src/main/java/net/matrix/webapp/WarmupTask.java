@@ -0,0 +1,24 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 预热任务，在系统开始接受请求前执行，使缓存和即时编译提前就绪。
+ */
+@FunctionalInterface
+public interface WarmupTask {
+    /**
+     * 执行一次预热。可能被多次调用，也可能因超过时间预算被中断。
+     *
+     * @param context
+     *     系统环境。
+     * @throws Exception
+     *     预热失败，只记录日志。
+     */
+    void warmup(@Nonnull WebSystemContext context)
+        throws Exception;
+}
@@ -4,9 +4,18 @@
  */
 package net.matrix.webapp;
 
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+
 import jakarta.servlet.ServletContext;
 
 import net.matrix.app.SystemContext;
+import net.matrix.webapp.config.AbstractSetting;
+import net.matrix.webapp.config.BooleanSetting;
+import net.matrix.webapp.config.DurationSetting;
+import net.matrix.webapp.config.IntSetting;
+import net.matrix.webapp.config.LongSetting;
 
 /**
  * 基于 Web 的系统环境。
@@ -17,4 +26,60 @@ public interface WebSystemContext
      * Return the standard Servlet API ServletContext for this application.
      */
     ServletContext getServletContext();
+
+    /**
+     * 创建 int 类型的系统配置项，应创建一次后重复使用，不再使用时调用 {@link AbstractSetting#close()}。
+     *
+     * @param key
+     *     配置键。
+     * @param defaultValue
+     *     默认值。
+     * @return 配置项。
+     */
+    @Nonnull
+    default IntSetting createIntSetting(@Nonnull String key, int defaultValue) {
+        return new IntSetting(getConfig(), key, defaultValue);
+    }
+
+    /**
+     * 创建 long 类型的系统配置项，应创建一次后重复使用，不再使用时调用 {@link AbstractSetting#close()}。
+     *
+     * @param key
+     *     配置键。
+     * @param defaultValue
+     *     默认值。
+     * @return 配置项。
+     */
+    @Nonnull
+    default LongSetting createLongSetting(@Nonnull String key, long defaultValue) {
+        return new LongSetting(getConfig(), key, defaultValue);
+    }
+
+    /**
+     * 创建 boolean 类型的系统配置项，应创建一次后重复使用，不再使用时调用 {@link AbstractSetting#close()}。
+     *
+     * @param key
+     *     配置键。
+     * @param defaultValue
+     *     默认值。
+     * @return 配置项。
+     */
+    @Nonnull
+    default BooleanSetting createBooleanSetting(@Nonnull String key, boolean defaultValue) {
+        return new BooleanSetting(getConfig(), key, defaultValue);
+    }
+
+    /**
+     * 创建 Duration 类型的系统配置项，应创建一次后重复使用，不再使用时调用 {@link AbstractSetting#close()}。
+     *
+     * @param key
+     *     配置键。
+     * @param defaultValue
+     *     默认值。
+     * @return 配置项。
+     */
+    @Nonnull
+    default DurationSetting createDurationSetting(@Nonnull String key, @Nonnull Duration defaultValue) {
+        return new DurationSetting(getConfig(), key, defaultValue);
+    }
 }
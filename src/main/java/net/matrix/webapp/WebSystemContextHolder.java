@@ -0,0 +1,112 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 绑定到当前线程的系统环境，由 {@link net.matrix.webapp.servlet.WebSystemContextFilter} 在处理请求期间绑定，
+ * 使没有 {@link jakarta.servlet.ServletContext} 的代码也能直接取得系统环境。
+ * 绑定只对处理请求的线程有效，交给其它线程执行的任务可以用 {@link #wrap(Runnable)} 传递绑定。
+ */
+@ThreadSafe
+public final class WebSystemContextHolder {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(WebSystemContextHolder.class).useCurrentLocale();
+
+    /**
+     * 当前线程的系统环境。
+     */
+    private static final ThreadLocal<WebSystemContext> CURRENT_CONTEXT = new ThreadLocal<>();
+
+    /**
+     * 阻止实例化。
+     */
+    private WebSystemContextHolder() {
+    }
+
+    /**
+     * 获取绑定到当前线程的系统环境。
+     *
+     * @return 系统环境，没有绑定时为 {@code null}。
+     */
+    @Nullable
+    public static WebSystemContext getContext() {
+        return CURRENT_CONTEXT.get();
+    }
+
+    /**
+     * 获取绑定到当前线程的系统环境。
+     *
+     * @return 系统环境。
+     * @throws IllegalStateException
+     *     没有绑定系统环境。
+     */
+    @Nonnull
+    public static WebSystemContext getRequiredContext() {
+        WebSystemContext context = CURRENT_CONTEXT.get();
+        if (context == null) {
+            throw new IllegalStateException(RBMF.get("当前线程没有绑定 WebSystemContext"));
+        }
+        return context;
+    }
+
+    /**
+     * 把系统环境绑定到当前线程。
+     *
+     * @param context
+     *     系统环境，{@code null} 表示解除绑定。
+     * @return 原来绑定的系统环境，用于 {@link #restore(WebSystemContext)}。
+     */
+    @Nullable
+    public static WebSystemContext bind(@Nullable WebSystemContext context) {
+        WebSystemContext previous = CURRENT_CONTEXT.get();
+        if (context == null) {
+            CURRENT_CONTEXT.remove();
+        } else {
+            CURRENT_CONTEXT.set(context);
+        }
+        return previous;
+    }
+
+    /**
+     * 恢复原来绑定的系统环境。
+     *
+     * @param previous
+     *     {@link #bind(WebSystemContext)} 返回的系统环境。
+     */
+    public static void restore(@Nullable WebSystemContext previous) {
+        bind(previous);
+    }
+
+    /**
+     * 包装任务，在执行任务的线程中绑定当前线程的系统环境。
+     *
+     * @param task
+     *     任务。
+     * @return 包装后的任务，当前线程没有绑定时为原任务。
+     */
+    @Nonnull
+    public static Runnable wrap(@Nonnull Runnable task) {
+        WebSystemContext context = CURRENT_CONTEXT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            WebSystemContext previous = bind(context);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+}
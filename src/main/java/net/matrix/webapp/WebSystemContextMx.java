@@ -4,6 +4,12 @@
  */
 package net.matrix.webapp;
 
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -13,6 +19,7 @@ import jakarta.servlet.ServletContext;
 import net.matrix.java.lang.UncheckedException;
 import net.matrix.java.util.EnumerationIterable;
 import net.matrix.text.ResourceBundleMessageFormatter;
+import net.matrix.webapp.monitor.SystemMetrics;
 
 /**
  * 基于 Web 的系统环境工具。
@@ -29,6 +36,46 @@ public final class WebSystemContextMx {
      */
     private static final String ROOT_WEB_SYSTEM_CONTEXT_ATTRIBUTE = WebSystemContext.class.getName() + ".ROOT";
 
+    /**
+     * 按 Servlet 上下文缓存的根系统环境，同一 JVM 中的多个 Web 应用互不影响。每个 Web 应用最多一项，读取时不需要锁定。
+     */
+    private static final List<CachedWebSystemContext> CACHED_CONTEXTS = new CopyOnWriteArrayList<>();
+
+    /**
+     * 缓存失效的次数。填充缓存期间有缓存失效时撤销本次填充，以免缓存已被替换的系统环境。
+     */
+    private static final AtomicLong CACHE_GENERATION = new AtomicLong();
+
+    /**
+     * 最近一次使用的缓存。
+     */
+    private static final AtomicReference<CachedWebSystemContext> LAST_CACHED_CONTEXT = new AtomicReference<>();
+
+    /**
+     * 运行指标。
+     */
+    private static final SystemMetrics METRICS = SystemMetrics.getInstance();
+
+    /**
+     * 缓存命中次数。
+     */
+    private static final SystemMetrics.Counter CACHE_HIT_COUNTER = METRICS.getCounter("webSystemContextMx.cacheHit");
+
+    /**
+     * 缓存未命中次数。
+     */
+    private static final SystemMetrics.Counter CACHE_MISS_COUNTER = METRICS.getCounter("webSystemContextMx.cacheMiss");
+
+    /**
+     * 按属性名获取系统环境的耗时。
+     */
+    private static final SystemMetrics.Timer GET_TIMER = METRICS.getTimer("webSystemContextMx.getWebSystemContext");
+
+    /**
+     * 查找唯一系统环境的耗时。
+     */
+    private static final SystemMetrics.Timer FIND_TIMER = METRICS.getTimer("webSystemContextMx.findWebSystemContext");
+
     /**
      * 阻止实例化。
      */
@@ -59,6 +106,35 @@ public final class WebSystemContextMx {
      */
     public static void setWebSystemContext(@Nonnull ServletContext servletContext, @Nonnull String attributeName, @Nullable WebSystemContext context) {
         servletContext.setAttribute(attributeName, context);
+        if (ROOT_WEB_SYSTEM_CONTEXT_ATTRIBUTE.equals(attributeName)) {
+            invalidateCachedWebSystemContext(servletContext);
+        }
+        if (context != null) {
+            WebSystemContextRegistry.getOrCreateRegistry(servletContext).update(attributeName, context);
+        } else {
+            WebSystemContextRegistry registry = WebSystemContextRegistry.getRegistry(servletContext);
+            if (registry != null) {
+                registry.update(attributeName, null);
+            }
+        }
+    }
+
+    /**
+     * Invalidate the cached root {@link WebSystemContext} for this web app, the next cached lookup reads the attribute again.<br>
+     * Called by {@link #setWebSystemContext(ServletContext, WebSystemContext)} and by
+     * {@link net.matrix.webapp.servlet.WebSystemContextAttributeListener} for attributes changed directly.
+     *
+     * @param servletContext
+     *     ServletContext to invalidate the cached web application context for.
+     */
+    public static void invalidateCachedWebSystemContext(@Nonnull ServletContext servletContext) {
+        // 先增加次数，再清除缓存，同时进行的填充总能发现缓存失效
+        CACHE_GENERATION.incrementAndGet();
+        CACHED_CONTEXTS.removeIf(cached -> cached.belongsTo(servletContext) || cached.isCleared());
+        CachedWebSystemContext last = LAST_CACHED_CONTEXT.get();
+        if (last != null && last.belongsTo(servletContext)) {
+            LAST_CACHED_CONTEXT.compareAndSet(last, null);
+        }
     }
 
     /**
@@ -81,6 +157,96 @@ public final class WebSystemContextMx {
         return context;
     }
 
+    /**
+     * Find the root {@link WebSystemContext} for this web app, using the cached lookup.
+     *
+     * @param servletContext
+     *     ServletContext to find the web application context for.
+     * @return the root WebSystemContext for this web app.
+     * @throws IllegalStateException
+     *     if the root WebSystemContext could not be found.
+     * @see #getCachedWebSystemContext(ServletContext)
+     */
+    @Nonnull
+    public static WebSystemContext getRequiredCachedWebSystemContext(@Nonnull ServletContext servletContext) {
+        WebSystemContext context = getCachedWebSystemContext(servletContext);
+        if (context == null) {
+            throw new IllegalStateException(RBMF.get("No WebSystemContext found"));
+        }
+        return context;
+    }
+
+    /**
+     * Find the root {@link WebSystemContext} for this web app, using the cached lookup.<br>
+     * The resolved context is cached per ServletContext until the next call of {@link #setWebSystemContext(ServletContext, WebSystemContext)}
+     * for the same ServletContext. A hit on the most recently used ServletContext costs a single volatile read,
+     * other hits scan a small copy-on-write list, no lookup takes a lock. Changes made directly through
+     * {@link ServletContext#setAttribute(String, Object)} are seen only if
+     * {@link net.matrix.webapp.servlet.WebSystemContextAttributeListener} is registered.
+     *
+     * @param servletContext
+     *     ServletContext to find the web application context for.
+     * @return the root WebSystemContext for this web app, or {@code null} if none.
+     * @see #getWebSystemContext(ServletContext)
+     */
+    @Nullable
+    public static WebSystemContext getCachedWebSystemContext(@Nonnull ServletContext servletContext) {
+        CachedWebSystemContext last = LAST_CACHED_CONTEXT.get();
+        if (last != null) {
+            WebSystemContext context = last.get(servletContext);
+            if (context != null) {
+                if (METRICS.isEnabled()) {
+                    CACHE_HIT_COUNTER.increment();
+                }
+                return context;
+            }
+        }
+
+        long generation = CACHE_GENERATION.get();
+        for (CachedWebSystemContext cached : CACHED_CONTEXTS) {
+            WebSystemContext context = cached.get(servletContext);
+            if (context != null) {
+                if (METRICS.isEnabled()) {
+                    CACHE_HIT_COUNTER.increment();
+                }
+                publishCachedContext(cached, generation, false);
+                return context;
+            }
+        }
+
+        if (METRICS.isEnabled()) {
+            CACHE_MISS_COUNTER.increment();
+        }
+        WebSystemContext context = getWebSystemContext(servletContext);
+        if (context != null) {
+            CachedWebSystemContext cached = new CachedWebSystemContext(servletContext, context);
+            CACHED_CONTEXTS.removeIf(other -> other.belongsTo(servletContext) || other.isCleared());
+            CACHED_CONTEXTS.add(cached);
+            publishCachedContext(cached, generation, true);
+        }
+        return context;
+    }
+
+    /**
+     * 把缓存设为最近一次使用的缓存。读取缓存或属性之后有缓存失效时撤销，读到的可能是已被替换的系统环境。
+     *
+     * @param cached
+     *     缓存。
+     * @param generation
+     *     读取缓存或属性之前的缓存失效次数。
+     * @param added
+     *     缓存是否是本次填充的。
+     */
+    private static void publishCachedContext(CachedWebSystemContext cached, long generation, boolean added) {
+        LAST_CACHED_CONTEXT.set(cached);
+        if (CACHE_GENERATION.get() != generation) {
+            LAST_CACHED_CONTEXT.compareAndSet(cached, null);
+            if (added) {
+                CACHED_CONTEXTS.remove(cached);
+            }
+        }
+    }
+
     /**
      * Find the root {@link WebSystemContext} for this web app.<br>
      * Will rethrow an exception that happened on root context startup,
@@ -106,6 +272,29 @@ public final class WebSystemContextMx {
      */
     @Nullable
     public static WebSystemContext getWebSystemContext(@Nonnull ServletContext servletContext, @Nonnull String attributeName) {
+        if (!METRICS.isEnabled()) {
+            return lookupWebSystemContext(servletContext, attributeName);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return lookupWebSystemContext(servletContext, attributeName);
+        } finally {
+            GET_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 从属性中获取系统环境。
+     *
+     * @param servletContext
+     *     Servlet 上下文。
+     * @param attributeName
+     *     属性名。
+     * @return 系统环境，没有时为 {@code null}。
+     */
+    @Nullable
+    private static WebSystemContext lookupWebSystemContext(ServletContext servletContext, String attributeName) {
         Object attribute = servletContext.getAttribute(attributeName);
         if (attribute == null) {
             return null;
@@ -128,7 +317,10 @@ public final class WebSystemContextMx {
     /**
      * Find a unique {@link WebSystemContext} for this web app: either the
      * root web app context (preferred) or a unique {@link WebSystemContext}
-     * among the registered {@link ServletContext} attributes.
+     * among the registered {@link ServletContext} attributes.<br>
+     * Only the attributes indexed by {@link WebSystemContextRegistry} are checked if the index is complete,
+     * that is {@link net.matrix.webapp.servlet.WebSystemContextAttributeListener} is registered,
+     * otherwise all attributes are scanned.
      *
      * @param servletContext
      *     ServletContext to find the web application context for.
@@ -138,20 +330,106 @@ public final class WebSystemContextMx {
      */
     @Nullable
     public static WebSystemContext findWebSystemContext(@Nonnull ServletContext servletContext) {
-        WebSystemContext context = getWebSystemContext(servletContext);
-        if (context == null) {
-            for (String attributeName : new EnumerationIterable<>(servletContext.getAttributeNames())) {
-                Object attribute = servletContext.getAttribute(attributeName);
-                if (!(attribute instanceof WebSystemContext)) {
-                    continue;
-                }
+        if (!METRICS.isEnabled()) {
+            return searchWebSystemContext(servletContext);
+        }
 
-                if (context != null) {
-                    throw new IllegalStateException(RBMF.get("Nonunique WebSystemContext found"));
-                }
-                context = (WebSystemContext) attribute;
+        long start = System.nanoTime();
+        try {
+            return searchWebSystemContext(servletContext);
+        } finally {
+            FIND_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 查找唯一的系统环境。
+     *
+     * @param servletContext
+     *     Servlet 上下文。
+     * @return 系统环境，没有时为 {@code null}。
+     */
+    @Nullable
+    private static WebSystemContext searchWebSystemContext(ServletContext servletContext) {
+        WebSystemContext context = lookupWebSystemContext(servletContext, ROOT_WEB_SYSTEM_CONTEXT_ATTRIBUTE);
+        if (context != null) {
+            return context;
+        }
+
+        // 索引不完整时可能缺少直接设置的属性，以扫描全部属性的结果为准
+        WebSystemContextRegistry registry = WebSystemContextRegistry.getRegistry(servletContext);
+        if (registry != null && registry.isComplete()) {
+            return registry.findUnique(servletContext);
+        }
+
+        for (String attributeName : new EnumerationIterable<>(servletContext.getAttributeNames())) {
+            Object attribute = servletContext.getAttribute(attributeName);
+            if (!(attribute instanceof WebSystemContext)) {
+                continue;
+            }
+
+            if (context != null) {
+                throw new IllegalStateException(RBMF.get("Nonunique WebSystemContext found"));
             }
+            context = (WebSystemContext) attribute;
         }
         return context;
     }
+
+    /**
+     * 缓存的根系统环境，弱引用持有以免阻止 Web 应用卸载后的回收。
+     */
+    private static final class CachedWebSystemContext {
+        /**
+         * Servlet 上下文。
+         */
+        private final WeakReference<ServletContext> servletContext;
+
+        /**
+         * 系统环境。
+         */
+        private final WeakReference<WebSystemContext> context;
+
+        /**
+         * 构造器。
+         */
+        CachedWebSystemContext(ServletContext servletContext, WebSystemContext context) {
+            this.servletContext = new WeakReference<>(servletContext);
+            this.context = new WeakReference<>(context);
+        }
+
+        /**
+         * 获取指定 Servlet 上下文缓存的系统环境。
+         *
+         * @param servletContext
+         *     Servlet 上下文。
+         * @return 缓存的系统环境，未命中时为 {@code null}。
+         */
+        WebSystemContext get(ServletContext servletContext) {
+            if (!belongsTo(servletContext)) {
+                return null;
+            }
+            return context.get();
+        }
+
+        /**
+         * 判断是否是指定 Servlet 上下文的缓存。
+         *
+         * @param servletContext
+         *     Servlet 上下文。
+         * @return 是否是该 Servlet 上下文的缓存。
+         */
+        boolean belongsTo(ServletContext servletContext) {
+            return this.servletContext.get() == servletContext;
+        }
+
+        /**
+         * 判断 Servlet 上下文或系统环境是否已被回收。
+         *
+         * @return 是否已被回收。
+         */
+        boolean isCleared() {
+            return servletContext.get() == null || context.get() == null;
+        }
+    }
 }
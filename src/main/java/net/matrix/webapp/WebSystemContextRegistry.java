@@ -0,0 +1,169 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import jakarta.servlet.ServletContext;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 基于 Web 的系统环境索引，记录 {@link ServletContext} 中保存 {@link WebSystemContext} 的属性名。
+ * 索引由 {@link WebSystemContextMx#setWebSystemContext(ServletContext, String, WebSystemContext)} 维护，
+ * 注册 {@link net.matrix.webapp.servlet.WebSystemContextAttributeListener} 后也包括直接设置的属性，此时索引是完整的。
+ */
+@ThreadSafe
+public final class WebSystemContextRegistry {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(WebSystemContextRegistry.class).useCurrentLocale();
+
+    /**
+     * 保存索引的 Servlet 上下文属性名。
+     */
+    private static final String REGISTRY_ATTRIBUTE = WebSystemContextRegistry.class.getName();
+
+    /**
+     * 保存系统环境的属性名。
+     */
+    private final Set<String> attributeNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 索引是否包括全部保存系统环境的属性。
+     */
+    private volatile boolean complete;
+
+    /**
+     * 构造器。
+     */
+    private WebSystemContextRegistry() {
+    }
+
+    /**
+     * 获取 Servlet 上下文中的系统环境索引。
+     *
+     * @param servletContext
+     *     Servlet 上下文。
+     * @return 系统环境索引，没有时为 {@code null}。
+     */
+    @Nullable
+    public static WebSystemContextRegistry getRegistry(@Nonnull ServletContext servletContext) {
+        Object attribute = servletContext.getAttribute(REGISTRY_ATTRIBUTE);
+        if (attribute instanceof WebSystemContextRegistry registry) {
+            return registry;
+        }
+        return null;
+    }
+
+    /**
+     * 获取 Servlet 上下文中的系统环境索引，没有时创建。
+     *
+     * @param servletContext
+     *     Servlet 上下文。
+     * @return 系统环境索引。
+     */
+    @Nonnull
+    public static WebSystemContextRegistry getOrCreateRegistry(@Nonnull ServletContext servletContext) {
+        WebSystemContextRegistry registry = getRegistry(servletContext);
+        if (registry != null) {
+            return registry;
+        }
+
+        synchronized (WebSystemContextRegistry.class) {
+            registry = getRegistry(servletContext);
+            if (registry == null) {
+                registry = new WebSystemContextRegistry();
+                servletContext.setAttribute(REGISTRY_ATTRIBUTE, registry);
+            }
+            return registry;
+        }
+    }
+
+    /**
+     * 根据属性的新值更新索引。
+     *
+     * @param attributeName
+     *     属性名。
+     * @param attribute
+     *     属性值，{@code null} 表示已删除。
+     */
+    public void update(@Nonnull String attributeName, @Nullable Object attribute) {
+        if (attribute instanceof WebSystemContext) {
+            attributeNames.add(attributeName);
+        } else {
+            attributeNames.remove(attributeName);
+        }
+    }
+
+    /**
+     * 标记索引包括全部保存系统环境的属性，由 {@link net.matrix.webapp.servlet.WebSystemContextAttributeListener} 在建立索引后调用。
+     */
+    public void markComplete() {
+        complete = true;
+    }
+
+    /**
+     * 判断索引是否包括全部保存系统环境的属性。不完整时直接设置的属性可能不在索引中。
+     *
+     * @return 是否完整。
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * 判断索引是否为空。
+     *
+     * @return 是否为空。
+     */
+    public boolean isEmpty() {
+        return attributeNames.isEmpty();
+    }
+
+    /**
+     * 获取索引中保存系统环境的属性名。
+     *
+     * @return 属性名。
+     */
+    @Nonnull
+    public Set<String> getAttributeNames() {
+        return Set.copyOf(attributeNames);
+    }
+
+    /**
+     * 根据索引查找唯一的系统环境。
+     *
+     * @param servletContext
+     *     Servlet 上下文。
+     * @return 唯一的系统环境，没有时为 {@code null}。
+     * @throws IllegalStateException
+     *     系统环境不唯一。
+     */
+    @Nullable
+    public WebSystemContext findUnique(@Nonnull ServletContext servletContext) {
+        WebSystemContext context = null;
+        for (String attributeName : attributeNames) {
+            Object attribute = servletContext.getAttribute(attributeName);
+            if (!(attribute instanceof WebSystemContext)) {
+                // 属性已被直接修改
+                attributeNames.remove(attributeName);
+                continue;
+            }
+
+            if (context != null) {
+                throw new IllegalStateException(RBMF.get("Nonunique WebSystemContext found"));
+            }
+            context = (WebSystemContext) attribute;
+        }
+        return context;
+    }
+}
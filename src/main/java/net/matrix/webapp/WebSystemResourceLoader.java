@@ -4,6 +4,14 @@
  */
 package net.matrix.webapp;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.annotation.Nonnull;
 
 import jakarta.servlet.ServletContext;
@@ -12,14 +20,53 @@ import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 
+import net.matrix.webapp.monitor.SystemMetrics;
+
 /**
- * ResourceLoader implementation that resolves paths as ServletContext resources.
+ * ResourceLoader implementation that resolves paths as ServletContext resources.<br>
+ * 可以缓存路径的解析结果，包括没有对应文件的路径，缓存超过容量时淘汰部分条目。
  */
 public class WebSystemResourceLoader
-    extends DefaultResourceLoader {
+    extends DefaultResourceLoader
+    implements Closeable {
+    /**
+     * 运行指标。
+     */
+    private static final SystemMetrics METRICS = SystemMetrics.getInstance();
+
+    /**
+     * 路径解析的耗时，不包括命中缓存的路径。
+     */
+    private static final SystemMetrics.Timer RESOLVE_TIMER = METRICS.getTimer("resourceLoader.resolve");
+
+    /**
+     * 路径解析缓存命中次数。
+     */
+    private static final SystemMetrics.Counter CACHE_HIT_COUNTER = METRICS.getCounter("resourceLoader.cacheHit");
+
     @Nonnull
     private final ServletContext servletContext;
 
+    /**
+     * 缓存容量，0 表示不缓存。
+     */
+    private final int cacheSize;
+
+    /**
+     * 命中缓存时是否检查文件修改时间。
+     */
+    private final boolean cacheValidate;
+
+    /**
+     * 路径解析缓存。
+     */
+    private final Map<String, CachedResource> resourceCache;
+
+    /**
+     * 共享的资源内容。
+     */
+    private final SharedResourceBuffers resourceBuffers = new SharedResourceBuffers();
+
     /**
      * Create a new WebSystemResourceLoader.
      *
@@ -27,15 +74,167 @@ public class WebSystemResourceLoader
      *     the ServletContext to load resources with.
      */
     public WebSystemResourceLoader(@Nonnull ServletContext servletContext) {
+        this(servletContext, 0, false);
+    }
+
+    /**
+     * Create a new WebSystemResourceLoader with a resolution cache.
+     *
+     * @param servletContext
+     *     the ServletContext to load resources with.
+     * @param cacheSize
+     *     缓存容量，0 表示不缓存。
+     * @param cacheValidate
+     *     命中缓存时是否检查文件修改时间，修改时间变化时重新解析。
+     */
+    public WebSystemResourceLoader(@Nonnull ServletContext servletContext, int cacheSize, boolean cacheValidate) {
         this.servletContext = servletContext;
+        this.cacheSize = Math.max(cacheSize, 0);
+        this.cacheValidate = cacheValidate;
+        this.resourceCache = this.cacheSize > 0 ? new ConcurrentHashMap<>() : null;
     }
 
     @Override
     protected Resource getResourceByPath(String path) {
+        if (resourceCache == null) {
+            return meteredResolveResourceByPath(path);
+        }
+
+        CachedResource cached = resourceCache.get(path);
+        if (cached != null && (!cacheValidate || cached.isValid())) {
+            if (METRICS.isEnabled()) {
+                CACHE_HIT_COUNTER.increment();
+            }
+            return cached.resource;
+        }
+
+        Resource resource = meteredResolveResourceByPath(path);
+        resourceCache.put(path, new CachedResource(resource));
+        if (resourceCache.size() > cacheSize) {
+            evict();
+        }
+        return resource;
+    }
+
+    /**
+     * 解析路径并记录耗时。
+     */
+    private Resource meteredResolveResourceByPath(String path) {
+        if (!METRICS.isEnabled()) {
+            return resolveResourceByPath(path);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return resolveResourceByPath(path);
+        } finally {
+            RESOLVE_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 解析路径。
+     *
+     * @param path
+     *     路径。
+     * @return 资源。
+     */
+    protected Resource resolveResourceByPath(String path) {
         String realPath = servletContext.getRealPath(path);
         if (realPath == null) {
             return super.getResourceByPath(path);
         }
         return new FileSystemResource(realPath);
     }
+
+    /**
+     * 获取资源内容的只读视图，内容由 {@link SharedResourceBuffers} 共享。
+     *
+     * @param location
+     *     资源位置。
+     * @return 只读视图。
+     * @throws IOException
+     *     读取资源失败。
+     * @throws IllegalStateException
+     *     已关闭。
+     */
+    @Nonnull
+    public ByteBuffer getResourceBuffer(@Nonnull String location)
+        throws IOException {
+        return resourceBuffers.getBuffer(getResource(location));
+    }
+
+    /**
+     * 清除路径解析缓存和共享的资源内容。
+     */
+    public void clearCache() {
+        if (resourceCache != null) {
+            resourceCache.clear();
+        }
+        resourceBuffers.clear();
+    }
+
+    /**
+     * 清除缓存并关闭共享的资源内容，之后不能再调用 {@link #getResourceBuffer(String)}。
+     */
+    @Override
+    public void close() {
+        clearCache();
+        resourceBuffers.close();
+    }
+
+    /**
+     * 淘汰部分缓存条目，使缓存不超过容量的四分之三。淘汰顺序不保证与访问顺序有关。
+     */
+    private void evict() {
+        int targetSize = cacheSize * 3 / 4;
+        Iterator<String> iterator = resourceCache.keySet().iterator();
+        while (resourceCache.size() > targetSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 缓存的解析结果。
+     */
+    private static final class CachedResource {
+        /**
+         * 资源。
+         */
+        final Resource resource;
+
+        /**
+         * 对应的文件，不对应文件时为 {@code null}。
+         */
+        final File file;
+
+        /**
+         * 解析时文件的修改时间，文件不存在时为 0。
+         */
+        final long lastModified;
+
+        /**
+         * 构造器。
+         */
+        CachedResource(Resource resource) {
+            this.resource = resource;
+            if (resource instanceof FileSystemResource fileResource) {
+                this.file = fileResource.getFile();
+                this.lastModified = file.lastModified();
+            } else {
+                this.file = null;
+                this.lastModified = 0;
+            }
+        }
+
+        /**
+         * 检查文件修改时间是否变化。
+         *
+         * @return 是否有效。
+         */
+        boolean isValid() {
+            return file == null || file.lastModified() == lastModified;
+        }
+    }
 }
@@ -0,0 +1,180 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.event.ConfigurationEvent;
+import org.apache.commons.configuration2.event.EventListener;
+import org.apache.commons.configuration2.event.EventSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 预先绑定的配置项。创建时读取并转换配置值，之后只读取缓存的值；配置修改或被替换时自动刷新。
+ * 配置项向配置注册监听器，应在初始化时创建一次并重复使用，不再使用时调用 {@link #close()} 移除监听器。
+ */
+@ThreadSafe
+public abstract class AbstractSetting
+    implements AutoCloseable {
+    /**
+     * 日志记录器。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractSetting.class);
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(AbstractSetting.class).useCurrentLocale();
+
+    /**
+     * 配置。
+     */
+    @Nonnull
+    protected volatile Configuration config;
+
+    /**
+     * 配置键。
+     */
+    @Nonnull
+    protected final String key;
+
+    /**
+     * 配置变化监听器。
+     */
+    private final EventListener<ConfigurationEvent> listener = this::onConfigurationEvent;
+
+    /**
+     * 是否已关闭。
+     */
+    private boolean closed;
+
+    /**
+     * 构造器。
+     *
+     * @param config
+     *     配置。
+     * @param key
+     *     配置键。
+     */
+    protected AbstractSetting(@Nonnull Configuration config, @Nonnull String key) {
+        this.config = config;
+        this.key = key;
+    }
+
+    /**
+     * 获取配置键。
+     *
+     * @return 配置键。
+     */
+    @Nonnull
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 开始监听配置变化并读取配置值，由子类在构造完成时调用。读取失败时停止监听。
+     */
+    protected final synchronized void bind() {
+        listen();
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // 构造失败的配置项不能留在配置的监听器中
+            unbind();
+            throw e;
+        }
+    }
+
+    /**
+     * 改为绑定到另一个配置，用于配置对象被整体替换的情况。新配置中的值无效时保留原值，之后修正时再刷新。已关闭时忽略。
+     *
+     * @param newConfig
+     *     新的配置。
+     */
+    public synchronized void rebind(@Nonnull Configuration newConfig) {
+        if (closed || newConfig == config) {
+            return;
+        }
+        unbind();
+        config = newConfig;
+        // 先监听再读取，值无效时仍能收到之后的修改
+        listen();
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOG.warn(RBMF.get("配置项 {} 刷新失败，保留原值"), key, e);
+        }
+    }
+
+    /**
+     * 判断是否已关闭。
+     *
+     * @return 是否已关闭。
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 停止监听配置变化，之后只返回最后读取的值。
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            unbind();
+        }
+    }
+
+    /**
+     * 开始监听当前配置的变化。
+     */
+    private void listen() {
+        if (config instanceof EventSource eventSource) {
+            eventSource.addEventListener(ConfigurationEvent.ANY, listener);
+        }
+    }
+
+    /**
+     * 停止监听当前配置的变化。
+     */
+    private void unbind() {
+        if (config instanceof EventSource eventSource) {
+            eventSource.removeEventListener(ConfigurationEvent.ANY, listener);
+        }
+    }
+
+    /**
+     * 从配置中重新读取并转换配置值。
+     */
+    protected abstract void refresh();
+
+    /**
+     * 处理配置变化事件。
+     *
+     * @param event
+     *     配置变化事件。
+     */
+    private void onConfigurationEvent(ConfigurationEvent event) {
+        if (event.isBeforeUpdate()) {
+            return;
+        }
+        String propertyName = event.getPropertyName();
+        if (propertyName != null && !propertyName.equals(key)) {
+            return;
+        }
+
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            LOG.warn(RBMF.get("配置项 {} 刷新失败，保留原值"), key, e);
+        }
+    }
+}
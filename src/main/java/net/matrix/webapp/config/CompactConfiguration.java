@@ -0,0 +1,85 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.AbstractConfiguration;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 紧凑的只读配置，直接使用扁平的键值表，不建立节点结构。值是未替换变量的字符串或字符串列表，
+ * 读取时按自身的配置项替换变量，与 {@link PropertiesConfiguration} 一致。键值表可以在多个配置之间共享。
+ */
+@ThreadSafe
+public class CompactConfiguration
+    extends AbstractConfiguration {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(CompactConfiguration.class).useCurrentLocale();
+
+    /**
+     * 配置项的值。
+     */
+    @Nonnull
+    private final Map<String, Object> values;
+
+    /**
+     * 构造器。
+     *
+     * @param values
+     *     配置项的值，构造后不能再修改。
+     */
+    public CompactConfiguration(@Nonnull Map<String, Object> values) {
+        this.values = values;
+    }
+
+    @Override
+    protected void addPropertyDirect(String key, Object value) {
+        throw new UnsupportedOperationException(RBMF.get("紧凑的配置不可修改"));
+    }
+
+    @Override
+    protected void clearPropertyDirect(String key) {
+        throw new UnsupportedOperationException(RBMF.get("紧凑的配置不可修改"));
+    }
+
+    @Override
+    protected boolean containsKeyInternal(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    protected boolean containsValueInternal(Object value) {
+        return values.containsValue(value);
+    }
+
+    @Override
+    protected Iterator<String> getKeysInternal() {
+        return values.keySet().iterator();
+    }
+
+    @Override
+    protected Object getPropertyInternal(String key) {
+        return values.get(key);
+    }
+
+    @Override
+    protected boolean isEmptyInternal() {
+        return values.isEmpty();
+    }
+
+    @Override
+    protected int sizeInternal() {
+        return values.size();
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import net.matrix.java.lang.UncheckedException;
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 编译后的系统配置缓存。把组合后的系统配置写成紧凑的二进制映像，映像头记录每个源文件的位置、大小、修改时间和 SHA-256 摘要。
+ * 下次启动时源文件全部一致则内存映射映像，直接构造 {@link ConfigurationSnapshot}，不再解析和组合源文件。
+ * 映像中保存未替换变量的值，读取时按当前的环境变量和系统属性替换，环境变化后不会使用过期的值。
+ */
+@ThreadSafe
+public class CompiledConfigurationCache {
+    /**
+     * 日志记录器。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(CompiledConfigurationCache.class);
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(CompiledConfigurationCache.class).useCurrentLocale();
+
+    /**
+     * 映像文件标识。
+     */
+    private static final int MAGIC = 0x4D43_4647;
+
+    /**
+     * 映像格式版本。
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * 映像文件路径。
+     */
+    @Nonnull
+    private final Path cacheFile;
+
+    /**
+     * 构造器。
+     *
+     * @param cacheFile
+     *     映像文件路径。
+     */
+    public CompiledConfigurationCache(@Nonnull Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * 获取映像文件路径。
+     *
+     * @return 映像文件路径。
+     */
+    @Nonnull
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * 读取映像。
+     *
+     * @param sources
+     *     源文件标记，按覆盖顺序排列。
+     * @return 系统配置，映像不存在、已损坏或源文件不一致时为 {@code null}。
+     */
+    @Nullable
+    public ConfigurationSnapshot load(@Nonnull List<SourceStamp> sources) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.warn(RBMF.get("系统配置缓存 {} 读取失败"), cacheFile, e);
+            return null;
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            int sourceCount = buffer.getInt();
+            if (sourceCount != sources.size()) {
+                return null;
+            }
+            for (SourceStamp source : sources) {
+                if (!source.equals(readStamp(buffer))) {
+                    return null;
+                }
+            }
+
+            int keyCount = buffer.getInt();
+            Map<String, Object> values = new HashMap<>(keyCount * 4 / 3 + 1);
+            for (int keyIndex = 0; keyIndex < keyCount; keyIndex++) {
+                String key = readString(buffer);
+                int valueCount = buffer.getInt();
+                if (valueCount == 1) {
+                    values.put(key, readString(buffer));
+                    continue;
+                }
+                List<String> keyValues = new ArrayList<>(valueCount);
+                for (int valueIndex = 0; valueIndex < valueCount; valueIndex++) {
+                    keyValues.add(readString(buffer));
+                }
+                values.put(key, keyValues);
+            }
+            // 在当前环境中替换变量
+            return new ConfigurationSnapshot(new CompactConfiguration(values));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            LOG.warn(RBMF.get("系统配置缓存 {} 已损坏"), cacheFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入映像。先写入临时文件再替换，读取方不会看到写了一半的映像。
+     *
+     * @param sources
+     *     源文件标记，按覆盖顺序排列。
+     * @param config
+     *     组合后的系统配置，保存 {@link Configuration#getProperty(String)} 返回的未替换变量的值，不能是 {@link ConfigurationSnapshot}。
+     * @throws IOException
+     *     写入失败。
+     */
+    public void store(@Nonnull List<SourceStamp> sources, @Nonnull Configuration config)
+        throws IOException {
+        Path directory = cacheFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream fileOutput = Files.newOutputStream(tempFile);
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(sources.size());
+                for (SourceStamp source : sources) {
+                    writeStamp(output, source);
+                }
+
+                List<String> keys = new ArrayList<>();
+                for (Iterator<String> keyIterator = config.getKeys(); keyIterator.hasNext();) {
+                    keys.add(keyIterator.next());
+                }
+                output.writeInt(keys.size());
+                for (String key : keys) {
+                    Object property = config.getProperty(key);
+                    Collection<?> keyValues = property instanceof Collection<?> collection ? collection : Collections.singletonList(property);
+                    writeString(output, key);
+                    output.writeInt(keyValues.size());
+                    for (Object keyValue : keyValues) {
+                        writeString(output, Objects.toString(keyValue, ""));
+                    }
+                }
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 读取源文件标记。
+     */
+    private static SourceStamp readStamp(ByteBuffer buffer) {
+        String location = readString(buffer);
+        long size = buffer.getLong();
+        long lastModified = buffer.getLong();
+        byte[] digest = new byte[buffer.getInt()];
+        buffer.get(digest);
+        return new SourceStamp(location, size, lastModified, digest);
+    }
+
+    /**
+     * 写入源文件标记。
+     */
+    private static void writeStamp(DataOutputStream output, SourceStamp source)
+        throws IOException {
+        writeString(output, source.location());
+        output.writeLong(source.size());
+        output.writeLong(source.lastModified());
+        output.writeInt(source.digest().length);
+        output.write(source.digest());
+    }
+
+    /**
+     * 读取字符串，格式为字节数加 UTF-8 编码，没有 {@link DataOutputStream#writeUTF(String)} 的长度限制。
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException(RBMF.format("字符串长度 {0} 无效", length));
+        }
+        String string = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    /**
+     * 写入字符串。
+     */
+    private static void writeString(DataOutputStream output, String string)
+        throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * 源文件标记。不存在的源文件大小和修改时间为 -1，摘要为空。
+     *
+     * @param location
+     *     系统配置位置。
+     * @param size
+     *     文件大小。
+     * @param lastModified
+     *     修改时间。
+     * @param digest
+     *     内容的 SHA-256 摘要。
+     */
+    public record SourceStamp(@Nonnull String location, long size, long lastModified, @Nonnull byte[] digest) {
+        /**
+         * 读取资源生成标记。
+         *
+         * @param location
+         *     系统配置位置。
+         * @param resource
+         *     资源。
+         * @return 源文件标记。
+         * @throws IOException
+         *     读取资源失败。
+         */
+        @Nonnull
+        public static SourceStamp of(@Nonnull String location, @Nonnull Resource resource)
+            throws IOException {
+            if (!resource.exists()) {
+                return new SourceStamp(location, -1, -1, new byte[0]);
+            }
+
+            MessageDigest messageDigest;
+            try {
+                messageDigest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new UncheckedException(e);
+            }
+            long size = 0;
+            try (InputStream input = new DigestInputStream(resource.getInputStream(), messageDigest)) {
+                byte[] buffer = new byte[8192];
+                for (int count = input.read(buffer); count >= 0; count = input.read(buffer)) {
+                    size += count;
+                }
+            }
+            long lastModified;
+            try {
+                lastModified = resource.lastModified();
+            } catch (FileNotFoundException e) {
+                lastModified = -1;
+            }
+            return new SourceStamp(location, size, lastModified, messageDigest.digest());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SourceStamp other)) {
+                return false;
+            }
+            return location.equals(other.location) && size == other.size && lastModified == other.lastModified && Arrays.equals(digest, other.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(location, size, lastModified, Arrays.hashCode(digest));
+        }
+
+        @Override
+        public String toString() {
+            return location + '[' + size + ',' + lastModified + ']';
+        }
+    }
+}
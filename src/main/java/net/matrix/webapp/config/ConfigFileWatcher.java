@@ -0,0 +1,207 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 系统配置文件监视器，在后台线程中监视文件变化并通知监听器。监视文件所在的目录，因此之后创建的文件同样能发现，
+ * 但启动时不存在的目录不监视。
+ */
+@ThreadSafe
+public class ConfigFileWatcher
+    implements Closeable {
+    /**
+     * 日志记录器。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigFileWatcher.class);
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(ConfigFileWatcher.class).useCurrentLocale();
+
+    /**
+     * 文件变化后等待写入完成的静默时间（毫秒）。
+     */
+    private static final long QUIET_PERIOD = 200;
+
+    /**
+     * 监视的文件路径到序号的映射。
+     */
+    @Nonnull
+    private final Map<Path, Integer> files;
+
+    /**
+     * 文件变化监听器，参数是文件序号。
+     */
+    @Nonnull
+    private final IntConsumer listener;
+
+    /**
+     * 监视服务。
+     */
+    private WatchService watchService;
+
+    /**
+     * 构造器。
+     *
+     * @param files
+     *     监视的文件路径，{@code null} 元素表示不监视，文件序号为在列表中的位置。
+     * @param listener
+     *     文件变化监听器，参数是文件序号。
+     */
+    public ConfigFileWatcher(@Nonnull List<Path> files, @Nonnull IntConsumer listener) {
+        this.files = new HashMap<>();
+        for (int index = 0; index < files.size(); index++) {
+            Path file = files.get(index);
+            if (file != null) {
+                this.files.put(file.toAbsolutePath().normalize(), index);
+            }
+        }
+        this.listener = listener;
+    }
+
+    /**
+     * 开始监视。
+     *
+     * @throws IOException
+     *     注册监视失败。
+     */
+    public synchronized void start()
+        throws IOException {
+        if (watchService != null) {
+            return;
+        }
+
+        WatchService service = FileSystems.getDefault().newWatchService();
+        try {
+            Set<Path> directories = new HashSet<>();
+            for (Path file : files.keySet()) {
+                Path directory = file.getParent();
+                if (directory == null || !directories.add(directory)) {
+                    continue;
+                }
+                if (!Files.isDirectory(directory)) {
+                    LOG.warn(RBMF.get("系统配置文件目录 {} 不存在，不监视"), directory);
+                } else {
+                    directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                }
+            }
+        } catch (IOException e) {
+            service.close();
+            throw e;
+        }
+
+        watchService = service;
+        Thread thread = new Thread(() -> run(service), "system-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watchService == null) {
+            return;
+        }
+
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOG.warn(RBMF.get("关闭系统配置文件监视失败"), e);
+        }
+        watchService = null;
+    }
+
+    /**
+     * 监视线程的主循环。
+     *
+     * @param service
+     *     监视服务。
+     */
+    private void run(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Set<Integer> changed = new HashSet<>();
+                // 合并连续的变化，等待写入完成
+                while (key != null) {
+                    collectChanges(key, changed);
+                    key = service.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+                }
+                for (int index : changed) {
+                    notifyListener(index);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOG.debug(RBMF.get("系统配置文件监视结束"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 收集变化的文件序号。
+     *
+     * @param key
+     *     监视键。
+     * @param changed
+     *     变化的文件序号。
+     */
+    private void collectChanges(WatchKey key, Set<Integer> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // 事件丢失，视为全部变化
+                changed.addAll(files.values());
+                continue;
+            }
+            Integer index = files.get(directory.resolve((Path) event.context()));
+            if (index != null) {
+                changed.add(index);
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * 通知监听器，监听器的异常不影响监视。
+     *
+     * @param index
+     *     文件序号。
+     */
+    private void notifyListener(int index) {
+        try {
+            listener.accept(index);
+        } catch (RuntimeException e) {
+            LOG.error(RBMF.get("系统配置文件变化处理失败"), e);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import org.apache.commons.configuration2.AbstractConfiguration;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.convert.PropertyConverter;
+import org.apache.commons.configuration2.ex.ConversionException;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 配置快照。构造时把源配置展开为扁平的键值表，完成变量替换并预先转换 int、long、boolean 和 Duration 类型的值，
+ * 之后的读取是无锁的散列查找，不再解析字符串也不装箱。快照不可修改。
+ */
+@Immutable
+public class ConfigurationSnapshot
+    extends AbstractConfiguration {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(ConfigurationSnapshot.class).useCurrentLocale();
+
+    /**
+     * 配置项。
+     */
+    @Nonnull
+    private final Map<String, Entry> entries;
+
+    /**
+     * 构造器。
+     *
+     * @param source
+     *     源配置。
+     */
+    public ConfigurationSnapshot(@Nonnull Configuration source) {
+        Map<String, Entry> sourceEntries = new HashMap<>();
+        for (Iterator<String> keys = source.getKeys(); keys.hasNext();) {
+            String key = keys.next();
+            List<Object> values = source.getList(key);
+            if (values.isEmpty()) {
+                continue;
+            }
+            sourceEntries.put(key, new Entry(values));
+        }
+        this.entries = Collections.unmodifiableMap(sourceEntries);
+        // 值已完成变量替换
+        setInterpolator(null);
+    }
+
+    @Override
+    protected void addPropertyDirect(String key, Object value) {
+        throw new UnsupportedOperationException(RBMF.get("配置快照不可修改"));
+    }
+
+    @Override
+    protected void clearPropertyDirect(String key) {
+        throw new UnsupportedOperationException(RBMF.get("配置快照不可修改"));
+    }
+
+    @Override
+    protected boolean containsKeyInternal(String key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    protected boolean containsValueInternal(Object value) {
+        for (Entry entry : entries.values()) {
+            if (Objects.equals(entry.value, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected Iterator<String> getKeysInternal() {
+        return entries.keySet().iterator();
+    }
+
+    @Override
+    protected Object getPropertyInternal(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    protected boolean isEmptyInternal() {
+        return entries.isEmpty();
+    }
+
+    @Override
+    protected int sizeInternal() {
+        return entries.size();
+    }
+
+    @Override
+    public String getString(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return super.getString(key);
+        }
+        return entry.string;
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return defaultValue;
+        }
+        return entry.string;
+    }
+
+    @Override
+    public int getInt(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.intParsed) {
+            return super.getInt(key);
+        }
+        return entry.intValue;
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return defaultValue;
+        }
+        if (!entry.intParsed) {
+            return super.getInt(key, defaultValue);
+        }
+        return entry.intValue;
+    }
+
+    @Override
+    public long getLong(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.longParsed) {
+            return super.getLong(key);
+        }
+        return entry.longValue;
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return defaultValue;
+        }
+        if (!entry.longParsed) {
+            return super.getLong(key, defaultValue);
+        }
+        return entry.longValue;
+    }
+
+    @Override
+    public boolean getBoolean(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.booleanParsed) {
+            return super.getBoolean(key);
+        }
+        return entry.booleanValue;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return defaultValue;
+        }
+        if (!entry.booleanParsed) {
+            return super.getBoolean(key, defaultValue);
+        }
+        return entry.booleanValue;
+    }
+
+    @Override
+    public Duration getDuration(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.durationValue == null) {
+            return super.getDuration(key);
+        }
+        return entry.durationValue;
+    }
+
+    @Override
+    public Duration getDuration(String key, Duration defaultValue) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return defaultValue;
+        }
+        if (entry.durationValue == null) {
+            return super.getDuration(key, defaultValue);
+        }
+        return entry.durationValue;
+    }
+
+    /**
+     * 配置项，保存原始值和预先转换的类型值。
+     */
+    private static final class Entry {
+        /**
+         * 原始值，单值时为值本身，多值时为不可修改的列表。
+         */
+        final Object value;
+
+        /**
+         * 字符串值，多值时为第一个值。
+         */
+        final String string;
+
+        /**
+         * 是否可以转换为 int。
+         */
+        final boolean intParsed;
+
+        /**
+         * int 值。
+         */
+        final int intValue;
+
+        /**
+         * 是否可以转换为 long。
+         */
+        final boolean longParsed;
+
+        /**
+         * long 值。
+         */
+        final long longValue;
+
+        /**
+         * 是否可以转换为 boolean。
+         */
+        final boolean booleanParsed;
+
+        /**
+         * boolean 值。
+         */
+        final boolean booleanValue;
+
+        /**
+         * Duration 值，不能转换时为 {@code null}。
+         */
+        final Duration durationValue;
+
+        /**
+         * 构造器。
+         *
+         * @param values
+         *     源配置中的值。
+         */
+        Entry(List<Object> values) {
+            Object first = values.get(0);
+            if (values.size() == 1) {
+                this.value = first;
+            } else {
+                this.value = List.copyOf(values);
+            }
+            this.string = Objects.toString(first, null);
+
+            Integer intObject = convert(() -> PropertyConverter.toInteger(first));
+            this.intParsed = intObject != null;
+            this.intValue = intParsed ? intObject : 0;
+            Long longObject = convert(() -> PropertyConverter.toLong(first));
+            this.longParsed = longObject != null;
+            this.longValue = longParsed ? longObject : 0L;
+            Boolean booleanObject = convert(() -> PropertyConverter.toBoolean(first));
+            this.booleanParsed = booleanObject != null;
+            this.booleanValue = booleanParsed && booleanObject;
+            this.durationValue = convert(() -> PropertyConverter.toDuration(first));
+        }
+
+        /**
+         * 转换值，不能转换时返回 {@code null}。
+         *
+         * @param converter
+         *     转换过程。
+         * @return 转换结果。
+         */
+        private static <T> T convert(Supplier<T> converter) {
+            try {
+                return converter.get();
+            } catch (ConversionException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
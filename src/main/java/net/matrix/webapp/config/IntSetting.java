@@ -0,0 +1,57 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.Configuration;
+
+/**
+ * int 类型的配置项。
+ */
+@ThreadSafe
+public class IntSetting
+    extends AbstractSetting {
+    /**
+     * 默认值。
+     */
+    private final int defaultValue;
+
+    /**
+     * 当前值。
+     */
+    private volatile int value;
+
+    /**
+     * 构造器。
+     *
+     * @param config
+     *     配置。
+     * @param key
+     *     配置键。
+     * @param defaultValue
+     *     配置中没有该键时的默认值。
+     */
+    public IntSetting(@Nonnull Configuration config, @Nonnull String key, int defaultValue) {
+        super(config, key);
+        this.defaultValue = defaultValue;
+        bind();
+    }
+
+    /**
+     * 获取当前值。
+     *
+     * @return 当前值。
+     */
+    public int get() {
+        return value;
+    }
+
+    @Override
+    protected void refresh() {
+        value = config.getInt(key, defaultValue);
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.AbstractConfiguration;
+import org.apache.commons.configuration2.Configuration;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 按需加载的分层配置。每层在第一次被查找时才加载，高层的配置项覆盖低层的同名配置项，与
+ * {@link org.apache.commons.configuration2.tree.OverrideCombiner} 的覆盖顺序一致。
+ * 层可以声明键前缀，查找不匹配任何前缀的键时跳过该层，不触发加载；未声明键前缀的层在第一次查找时加载。
+ * 遍历键、判断是否为空等需要全部配置项的操作会加载全部层。配置不可修改。
+ */
+@ThreadSafe
+public class LazyLayeredConfiguration
+    extends AbstractConfiguration {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(LazyLayeredConfiguration.class).useCurrentLocale();
+
+    /**
+     * 层，按覆盖顺序从低到高排列。
+     */
+    private final List<Layer> layers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 构造器。
+     */
+    public LazyLayeredConfiguration() {
+    }
+
+    /**
+     * 添加一层，新添加的层覆盖已有的层。
+     *
+     * @param name
+     *     层名。
+     * @param keyPrefixes
+     *     该层包含的键前缀，为空时可能包含任何键。
+     * @param loader
+     *     加载过程，返回 {@code null} 表示该层为空。
+     * @return 本对象。
+     */
+    @Nonnull
+    public LazyLayeredConfiguration addLayer(@Nonnull String name, @Nonnull Collection<String> keyPrefixes, @Nonnull Supplier<? extends Configuration> loader) {
+        layers.add(new Layer(name, keyPrefixes, loader));
+        return this;
+    }
+
+    /**
+     * 获取已加载的层名。
+     *
+     * @return 已加载的层名，按覆盖顺序从低到高排列。
+     */
+    @Nonnull
+    public List<String> getLoadedLayerNames() {
+        List<String> names = new ArrayList<>();
+        for (Layer layer : layers) {
+            if (layer.loaded) {
+                names.add(layer.name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 查找包含键的最高层的配置。
+     *
+     * @param key
+     *     键。
+     * @return 配置，没有时为 {@code null}。
+     */
+    @Nullable
+    private Configuration findLayerConfig(String key) {
+        for (int index = layers.size() - 1; index >= 0; index--) {
+            Layer layer = layers.get(index);
+            if (!layer.mayContain(key)) {
+                continue;
+            }
+            Configuration layerConfig = layer.get();
+            if (layerConfig != null && layerConfig.containsKey(key)) {
+                return layerConfig;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 加载全部层并收集键。
+     *
+     * @return 键，按第一次出现的层从低到高排列。
+     */
+    private Set<String> collectKeys() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (Layer layer : layers) {
+            Configuration layerConfig = layer.get();
+            if (layerConfig == null) {
+                continue;
+            }
+            for (Iterator<String> layerKeys = layerConfig.getKeys(); layerKeys.hasNext();) {
+                keys.add(layerKeys.next());
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    protected void addPropertyDirect(String key, Object value) {
+        throw new UnsupportedOperationException(RBMF.get("分层配置不可修改"));
+    }
+
+    @Override
+    protected void clearPropertyDirect(String key) {
+        throw new UnsupportedOperationException(RBMF.get("分层配置不可修改"));
+    }
+
+    @Override
+    protected boolean containsKeyInternal(String key) {
+        return findLayerConfig(key) != null;
+    }
+
+    @Override
+    protected boolean containsValueInternal(Object value) {
+        for (String key : collectKeys()) {
+            if (Objects.equals(getPropertyInternal(key), value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected Iterator<String> getKeysInternal() {
+        return collectKeys().iterator();
+    }
+
+    @Override
+    protected Object getPropertyInternal(String key) {
+        Configuration layerConfig = findLayerConfig(key);
+        if (layerConfig == null) {
+            return null;
+        }
+        return layerConfig.getProperty(key);
+    }
+
+    @Override
+    protected boolean isEmptyInternal() {
+        for (Layer layer : layers) {
+            Configuration layerConfig = layer.get();
+            if (layerConfig != null && !layerConfig.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected int sizeInternal() {
+        return collectKeys().size();
+    }
+
+    /**
+     * 层。
+     */
+    private static final class Layer {
+        /**
+         * 层名。
+         */
+        final String name;
+
+        /**
+         * 键前缀。
+         */
+        final String[] keyPrefixes;
+
+        /**
+         * 加载过程，加载完成后释放。
+         */
+        Supplier<? extends Configuration> loader;
+
+        /**
+         * 是否已加载。
+         */
+        volatile boolean loaded;
+
+        /**
+         * 加载的配置。
+         */
+        Configuration config;
+
+        /**
+         * 构造器。
+         */
+        Layer(String name, Collection<String> keyPrefixes, Supplier<? extends Configuration> loader) {
+            this.name = name;
+            this.keyPrefixes = keyPrefixes.toArray(new String[0]);
+            this.loader = loader;
+        }
+
+        /**
+         * 判断该层是否可能包含键。
+         */
+        boolean mayContain(String key) {
+            if (keyPrefixes.length == 0) {
+                return true;
+            }
+            for (String keyPrefix : keyPrefixes) {
+                if (key.startsWith(keyPrefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 获取配置，第一次调用时加载。加载失败时不记录结果，下次调用重新加载。
+         */
+        Configuration get() {
+            if (!loaded) {
+                synchronized (this) {
+                    if (!loaded) {
+                        config = loader.get();
+                        loader = null;
+                        loaded = true;
+                    }
+                }
+            }
+            return config;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.Configuration;
+
+/**
+ * long 类型的配置项。
+ */
+@ThreadSafe
+public class LongSetting
+    extends AbstractSetting {
+    /**
+     * 默认值。
+     */
+    private final long defaultValue;
+
+    /**
+     * 当前值。
+     */
+    private volatile long value;
+
+    /**
+     * 构造器。
+     *
+     * @param config
+     *     配置。
+     * @param key
+     *     配置键。
+     * @param defaultValue
+     *     配置中没有该键时的默认值。
+     */
+    public LongSetting(@Nonnull Configuration config, @Nonnull String key, long defaultValue) {
+        super(config, key);
+        this.defaultValue = defaultValue;
+        bind();
+    }
+
+    /**
+     * 获取当前值。
+     *
+     * @return 当前值。
+     */
+    public long get() {
+        return value;
+    }
+
+    @Override
+    protected void refresh() {
+        value = config.getLong(key, defaultValue);
+    }
+}
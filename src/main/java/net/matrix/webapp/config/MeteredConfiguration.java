@@ -0,0 +1,379 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.AbstractConfiguration;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.event.ConfigurationEvent;
+import org.apache.commons.configuration2.event.EventSource;
+import org.apache.commons.configuration2.event.EventType;
+
+import net.matrix.webapp.monitor.SystemMetrics;
+
+/**
+ * 记录读取次数的配置。每次读取配置项记录计数器 {@code config.read}，配置项不存在时另外记录 {@code config.miss}。
+ * 运行指标开启时还用计时器 {@code config.read} 记录从目标配置读取的耗时，不含本对象的变量替换和类型转换。
+ * 开启按键记录时还记录 {@code config.read.<键>} 和 {@code config.miss.<键>}，每个键的计数器只在第一次读取时查找。
+ * 读取经过本对象的变量替换和类型转换；目标配置是 {@link ConfigurationSnapshot} 时，常用类型的读取直接使用快照中预先转换的值。
+ * 目标配置的事件转发给本对象的监听器。
+ */
+@ThreadSafe
+public class MeteredConfiguration
+    extends AbstractConfiguration {
+    /**
+     * 目标配置。
+     */
+    @Nonnull
+    private final Configuration delegate;
+
+    /**
+     * 目标配置是快照时为目标配置，否则为 {@code null}。
+     */
+    @Nullable
+    private final ConfigurationSnapshot snapshot;
+
+    /**
+     * 运行指标。
+     */
+    @Nonnull
+    private final SystemMetrics metrics;
+
+    /**
+     * 读取次数。
+     */
+    @Nonnull
+    private final SystemMetrics.Counter readCounter;
+
+    /**
+     * 读取耗时。
+     */
+    @Nonnull
+    private final SystemMetrics.Timer readTimer;
+
+    /**
+     * 未找到次数。
+     */
+    @Nonnull
+    private final SystemMetrics.Counter missCounter;
+
+    /**
+     * 按键的读取次数，不按键记录时为 {@code null}。
+     */
+    @Nullable
+    private final Map<String, SystemMetrics.Counter> keyReadCounters;
+
+    /**
+     * 按键的未找到次数，不按键记录时为 {@code null}。
+     */
+    @Nullable
+    private final Map<String, SystemMetrics.Counter> keyMissCounters;
+
+    /**
+     * 构造器，不按键记录。
+     *
+     * @param delegate
+     *     目标配置。
+     * @param metrics
+     *     运行指标。
+     */
+    public MeteredConfiguration(@Nonnull Configuration delegate, @Nonnull SystemMetrics metrics) {
+        this(delegate, metrics, false);
+    }
+
+    /**
+     * 构造器。
+     *
+     * @param delegate
+     *     目标配置。
+     * @param metrics
+     *     运行指标。
+     * @param perKey
+     *     是否按键记录。
+     */
+    public MeteredConfiguration(@Nonnull Configuration delegate, @Nonnull SystemMetrics metrics, boolean perKey) {
+        this.delegate = delegate;
+        this.snapshot = delegate instanceof ConfigurationSnapshot delegateSnapshot ? delegateSnapshot : null;
+        this.metrics = metrics;
+        this.keyReadCounters = perKey ? new ConcurrentHashMap<>() : null;
+        this.keyMissCounters = perKey ? new ConcurrentHashMap<>() : null;
+        this.readCounter = metrics.getCounter("config.read");
+        this.missCounter = metrics.getCounter("config.miss");
+        this.readTimer = metrics.getTimer("config.read");
+        // 目标配置的值按目标配置的规则替换变量
+        setInterpolator(delegate.getInterpolator());
+        if (delegate instanceof EventSource eventSource) {
+            eventSource.addEventListener(ConfigurationEvent.ANY, this::forwardEvent);
+        }
+    }
+
+    /**
+     * 获取目标配置。
+     *
+     * @return 目标配置。
+     */
+    @Nonnull
+    public Configuration getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 转发目标配置的事件。
+     *
+     * @param event
+     *     事件。
+     */
+    @SuppressWarnings("unchecked")
+    private void forwardEvent(ConfigurationEvent event) {
+        fireEvent((EventType<ConfigurationEvent>) event.getEventType(), event.getPropertyName(), event.getPropertyValue(), event.isBeforeUpdate());
+    }
+
+    @Override
+    protected void addPropertyDirect(String key, Object value) {
+        delegate.addProperty(key, value);
+    }
+
+    @Override
+    protected void clearPropertyDirect(String key) {
+        delegate.clearProperty(key);
+    }
+
+    @Override
+    protected boolean containsKeyInternal(String key) {
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    protected boolean containsValueInternal(Object value) {
+        return delegate.containsValue(value);
+    }
+
+    @Override
+    protected Iterator<String> getKeysInternal() {
+        return delegate.getKeys();
+    }
+
+    @Override
+    protected Object getPropertyInternal(String key) {
+        long start = startTiming();
+        Object value = delegate.getProperty(key);
+        stopTiming(start);
+        record(key, value != null);
+        return value;
+    }
+
+    /**
+     * 开始计时，运行指标未开启时不读取时钟。
+     *
+     * @return 开始时间，未计时为 {@link Long#MIN_VALUE}。
+     */
+    private long startTiming() {
+        return metrics.isEnabled() ? System.nanoTime() : Long.MIN_VALUE;
+    }
+
+    /**
+     * 结束计时并记录耗时。
+     *
+     * @param start
+     *     开始时间。
+     */
+    private void stopTiming(long start) {
+        if (start != Long.MIN_VALUE) {
+            readTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 从快照读取前记录一次读取并开始计时。
+     *
+     * @param key
+     *     配置键。
+     * @return 开始时间。
+     */
+    private long startSnapshotRead(String key) {
+        record(key, snapshot.containsKey(key));
+        return startTiming();
+    }
+
+    /**
+     * 记录一次读取。
+     *
+     * @param key
+     *     配置键。
+     * @param found
+     *     配置项是否存在。
+     */
+    private void record(String key, boolean found) {
+        readCounter.increment();
+        if (keyReadCounters != null) {
+            getKeyCounter(keyReadCounters, "config.read.", key).increment();
+        }
+        if (!found) {
+            missCounter.increment();
+            if (keyMissCounters != null) {
+                getKeyCounter(keyMissCounters, "config.miss.", key).increment();
+            }
+        }
+    }
+
+    /**
+     * 获取按键的计数器，第一次使用时才拼接名称并查找。
+     */
+    private SystemMetrics.Counter getKeyCounter(Map<String, SystemMetrics.Counter> keyCounters, String prefix, String key) {
+        SystemMetrics.Counter counter = keyCounters.get(key);
+        if (counter == null) {
+            counter = keyCounters.computeIfAbsent(key, k -> metrics.getCounter(prefix + k));
+        }
+        return counter;
+    }
+
+    @Override
+    public String getString(String key) {
+        if (snapshot == null) {
+            return super.getString(key);
+        }
+        long start = startSnapshotRead(key);
+        try {
+            return snapshot.getString(key);
+        } finally {
+            stopTiming(start);
+        }
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        if (snapshot == null) {
+            return super.getString(key, defaultValue);
+        }
+        long start = startSnapshotRead(key);
+        try {
+            return snapshot.getString(key, defaultValue);
+        } finally {
+            stopTiming(start);
+        }
+    }
+
+    @Override
+    public int getInt(String key) {
+        if (snapshot == null) {
+            return super.getInt(key);
+        }
+        long start = startSnapshotRead(key);
+        try {
+            return snapshot.getInt(key);
+        } finally {
+            stopTiming(start);
+        }
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        if (snapshot == null) {
+            return super.getInt(key, defaultValue);
+        }
+        long start = startSnapshotRead(key);
+        try {
+            return snapshot.getInt(key, defaultValue);
+        } finally {
+            stopTiming(start);
+        }
+    }
+
+    @Override
+    public long getLong(String key) {
+        if (snapshot == null) {
+            return super.getLong(key);
+        }
+        long start = startSnapshotRead(key);
+        try {
+            return snapshot.getLong(key);
+        } finally {
+            stopTiming(start);
+        }
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        if (snapshot == null) {
+            return super.getLong(key, defaultValue);
+        }
+        long start = startSnapshotRead(key);
+        try {
+            return snapshot.getLong(key, defaultValue);
+        } finally {
+            stopTiming(start);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(String key) {
+        if (snapshot == null) {
+            return super.getBoolean(key);
+        }
+        long start = startSnapshotRead(key);
+        try {
+            return snapshot.getBoolean(key);
+        } finally {
+            stopTiming(start);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        if (snapshot == null) {
+            return super.getBoolean(key, defaultValue);
+        }
+        long start = startSnapshotRead(key);
+        try {
+            return snapshot.getBoolean(key, defaultValue);
+        } finally {
+            stopTiming(start);
+        }
+    }
+
+    @Override
+    public Duration getDuration(String key) {
+        if (snapshot == null) {
+            return super.getDuration(key);
+        }
+        long start = startSnapshotRead(key);
+        try {
+            return snapshot.getDuration(key);
+        } finally {
+            stopTiming(start);
+        }
+    }
+
+    @Override
+    public Duration getDuration(String key, Duration defaultValue) {
+        if (snapshot == null) {
+            return super.getDuration(key, defaultValue);
+        }
+        long start = startSnapshotRead(key);
+        try {
+            return snapshot.getDuration(key, defaultValue);
+        } finally {
+            stopTiming(start);
+        }
+    }
+
+    @Override
+    protected boolean isEmptyInternal() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    protected int sizeInternal() {
+        return delegate.size();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.time.Duration;
+import java.util.Iterator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.AbstractConfiguration;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.event.ConfigurationEvent;
+import org.apache.commons.configuration2.event.EventType;
+
+/**
+ * 可整体替换的配置。所有读写委托给当前的目标配置，替换时原子地切换目标配置，读取方不会阻塞，也不会看到未构建完成的配置。
+ */
+@ThreadSafe
+public class ReloadableConfiguration
+    extends AbstractConfiguration {
+    /**
+     * 目标配置被替换的事件类型。
+     */
+    public static final EventType<ConfigurationEvent> CONFIGURATION_REPLACED = new EventType<>(ConfigurationEvent.ANY, "CONFIGURATION_REPLACED");
+
+    /**
+     * 目标配置。
+     */
+    @Nonnull
+    private volatile Configuration delegate;
+
+    /**
+     * 构造器。
+     *
+     * @param delegate
+     *     初始的目标配置。
+     */
+    public ReloadableConfiguration(@Nonnull Configuration delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 获取当前的目标配置。
+     *
+     * @return 目标配置。
+     */
+    @Nonnull
+    public Configuration getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 替换目标配置，并发出 {@link #CONFIGURATION_REPLACED} 事件。
+     *
+     * @param newDelegate
+     *     新的目标配置。
+     * @return 原来的目标配置。
+     */
+    @Nonnull
+    public Configuration replace(@Nonnull Configuration newDelegate) {
+        Configuration oldDelegate = delegate;
+        delegate = newDelegate;
+        fireEvent(CONFIGURATION_REPLACED, null, newDelegate, false);
+        return oldDelegate;
+    }
+
+    @Override
+    protected void addPropertyDirect(String key, Object value) {
+        delegate.addProperty(key, value);
+    }
+
+    @Override
+    protected void clearPropertyDirect(String key) {
+        delegate.clearProperty(key);
+    }
+
+    @Override
+    protected boolean containsKeyInternal(String key) {
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    protected boolean containsValueInternal(Object value) {
+        return delegate.containsValue(value);
+    }
+
+    @Override
+    protected Iterator<String> getKeysInternal() {
+        return delegate.getKeys();
+    }
+
+    @Override
+    protected Object getPropertyInternal(String key) {
+        return delegate.getProperty(key);
+    }
+
+    @Override
+    protected boolean isEmptyInternal() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    protected int sizeInternal() {
+        return delegate.size();
+    }
+
+    // 常用类型的读取直接委托，以使用目标配置的快速路径
+
+    @Override
+    public String getString(String key) {
+        return delegate.getString(key);
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        return delegate.getString(key, defaultValue);
+    }
+
+    @Override
+    public int getInt(String key) {
+        return delegate.getInt(key);
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        return delegate.getInt(key, defaultValue);
+    }
+
+    @Override
+    public long getLong(String key) {
+        return delegate.getLong(key);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        return delegate.getLong(key, defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(String key) {
+        return delegate.getBoolean(key);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return delegate.getBoolean(key, defaultValue);
+    }
+
+    @Override
+    public Duration getDuration(String key) {
+        return delegate.getDuration(key);
+    }
+
+    @Override
+    public Duration getDuration(String key, Duration defaultValue) {
+        return delegate.getDuration(key, defaultValue);
+    }
+}
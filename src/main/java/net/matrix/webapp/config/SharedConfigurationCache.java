@@ -0,0 +1,270 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.io.ByteArrayInputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.commons.configuration2.AbstractConfiguration;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.io.FileHandler;
+
+import net.matrix.java.lang.UncheckedException;
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 解析后的系统配置文件的共享缓存，以内容的 SHA-256 摘要为键，内容相同的文件只解析一次，解析结果只读地共享，键和值都经过字符串驻留。
+ * 缓存在加载本类的类加载器范围内共享，本模块放在容器的公共类库中时即为 JVM 范围。没有系统环境使用的解析结果可以被回收。
+ */
+@ThreadSafe
+public final class SharedConfigurationCache {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(SharedConfigurationCache.class).useCurrentLocale();
+
+    /**
+     * 共享的实例。
+     */
+    private static final SharedConfigurationCache INSTANCE = new SharedConfigurationCache();
+
+    /**
+     * 解析结果。
+     */
+    private final Map<String, SourceReference> sources = new ConcurrentHashMap<>();
+
+    /**
+     * 已回收的解析结果。
+     */
+    private final ReferenceQueue<Source> queue = new ReferenceQueue<>();
+
+    /**
+     * 构造器。
+     */
+    SharedConfigurationCache() {
+    }
+
+    /**
+     * 获取共享的实例。
+     *
+     * @return 共享的实例。
+     */
+    @Nonnull
+    public static SharedConfigurationCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 解析配置文件内容，内容相同时使用已有的解析结果。
+     *
+     * @param content
+     *     配置文件内容。
+     * @return 只读的系统配置，每次调用返回新的对象，共享解析结果。
+     * @throws ConfigurationException
+     *     解析失败。
+     */
+    @Nonnull
+    public AbstractConfiguration load(@Nonnull byte[] content)
+        throws ConfigurationException {
+        expungeStaleSources();
+        String digest = digest(content);
+        SourceReference reference = sources.get(digest);
+        Source source = reference == null ? null : reference.get();
+        if (source == null) {
+            source = parse(content);
+            // 并发解析同一内容时使用先放入的结果
+            SourceReference newReference = new SourceReference(digest, source, queue);
+            while (true) {
+                SourceReference existing = sources.putIfAbsent(digest, newReference);
+                if (existing == null) {
+                    break;
+                }
+                Source existingSource = existing.get();
+                if (existingSource != null) {
+                    source = existingSource;
+                    break;
+                }
+                if (sources.replace(digest, existing, newReference)) {
+                    break;
+                }
+            }
+        }
+        return new SharedConfiguration(source);
+    }
+
+    /**
+     * 获取缓存的解析结果数。
+     *
+     * @return 解析结果数。
+     */
+    public int size() {
+        expungeStaleSources();
+        return sources.size();
+    }
+
+    /**
+     * 删除已回收的解析结果。
+     */
+    private void expungeStaleSources() {
+        for (Object reference = queue.poll(); reference != null; reference = queue.poll()) {
+            SourceReference sourceReference = (SourceReference) reference;
+            sources.remove(sourceReference.digest, sourceReference);
+        }
+    }
+
+    /**
+     * 计算内容摘要。
+     */
+    private static String digest(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new UncheckedException(e);
+        }
+    }
+
+    /**
+     * 解析配置文件内容，驻留键和值。
+     */
+    private static Source parse(byte[] content)
+        throws ConfigurationException {
+        PropertiesConfiguration config = new PropertiesConfiguration();
+        new FileHandler(config).load(new ByteArrayInputStream(content));
+
+        Map<String, Object> values = new HashMap<>();
+        for (Iterator<String> keys = config.getKeys(); keys.hasNext();) {
+            String key = keys.next();
+            values.put(key.intern(), intern(config.getProperty(key)));
+        }
+        return new Source(Collections.unmodifiableMap(values));
+    }
+
+    /**
+     * 驻留值中的字符串。
+     */
+    private static Object intern(Object value) {
+        if (value instanceof String string) {
+            return string.intern();
+        }
+        if (value instanceof Collection<?> collection) {
+            List<Object> list = new ArrayList<>(collection.size());
+            for (Object element : collection) {
+                list.add(intern(element));
+            }
+            return Collections.unmodifiableList(list);
+        }
+        return value;
+    }
+
+    /**
+     * 解析结果。
+     */
+    private static final class Source {
+        /**
+         * 未替换变量的值。
+         */
+        final Map<String, Object> values;
+
+        /**
+         * 构造器。
+         */
+        Source(Map<String, Object> values) {
+            this.values = values;
+        }
+    }
+
+    /**
+     * 解析结果的弱引用。
+     */
+    private static final class SourceReference
+        extends WeakReference<Source> {
+        /**
+         * 内容摘要。
+         */
+        final String digest;
+
+        /**
+         * 构造器。
+         */
+        SourceReference(String digest, Source source, ReferenceQueue<Source> queue) {
+            super(source, queue);
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * 共享解析结果的只读配置，按自身的配置项替换变量，与 {@link PropertiesConfiguration} 一致。
+     */
+    private static final class SharedConfiguration
+        extends AbstractConfiguration {
+        /**
+         * 解析结果。
+         */
+        private final Source source;
+
+        /**
+         * 构造器。
+         */
+        SharedConfiguration(Source source) {
+            this.source = source;
+        }
+
+        @Override
+        protected void addPropertyDirect(String key, Object value) {
+            throw new UnsupportedOperationException(RBMF.get("共享的配置不可修改"));
+        }
+
+        @Override
+        protected void clearPropertyDirect(String key) {
+            throw new UnsupportedOperationException(RBMF.get("共享的配置不可修改"));
+        }
+
+        @Override
+        protected boolean containsKeyInternal(String key) {
+            return source.values.containsKey(key);
+        }
+
+        @Override
+        protected boolean containsValueInternal(Object value) {
+            return source.values.containsValue(value);
+        }
+
+        @Override
+        protected Iterator<String> getKeysInternal() {
+            return source.values.keySet().iterator();
+        }
+
+        @Override
+        protected Object getPropertyInternal(String key) {
+            return source.values.get(key);
+        }
+
+        @Override
+        protected boolean isEmptyInternal() {
+            return source.values.isEmpty();
+        }
+
+        @Override
+        protected int sizeInternal() {
+            return source.values.size();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.apache.commons.configuration2.PropertiesConfiguration;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 流式的属性文件加载器。按覆盖顺序从低到高逐个加载属性文件，每个文件从输入流中一次读完，
+ * 直接合并到同一个扁平的键值表中，不为每个文件建立配置对象，键和重复的值只保留一份。
+ * 同一文件中重复的键组成列表，后加载的文件中出现的键整体覆盖先加载的值，与按覆盖顺序组合 {@link PropertiesConfiguration} 一致。
+ * 不处理 {@code include} 和 {@code includeoptional}，它们作为普通的配置项保留。
+ */
+@NotThreadSafe
+public class StreamingPropertiesLoader {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(StreamingPropertiesLoader.class).useCurrentLocale();
+
+    /**
+     * 合并后的值，单个值为字符串，多个值为字符串列表。
+     */
+    private Map<String, Object> values = new HashMap<>();
+
+    /**
+     * 字符串池，用于去除重复的键和值。
+     */
+    private Map<String, String> strings = new HashMap<>();
+
+    /**
+     * 加载一个属性文件，编码与 {@link PropertiesConfiguration} 的默认编码相同，为 ISO-8859-1。
+     *
+     * @param input
+     *     属性文件的输入流，加载后关闭。
+     * @return 本对象。
+     * @throws IOException
+     *     读取失败。
+     * @throws IllegalStateException
+     *     已结束加载。
+     */
+    @Nonnull
+    public StreamingPropertiesLoader load(@Nonnull InputStream input)
+        throws IOException {
+        if (values == null) {
+            throw new IllegalStateException(RBMF.get("加载已结束"));
+        }
+
+        Set<String> layerKeys = new HashSet<>();
+        try (PropertiesConfiguration.PropertiesReader reader = new PropertiesConfiguration.PropertiesReader(
+            new InputStreamReader(input, StandardCharsets.ISO_8859_1))) {
+            while (reader.nextProperty()) {
+                String key = dedupe(reader.getPropertyName());
+                String value = dedupe(reader.getPropertyValue());
+                if (layerKeys.add(key)) {
+                    // 本文件中第一次出现，覆盖先加载的值
+                    values.put(key, value);
+                } else {
+                    addValue(key, value);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 为同一文件中重复的键追加值。
+     */
+    @SuppressWarnings("unchecked")
+    private void addValue(String key, String value) {
+        Object oldValue = values.get(key);
+        List<String> list;
+        if (oldValue instanceof ArrayList) {
+            list = (List<String>) oldValue;
+        } else {
+            list = new ArrayList<>(2);
+            list.add((String) oldValue);
+            values.put(key, list);
+        }
+        list.add(value);
+    }
+
+    /**
+     * 从字符串池中取得相同的字符串。
+     */
+    private String dedupe(String string) {
+        String pooled = strings.putIfAbsent(string, string);
+        return pooled == null ? string : pooled;
+    }
+
+    /**
+     * 结束加载，创建只读的系统配置。之后不能再加载。
+     *
+     * @return 系统配置。
+     * @throws IllegalStateException
+     *     已结束加载。
+     */
+    @Nonnull
+    public CompactConfiguration build() {
+        if (values == null) {
+            throw new IllegalStateException(RBMF.get("加载已结束"));
+        }
+
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getValue() instanceof ArrayList<?> list) {
+                list.trimToSize();
+                entry.setValue(Collections.unmodifiableList(list));
+            }
+        }
+        CompactConfiguration config = new CompactConfiguration(Collections.unmodifiableMap(values));
+        values = null;
+        strings = null;
+        return config;
+    }
+}
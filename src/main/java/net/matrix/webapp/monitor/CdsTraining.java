@@ -0,0 +1,247 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.monitor;
+
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * 类数据共享（AppCDS）训练。记录初始化各阶段加载的类数，初始化完成后通过 {@code VM.cds dynamic_dump} 诊断命令生成动态归档，
+ * 并在输出目录中写入训练报告 {@value #REPORT_FILE} 和生产环境使用的 JVM 参数 {@value #OPTIONS_FILE}。
+ * 生成归档要求 JVM 以 {@code -XX:+RecordDynamicDumpInfo} 启动，否则只写入报告；JVM 类路径中不能有非空目录。
+ * 归档是否包含 Web 应用类加载器加载的类取决于 JDK 版本，容器和 JDK 自身的类总会包含。
+ * 不使用 Java 代理无法测量单个类的加载时间，报告按阶段给出加载的类数和墙钟时间，并行执行的阶段的类数会互相计入。
+ */
+@ThreadSafe
+public class CdsTraining {
+    /**
+     * 训练报告的文件名。
+     */
+    public static final String REPORT_FILE = "cds-training.json";
+
+    /**
+     * JVM 参数的文件名。
+     */
+    public static final String OPTIONS_FILE = "cds-options.txt";
+
+    /**
+     * 动态归档的文件名。
+     */
+    public static final String ARCHIVE_FILE = "system.jsa";
+
+    /**
+     * 日志记录器。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(CdsTraining.class);
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(CdsTraining.class).useCurrentLocale();
+
+    /**
+     * 类加载管理接口。
+     */
+    private static final ClassLoadingMXBean CLASS_LOADING_MX_BEAN = ManagementFactory.getClassLoadingMXBean();
+
+    /**
+     * 输出目录。
+     */
+    @Nonnull
+    private final Path outputDirectory;
+
+    /**
+     * 开始时已加载的类数。
+     */
+    private final long startLoadedClassCount;
+
+    /**
+     * 各阶段的类加载记录。
+     */
+    private final List<PhaseClassLoading> phases = new CopyOnWriteArrayList<>();
+
+    /**
+     * 构造器。
+     *
+     * @param outputDirectory
+     *     输出目录。
+     */
+    public CdsTraining(@Nonnull Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+        this.startLoadedClassCount = CLASS_LOADING_MX_BEAN.getTotalLoadedClassCount();
+    }
+
+    /**
+     * 获取输出目录。
+     *
+     * @return 输出目录。
+     */
+    @Nonnull
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    /**
+     * 执行并记录一个阶段。
+     *
+     * @param phaseName
+     *     阶段名。
+     * @param action
+     *     阶段动作。
+     */
+    public void measure(@Nonnull String phaseName, @Nonnull Runnable action) {
+        long beginNanos = System.nanoTime();
+        long beginCount = CLASS_LOADING_MX_BEAN.getTotalLoadedClassCount();
+        try {
+            action.run();
+        } finally {
+            long classesLoaded = CLASS_LOADING_MX_BEAN.getTotalLoadedClassCount() - beginCount;
+            phases.add(new PhaseClassLoading(phaseName, classesLoaded, System.nanoTime() - beginNanos));
+        }
+    }
+
+    /**
+     * 获取各阶段的类加载记录，按加载的类数从多到少排列。
+     *
+     * @return 类加载记录。
+     */
+    @Nonnull
+    public List<PhaseClassLoading> getPhases() {
+        List<PhaseClassLoading> sortedPhases = new ArrayList<>(phases);
+        sortedPhases.sort(Comparator.comparingLong(PhaseClassLoading::classesLoaded).reversed());
+        return sortedPhases;
+    }
+
+    /**
+     * 结束训练，生成动态归档并写入报告。失败只记录日志。
+     *
+     * @return 动态归档，未生成时为 {@code null}。
+     */
+    @Nullable
+    public Path finish() {
+        Path archive = outputDirectory.resolve(ARCHIVE_FILE).toAbsolutePath();
+        String dumpOutput;
+        try {
+            Files.createDirectories(outputDirectory);
+            Files.deleteIfExists(archive);
+            dumpOutput = dynamicDump(archive);
+        } catch (IOException | JMException | RuntimeException e) {
+            LOG.warn(RBMF.get("类数据共享归档 {} 生成失败"), archive, e);
+            dumpOutput = String.valueOf(e);
+        }
+        boolean dumped = Files.exists(archive);
+
+        try {
+            Files.writeString(outputDirectory.resolve(REPORT_FILE), toJson(archive, dumped, dumpOutput), StandardCharsets.UTF_8);
+            String options;
+            if (dumped) {
+                options = "-XX:SharedArchiveFile=" + archive + System.lineSeparator();
+            } else {
+                // 没有生成归档时给出训练运行的参数
+                options = "-XX:ArchiveClassesAtExit=" + archive + System.lineSeparator();
+            }
+            Files.writeString(outputDirectory.resolve(OPTIONS_FILE), options, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LOG.warn(RBMF.get("类数据共享训练报告写入 {} 失败"), outputDirectory, e);
+        }
+
+        if (dumped) {
+            LOG.info(RBMF.get("类数据共享归档 {} 已生成，生产环境使用 JVM 参数 -XX:SharedArchiveFile={}"), archive, archive);
+            return archive;
+        }
+        LOG.warn(RBMF.get("类数据共享归档未生成，需要以 -XX:+RecordDynamicDumpInfo 启动 JVM：{}"), dumpOutput.strip());
+        return null;
+    }
+
+    /**
+     * 通过诊断命令生成动态归档。
+     *
+     * @param archive
+     *     动态归档。
+     * @return 诊断命令的输出。
+     * @throws JMException
+     *     诊断命令不可用。
+     */
+    private static String dynamicDump(Path archive)
+        throws JMException {
+        ObjectName diagnosticCommand = new ObjectName("com.sun.management:type=DiagnosticCommand");
+        Object output = ManagementFactory.getPlatformMBeanServer().invoke(diagnosticCommand, "vmCds", new Object[] {
+            new String[] {
+                "dynamic_dump", archive.toString()
+            }
+        }, new String[] {
+            String[].class.getName()
+        });
+        return String.valueOf(output);
+    }
+
+    /**
+     * 生成 JSON 格式的训练报告。
+     */
+    private String toJson(Path archive, boolean dumped, String dumpOutput) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"loadedClassCount\":").append(CLASS_LOADING_MX_BEAN.getLoadedClassCount());
+        json.append(",\"totalLoadedClassCount\":").append(CLASS_LOADING_MX_BEAN.getTotalLoadedClassCount());
+        json.append(",\"trainingLoadedClassCount\":").append(CLASS_LOADING_MX_BEAN.getTotalLoadedClassCount() - startLoadedClassCount);
+        json.append(",\"uptimeMillis\":").append(ManagementFactory.getRuntimeMXBean().getUptime());
+        json.append(",\"archive\":");
+        StartupReport.appendJsonString(json, archive.toString());
+        json.append(",\"archiveDumped\":").append(dumped);
+        json.append(",\"dumpOutput\":");
+        StartupReport.appendJsonString(json, dumpOutput.strip());
+        json.append(",\"phases\":[");
+        boolean first = true;
+        for (PhaseClassLoading phase : getPhases()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"name\":");
+            StartupReport.appendJsonString(json, phase.name());
+            json.append(",\"classesLoaded\":").append(phase.classesLoaded());
+            json.append(",\"wallNanos\":").append(phase.wallNanos());
+            json.append('}');
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    /**
+     * 阶段的类加载记录。
+     *
+     * @param name
+     *     阶段名。
+     * @param classesLoaded
+     *     阶段中加载的类数，包括并发执行的其它阶段加载的类。
+     * @param wallNanos
+     *     墙钟时间（纳秒）。
+     */
+    public record PhaseClassLoading(String name, long classesLoaded, long wallNanos) {
+        @Override
+        public String toString() {
+            return String.format("%s classes=%d wall=%dms", name, classesLoaded, TimeUnit.NANOSECONDS.toMillis(wallNanos));
+        }
+    }
+}
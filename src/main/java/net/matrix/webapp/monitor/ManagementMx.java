@@ -0,0 +1,96 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.monitor;
+
+import java.lang.management.ManagementFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jakarta.servlet.ServletContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+
+/**
+ * JMX 工具。
+ */
+@ThreadSafe
+public final class ManagementMx {
+    /**
+     * 日志记录器。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(ManagementMx.class);
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(ManagementMx.class).useCurrentLocale();
+
+    /**
+     * MBean 名称的域。
+     */
+    private static final String DOMAIN = "net.matrix.webapp";
+
+    /**
+     * 阻止实例化。
+     */
+    private ManagementMx() {
+    }
+
+    /**
+     * 在平台 MBean 服务器中注册 Web 应用的 MBean，已有同名 MBean 时替换。注册失败只记录日志。
+     *
+     * @param mbean
+     *     MBean。
+     * @param type
+     *     MBean 类型。
+     * @param servletContext
+     *     Servlet 上下文，用于区分同一 JVM 中的 Web 应用。
+     * @return MBean 名称，注册失败时为 {@code null}。
+     */
+    @Nullable
+    public static ObjectName registerMBean(@Nonnull Object mbean, @Nonnull String type, @Nonnull ServletContext servletContext) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=" + type + ",context=" + ObjectName.quote(servletContext.getContextPath()));
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+            return name;
+        } catch (JMException e) {
+            LOG.warn(RBMF.get("MBean {} 注册失败"), type, e);
+            return null;
+        }
+    }
+
+    /**
+     * 从平台 MBean 服务器中注销 MBean。注销失败只记录日志。
+     *
+     * @param name
+     *     MBean 名称，{@code null} 时忽略。
+     */
+    public static void unregisterMBean(@Nullable ObjectName name) {
+        if (name == null) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOG.warn(RBMF.get("MBean {} 注销失败"), name, e);
+        }
+    }
+}
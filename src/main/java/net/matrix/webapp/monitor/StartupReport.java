@@ -0,0 +1,325 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 启动报告，记录启动过程中各阶段的墙钟时间、CPU 时间和分配的内存。
+ * 阶段可以嵌套，例如加载配置阶段中包括每个配置文件的加载，通过开始时间和线程区分。
+ * 启动完成后调用 {@link #finish()}，之后结束的阶段不再记录，例如按需加载的配置文件。
+ */
+@ThreadSafe
+public class StartupReport
+    implements StartupReportMBean {
+    /**
+     * 线程管理接口。
+     */
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    /**
+     * 报告名称。
+     */
+    @Nonnull
+    private final String name;
+
+    /**
+     * 报告开始的时间（纳秒）。
+     */
+    private final long startNanos;
+
+    /**
+     * 阶段耗时记录。
+     */
+    private final List<PhaseTiming> timings = new CopyOnWriteArrayList<>();
+
+    /**
+     * 是否已停止记录。
+     */
+    private volatile boolean finished;
+
+    /**
+     * 构造器。
+     *
+     * @param name
+     *     报告名称。
+     */
+    public StartupReport(@Nonnull String name) {
+        this.name = name;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取报告名称。
+     *
+     * @return 报告名称。
+     */
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 开始记录一个阶段，在同一线程中调用 {@link Measurement#end(boolean)} 结束。
+     *
+     * @param phaseName
+     *     阶段名。
+     * @return 阶段测量。
+     */
+    @Nonnull
+    public Measurement begin(@Nonnull String phaseName) {
+        return new Measurement(phaseName);
+    }
+
+    /**
+     * 执行并记录一个阶段。
+     *
+     * @param phaseName
+     *     阶段名。
+     * @param action
+     *     阶段动作。
+     */
+    public void measure(@Nonnull String phaseName, @Nonnull Runnable action) {
+        Measurement measurement = begin(phaseName);
+        boolean failed = true;
+        try {
+            action.run();
+            failed = false;
+        } finally {
+            measurement.end(failed);
+        }
+    }
+
+    /**
+     * 停止记录，之后结束的阶段不再记录。
+     */
+    public void finish() {
+        finished = true;
+    }
+
+    /**
+     * 判断是否已停止记录。
+     *
+     * @return 是否已停止记录。
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * 获取阶段耗时记录，按结束顺序排列。
+     *
+     * @return 阶段耗时记录。
+     */
+    @Nonnull
+    public List<PhaseTiming> getTimings() {
+        return List.copyOf(timings);
+    }
+
+    @Override
+    public int getPhaseCount() {
+        return timings.size();
+    }
+
+    @Override
+    public long getTotalWallTimeMillis() {
+        long endNanos = 0;
+        for (PhaseTiming timing : timings) {
+            endNanos = Math.max(endNanos, timing.startNanos() + timing.wallNanos());
+        }
+        return TimeUnit.NANOSECONDS.toMillis(endNanos);
+    }
+
+    @Override
+    public String[] getPhaseSummaries() {
+        return timings.stream().map(PhaseTiming::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"name\":");
+        appendJsonString(json, name);
+        json.append(",\"totalWallTimeMillis\":").append(getTotalWallTimeMillis());
+        json.append(",\"phases\":[");
+        boolean first = true;
+        for (PhaseTiming timing : timings) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"name\":");
+            appendJsonString(json, timing.name());
+            json.append(",\"thread\":");
+            appendJsonString(json, timing.threadName());
+            json.append(",\"startNanos\":").append(timing.startNanos());
+            json.append(",\"wallNanos\":").append(timing.wallNanos());
+            json.append(",\"cpuNanos\":").append(timing.cpuNanos());
+            json.append(",\"allocatedBytes\":").append(timing.allocatedBytes());
+            json.append(",\"failed\":").append(timing.failed());
+            json.append('}');
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    /**
+     * 输出 JSON 字符串。
+     *
+     * @param json
+     *     JSON 文本。
+     * @param value
+     *     字符串。
+     */
+    static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int index = 0; index < value.length(); index++) {
+            char ch = value.charAt(index);
+            switch (ch) {
+            case '"':
+                json.append("\\\"");
+                break;
+            case '\\':
+                json.append("\\\\");
+                break;
+            case '\n':
+                json.append("\\n");
+                break;
+            case '\r':
+                json.append("\\r");
+                break;
+            case '\t':
+                json.append("\\t");
+                break;
+            default:
+                if (ch < 0x20) {
+                    json.append(String.format("\\u%04x", (int) ch));
+                } else {
+                    json.append(ch);
+                }
+                break;
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * 获取当前线程的 CPU 时间。
+     *
+     * @return CPU 时间（纳秒），不支持时为 -1。
+     */
+    private static long currentThreadCpuTime() {
+        if (!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+            return -1;
+        }
+        return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * 获取当前线程分配的内存。
+     *
+     * @return 分配的内存（字节），不支持时为 -1。
+     */
+    private static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean sunThreadMXBean && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return sunThreadMXBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * 计算差值，任一值不可用时为 -1。
+     */
+    private static long difference(long end, long start) {
+        if (end < 0 || start < 0) {
+            return -1;
+        }
+        return end - start;
+    }
+
+    /**
+     * 一个阶段的测量。
+     */
+    public final class Measurement {
+        /**
+         * 阶段名。
+         */
+        private final String phaseName;
+
+        /**
+         * 开始时间（纳秒）。
+         */
+        private final long beginNanos;
+
+        /**
+         * 开始时的 CPU 时间（纳秒）。
+         */
+        private final long beginCpuNanos;
+
+        /**
+         * 开始时已分配的内存（字节）。
+         */
+        private final long beginAllocatedBytes;
+
+        /**
+         * 构造器。
+         */
+        Measurement(String phaseName) {
+            this.phaseName = phaseName;
+            this.beginNanos = System.nanoTime();
+            this.beginCpuNanos = currentThreadCpuTime();
+            this.beginAllocatedBytes = currentThreadAllocatedBytes();
+        }
+
+        /**
+         * 结束测量并记录，报告已停止记录时忽略。
+         *
+         * @param failed
+         *     阶段是否失败。
+         */
+        public void end(boolean failed) {
+            if (finished) {
+                return;
+            }
+            long wallNanos = System.nanoTime() - beginNanos;
+            long cpuNanos = difference(currentThreadCpuTime(), beginCpuNanos);
+            long allocatedBytes = difference(currentThreadAllocatedBytes(), beginAllocatedBytes);
+            timings.add(new PhaseTiming(phaseName, Thread.currentThread().getName(), beginNanos - startNanos, wallNanos, cpuNanos, allocatedBytes, failed));
+        }
+    }
+
+    /**
+     * 阶段耗时记录。
+     *
+     * @param name
+     *     阶段名。
+     * @param threadName
+     *     执行阶段的线程名。
+     * @param startNanos
+     *     相对报告开始的开始时间（纳秒）。
+     * @param wallNanos
+     *     墙钟时间（纳秒）。
+     * @param cpuNanos
+     *     CPU 时间（纳秒），不可用时为 -1。
+     * @param allocatedBytes
+     *     分配的内存（字节），不可用时为 -1。
+     * @param failed
+     *     是否失败。
+     */
+    public record PhaseTiming(String name, String threadName, long startNanos, long wallNanos, long cpuNanos, long allocatedBytes, boolean failed) {
+        @Override
+        public String toString() {
+            return String.format("%s [%s] +%dms wall=%dms cpu=%dms alloc=%dB%s", name, threadName, TimeUnit.NANOSECONDS.toMillis(startNanos),
+                TimeUnit.NANOSECONDS.toMillis(wallNanos), TimeUnit.NANOSECONDS.toMillis(cpuNanos), allocatedBytes, failed ? " failed" : "");
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.monitor;
+
+/**
+ * 启动报告的 JMX 接口。
+ */
+public interface StartupReportMBean {
+    /**
+     * 获取记录的阶段数。
+     *
+     * @return 阶段数。
+     */
+    int getPhaseCount();
+
+    /**
+     * 获取从开始到最后一个阶段结束的墙钟时间。
+     *
+     * @return 墙钟时间（毫秒）。
+     */
+    long getTotalWallTimeMillis();
+
+    /**
+     * 获取各阶段的摘要。
+     *
+     * @return 各阶段的摘要。
+     */
+    String[] getPhaseSummaries();
+
+    /**
+     * 以 JSON 格式输出报告。
+     *
+     * @return JSON 文本。
+     */
+    String toJson();
+}
@@ -0,0 +1,387 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.monitor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 运行指标。计数器和计时器基于 {@link LongAdder}，记录时不加锁，适合在请求路径上使用。<br>
+ * 本模块的指标记录在 {@link #getInstance()} 中，默认不记录，由 {@link #setEnabled(boolean)} 开启；
+ * 多个 Web 应用共用同一个实例时，使用 {@link #retain()} 和 {@link #release()} 按使用者计数开启。
+ * 指标名称数量有上限，超出后的新名称合并计入 {@link #OVERFLOW_NAME}，以免按配置键等记录时无限增长。
+ */
+@ThreadSafe
+public class SystemMetrics
+    implements SystemMetricsMBean {
+    /**
+     * 名称数量超出上限后使用的名称。
+     */
+    public static final String OVERFLOW_NAME = "<other>";
+
+    /**
+     * 默认的名称数量上限。
+     */
+    private static final int DEFAULT_MAX_NAMES = 4096;
+
+    /**
+     * 本模块使用的运行指标。
+     */
+    private static final SystemMetrics INSTANCE = new SystemMetrics(DEFAULT_MAX_NAMES);
+
+    /**
+     * 名称数量上限。
+     */
+    private final int maxNames;
+
+    /**
+     * 计数器。
+     */
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 计时器。
+     */
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * 是否记录指标。
+     */
+    private volatile boolean enabled;
+
+    /**
+     * 通过 {@link #retain()} 开启记录的使用者数。
+     */
+    private final AtomicInteger users = new AtomicInteger();
+
+    /**
+     * 构造器。
+     *
+     * @param maxNames
+     *     计数器和计时器各自的名称数量上限。
+     */
+    public SystemMetrics(int maxNames) {
+        this.maxNames = maxNames;
+    }
+
+    /**
+     * 获取本模块使用的运行指标。每个加载本模块的类加载器有一个实例。
+     *
+     * @return 运行指标。
+     */
+    @Nonnull
+    public static SystemMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 增加一个使用者并开启记录，不再使用时调用 {@link #release()}。
+     */
+    public void retain() {
+        synchronized (users) {
+            users.incrementAndGet();
+            enabled = true;
+        }
+    }
+
+    /**
+     * 减少一个使用者，最后一个使用者释放后停止记录。
+     */
+    public void release() {
+        synchronized (users) {
+            if (users.get() > 0 && users.decrementAndGet() == 0) {
+                enabled = false;
+            }
+        }
+    }
+
+    /**
+     * 获取计数器，没有时创建。
+     *
+     * @param name
+     *     名称。
+     * @return 计数器。
+     */
+    @Nonnull
+    public Counter getCounter(@Nonnull String name) {
+        Counter counter = counters.get(name);
+        if (counter != null) {
+            return counter;
+        }
+        if (counters.size() >= maxNames) {
+            name = OVERFLOW_NAME;
+        }
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * 获取计时器，没有时创建。
+     *
+     * @param name
+     *     名称。
+     * @return 计时器。
+     */
+    @Nonnull
+    public Timer getTimer(@Nonnull String name) {
+        Timer timer = timers.get(name);
+        if (timer != null) {
+            return timer;
+        }
+        if (timers.size() >= maxNames) {
+            name = OVERFLOW_NAME;
+        }
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * 获取全部计数器。
+     *
+     * @return 计数器，按名称排序。
+     */
+    @Nonnull
+    public Map<String, Counter> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    /**
+     * 获取全部计时器。
+     *
+     * @return 计时器，按名称排序。
+     */
+    @Nonnull
+    public Map<String, Timer> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    @Override
+    public String[] getCounterSummaries() {
+        List<String> summaries = new ArrayList<>();
+        for (Map.Entry<String, Counter> entry : getCounters().entrySet()) {
+            summaries.add(entry.getKey() + " count=" + entry.getValue().getCount());
+        }
+        return summaries.toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getTimerSummaries() {
+        List<String> summaries = new ArrayList<>();
+        for (Map.Entry<String, Timer> entry : getTimers().entrySet()) {
+            Timer timer = entry.getValue();
+            summaries.add(entry.getKey() + " count=" + timer.getCount() + " totalNanos=" + timer.getTotalNanos() + " maxNanos=" + timer.getMaxNanos()
+                + " p50Nanos<=" + timer.getPercentileNanos(0.5) + " p99Nanos<=" + timer.getPercentileNanos(0.99));
+        }
+        return summaries.toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getTopCounters(String prefix, int limit) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                entries.add(Map.entry(entry.getKey(), entry.getValue().getCount()));
+            }
+        }
+        entries.sort(Map.Entry.<String, Long> comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+
+        List<String> summaries = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : entries.subList(0, Math.min(Math.max(limit, 0), entries.size()))) {
+            summaries.add(entry.getKey() + " count=" + entry.getValue());
+        }
+        return summaries.toArray(new String[0]);
+    }
+
+    @Override
+    public void reset() {
+        // 清零而不删除，已取得的计数器和计时器仍然有效
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+    }
+
+    /**
+     * 计数器。
+     */
+    @ThreadSafe
+    public static final class Counter {
+        /**
+         * 计数。
+         */
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * 构造器。
+         */
+        Counter() {
+        }
+
+        /**
+         * 计数加一。
+         */
+        public void increment() {
+            count.increment();
+        }
+
+        /**
+         * 获取计数。
+         *
+         * @return 计数。
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * 清零。
+         */
+        void reset() {
+            count.reset();
+        }
+    }
+
+    /**
+     * 计时器。按 2 的幂次分桶记录耗时分布，百分位数是所在桶的上界。
+     */
+    @ThreadSafe
+    public static final class Timer {
+        /**
+         * 分桶数，覆盖全部非负 long 值。
+         */
+        private static final int BUCKET_COUNT = Long.SIZE;
+
+        /**
+         * 次数。
+         */
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * 总耗时（纳秒）。
+         */
+        private final LongAdder totalNanos = new LongAdder();
+
+        /**
+         * 最大耗时（纳秒）。
+         */
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        /**
+         * 各桶的次数，第 i 个桶记录小于 2 的 i 次幂纳秒的耗时。
+         */
+        private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+        /**
+         * 构造器。
+         */
+        Timer() {
+            for (int index = 0; index < BUCKET_COUNT; index++) {
+                buckets[index] = new LongAdder();
+            }
+        }
+
+        /**
+         * 记录一次耗时。
+         *
+         * @param nanos
+         *     耗时（纳秒），负数按 0 计。
+         */
+        public void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulate(value);
+            buckets[BUCKET_COUNT - Long.numberOfLeadingZeros(value)].increment();
+        }
+
+        /**
+         * 获取次数。
+         *
+         * @return 次数。
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * 获取总耗时。
+         *
+         * @return 总耗时（纳秒）。
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * 获取最大耗时。
+         *
+         * @return 最大耗时（纳秒）。
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * 获取耗时的近似百分位数。
+         *
+         * @param percentile
+         *     百分位，0 到 1 之间。
+         * @return 百分位数所在桶的上界（纳秒），没有记录时为 0。
+         */
+        public long getPercentileNanos(double percentile) {
+            long[] counts = new long[BUCKET_COUNT];
+            long total = 0;
+            for (int index = 0; index < BUCKET_COUNT; index++) {
+                counts[index] = buckets[index].sum();
+                total += counts[index];
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int index = 0; index < BUCKET_COUNT; index++) {
+                seen += counts[index];
+                if (seen >= rank && counts[index] > 0) {
+                    return index >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << index) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * 清零。
+         */
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+        }
+    }
+}
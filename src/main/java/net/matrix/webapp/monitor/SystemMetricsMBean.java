@@ -0,0 +1,55 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.monitor;
+
+/**
+ * 运行指标的 JMX 接口。
+ */
+public interface SystemMetricsMBean {
+    /**
+     * 判断是否记录指标。
+     *
+     * @return 是否记录指标。
+     */
+    boolean isEnabled();
+
+    /**
+     * 设置是否记录指标。
+     *
+     * @param enabled
+     *     是否记录指标。
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * 获取各计数器的摘要。
+     *
+     * @return 各计数器的摘要，按名称排序。
+     */
+    String[] getCounterSummaries();
+
+    /**
+     * 获取各计时器的摘要。
+     *
+     * @return 各计时器的摘要，按名称排序。
+     */
+    String[] getTimerSummaries();
+
+    /**
+     * 获取计数最大的计数器，用于发现热点配置键等。
+     *
+     * @param prefix
+     *     计数器名称前缀。
+     * @param limit
+     *     最多返回的个数。
+     * @return 计数器摘要，按计数从大到小排序。
+     */
+    String[] getTopCounters(String prefix, int limit);
+
+    /**
+     * 清零全部指标。
+     */
+    void reset();
+}
@@ -0,0 +1,8 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+/**
+ * Web 应用系统的监控工具。
+ */
+package net.matrix.webapp.monitor;
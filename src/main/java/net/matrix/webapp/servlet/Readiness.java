@@ -0,0 +1,127 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 系统就绪状态，注册在系统环境中。控制器启动和预热完成后就绪，启动失败后不会再就绪。
+ */
+@ThreadSafe
+public class Readiness {
+    /**
+     * 状态。
+     */
+    public enum State {
+        /**
+         * 正在启动。
+         */
+        STARTING,
+        /**
+         * 已就绪。
+         */
+        READY,
+        /**
+         * 启动失败。
+         */
+        FAILED
+    }
+
+    /**
+     * 当前状态。
+     */
+    private volatile State state = State.STARTING;
+
+    /**
+     * 启动失败的原因。
+     */
+    private volatile Throwable failure;
+
+    /**
+     * 获取当前状态。
+     *
+     * @return 当前状态。
+     */
+    @Nonnull
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 判断是否已就绪。
+     *
+     * @return 是否已就绪。
+     */
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    /**
+     * 获取启动失败的原因。
+     *
+     * @return 启动失败的原因，未失败时为 {@code null}。
+     */
+    @Nullable
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * 标记为已就绪，唤醒等待的线程。
+     */
+    public synchronized void markReady() {
+        if (state == State.STARTING) {
+            state = State.READY;
+            notifyAll();
+        }
+    }
+
+    /**
+     * 标记为启动失败，唤醒等待的线程。
+     *
+     * @param cause
+     *     失败原因。
+     */
+    public synchronized void markFailed(@Nonnull Throwable cause) {
+        if (state == State.STARTING) {
+            failure = cause;
+            state = State.FAILED;
+            notifyAll();
+        }
+    }
+
+    /**
+     * 等待就绪。
+     *
+     * @param timeout
+     *     最长等待时间。
+     * @param unit
+     *     时间单位。
+     * @return 是否已就绪，启动失败时立即返回 {@code false}。
+     * @throws InterruptedException
+     *     等待被中断。
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (state == State.READY) {
+            return true;
+        }
+        synchronized (this) {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (state == State.STARTING) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return state == State.READY;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+import net.matrix.webapp.WebSystemContext;
+import net.matrix.webapp.WebSystemContextMx;
+
+/**
+ * 就绪过滤器，注册在 web.xml 中配合 {@link SystemInitializeListener} 的异步启动使用。
+ * 系统就绪前的请求最多等待过滤器参数 {@code readyTimeout} 指定的时间（毫秒，默认 0），仍未就绪时返回 503。
+ */
+public class ReadinessFilter
+    implements Filter {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(ReadinessFilter.class).useCurrentLocale();
+
+    /**
+     * 等待就绪时间的过滤器参数名。
+     */
+    private static final String READY_TIMEOUT_PARAM = "readyTimeout";
+
+    /**
+     * 就绪状态。
+     */
+    protected Readiness readiness;
+
+    /**
+     * 等待就绪的时间（毫秒）。
+     */
+    protected long readyTimeout;
+
+    @Override
+    public void init(FilterConfig filterConfig)
+        throws ServletException {
+        WebSystemContext context = WebSystemContextMx.getRequiredCachedWebSystemContext(filterConfig.getServletContext());
+        readiness = context.lookupObject(Readiness.class);
+        if (readiness == null) {
+            throw new ServletException(RBMF.get("系统环境中没有就绪状态"));
+        }
+        readyTimeout = NumberUtils.toLong(filterConfig.getInitParameter(READY_TIMEOUT_PARAM), 0);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        if (readiness.isReady() || awaitReady()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ((HttpServletResponse) response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * 在等待时间内等待就绪。
+     *
+     * @return 是否已就绪。
+     */
+    private boolean awaitReady() {
+        if (readyTimeout <= 0) {
+            return false;
+        }
+        try {
+            return readiness.awaitReady(readyTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
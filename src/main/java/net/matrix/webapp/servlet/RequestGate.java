@@ -0,0 +1,102 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * 请求闸门，记录正在处理的请求数。关闭后不再接纳新请求，并可以等待已接纳的请求完成。
+ */
+@ThreadSafe
+public class RequestGate
+    implements RequestGateMBean {
+    /**
+     * 正在处理的请求数。
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 是否已关闭。
+     */
+    private volatile boolean closed;
+
+    /**
+     * 尝试接纳一个请求，接纳后必须调用 {@link #exit()}。
+     *
+     * @return 是否接纳。
+     */
+    public boolean enter() {
+        inFlight.incrementAndGet();
+        if (closed) {
+            exit();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 结束一个已接纳的请求。
+     */
+    public void exit() {
+        if (inFlight.decrementAndGet() == 0 && closed) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 等待已接纳的请求全部完成。
+     *
+     * @param timeout
+     *     最长等待时间。
+     * @param unit
+     *     时间单位。
+     * @return 是否已全部完成。
+     * @throws InterruptedException
+     *     等待被中断。
+     */
+    public synchronized boolean awaitDrain(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (inFlight.get() > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean drain(long timeout) {
+        close();
+        try {
+            return awaitDrain(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.io.IOException;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+import net.matrix.webapp.WebSystemContext;
+import net.matrix.webapp.WebSystemContextMx;
+
+/**
+ * 请求闸门过滤器，注册在 web.xml 中配合 {@link SystemInitializeListener} 记录正在处理的请求，
+ * 闸门关闭后对新请求返回 503，使停止前钩子可以等待已接纳的请求完成。异步请求在异步处理完成时结束。
+ */
+public class RequestGateFilter
+    implements Filter {
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(RequestGateFilter.class).useCurrentLocale();
+
+    /**
+     * 请求闸门。
+     */
+    protected RequestGate requestGate;
+
+    @Override
+    public void init(FilterConfig filterConfig)
+        throws ServletException {
+        WebSystemContext context = WebSystemContextMx.getRequiredCachedWebSystemContext(filterConfig.getServletContext());
+        requestGate = context.lookupObject(RequestGate.class);
+        if (requestGate == null) {
+            throw new ServletException(RBMF.get("系统环境中没有请求闸门"));
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            // 只在最初的请求中计数
+            chain.doFilter(request, response);
+            return;
+        }
+        if (!requestGate.enter()) {
+            ((HttpServletResponse) response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ExitListener(requestGate));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                requestGate.exit();
+            }
+        }
+    }
+
+    /**
+     * 异步处理完成时结束请求。
+     */
+    private static final class ExitListener
+        implements AsyncListener {
+        /**
+         * 请求闸门。
+         */
+        private final RequestGate requestGate;
+
+        /**
+         * 构造器。
+         */
+        ExitListener(RequestGate requestGate) {
+            this.requestGate = requestGate;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            requestGate.exit();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // 超时后仍会完成
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // 出错后仍会完成
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 重新开始异步处理时需要重新注册
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
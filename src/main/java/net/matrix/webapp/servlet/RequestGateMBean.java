@@ -0,0 +1,38 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+/**
+ * 请求闸门的 JMX 接口。容器开始停止 Web 应用前，由停止前钩子调用 {@link #drain(long)} 关闭闸门并等待请求完成。
+ */
+public interface RequestGateMBean {
+    /**
+     * 判断是否已关闭。
+     *
+     * @return 是否已关闭。
+     */
+    boolean isClosed();
+
+    /**
+     * 获取正在处理的请求数。
+     *
+     * @return 请求数。
+     */
+    int getInFlight();
+
+    /**
+     * 关闭闸门，不再接纳新请求。
+     */
+    void close();
+
+    /**
+     * 关闭闸门并等待已接纳的请求全部完成。
+     *
+     * @param timeout
+     *     最长等待时间（毫秒）。
+     * @return 是否已全部完成。
+     */
+    boolean drain(long timeout);
+}
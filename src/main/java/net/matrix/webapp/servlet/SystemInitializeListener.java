@@ -4,23 +4,50 @@
  */
 package net.matrix.webapp.servlet;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.management.ObjectName;
+
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.ServletContextListener;
 
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import net.matrix.app.SystemController;
 import net.matrix.app.message.CodedMessageDefinitionLoader;
 import net.matrix.org.slf4j.SLF4Jmx;
 import net.matrix.text.ResourceBundleMessageFormatter;
+import net.matrix.webapp.CompositeSystemController;
 import net.matrix.webapp.DefaultWebSystemContext;
+import net.matrix.webapp.ManagedExecutors;
+import net.matrix.webapp.PhaseExecutor;
+import net.matrix.webapp.Warmup;
 import net.matrix.webapp.WebSystemContext;
 import net.matrix.webapp.WebSystemContextMx;
+import net.matrix.webapp.monitor.CdsTraining;
+import net.matrix.webapp.monitor.ManagementMx;
+import net.matrix.webapp.monitor.StartupReport;
+import net.matrix.webapp.monitor.SystemMetrics;
 
 /**
- * 系统初始化监听器，注册在 web.xml 中被容器调用初始化、启动和停止。
+ * 系统初始化监听器，注册在 web.xml 中被容器调用初始化、启动和停止。<br>
+ * 停止时先关闭请求闸门，在停止等待时间内等待已接纳的请求（例如异步请求）完成，再停止控制器，全部共用一个截止时间。
+ * 容器调用 {@link #contextDestroyed(ServletContextEvent)} 时多数请求已经结束，需要在容器停止分派请求前排空时，
+ * 在停止前钩子中调用 MBean {@code net.matrix.webapp:type=RequestGate} 的 {@link RequestGateMBean#drain(long)} 操作。<br>
+ * MBean 在启动阶段之前注册，启动失败时也可以查看启动报告：开启 {@value #JMX_ENABLED_PARAM} 时注册启动报告和请求闸门，
+ * 开启 {@value #METRICS_ENABLED_PARAM} 时注册运行指标。
  */
 public class SystemInitializeListener
     implements ServletContextListener {
@@ -34,6 +61,51 @@ public class SystemInitializeListener
      */
     private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(SystemInitializeListener.class).useCurrentLocale();
 
+    /**
+     * 并行初始化开关的 Servlet 上下文参数名。开启后 {@link #loadMessageDefinitions()} 和 {@link #loadConfig()} 可能并发执行。
+     */
+    private static final String PARALLEL_INITIALIZE_PARAM = "systemInitializeParallel";
+
+    /**
+     * 停止等待时间（毫秒）的 Servlet 上下文参数名。大于 0 时限制排空请求和控制器停止的总时间。
+     */
+    private static final String SHUTDOWN_TIMEOUT_PARAM = "systemShutdownTimeout";
+
+    /**
+     * 未设置停止等待时间时，停止前等待后台启动结束的最长时间（毫秒）。
+     */
+    private static final long DEFAULT_START_WAIT = 30000;
+
+    /**
+     * 运行指标开关的 Servlet 上下文参数名。开启后记录系统环境查找、配置读取、资源解析和控制器生命周期的指标，停止时关闭。
+     */
+    private static final String METRICS_ENABLED_PARAM = "systemMetricsEnabled";
+
+    /**
+     * JMX 开关的 Servlet 上下文参数名。开启后把启动报告和请求闸门注册为 MBean。
+     */
+    private static final String JMX_ENABLED_PARAM = "systemJmxEnabled";
+
+    /**
+     * 异步启动开关的 Servlet 上下文参数名。开启后控制器初始化完成即返回，控制器启动和预热在后台执行，完成后系统就绪。
+     */
+    private static final String START_ASYNC_PARAM = "systemStartAsync";
+
+    /**
+     * 类数据共享训练开关的 Servlet 上下文参数名。开启后记录各阶段加载的类数，启动完成后通过 {@link CdsTraining} 生成归档和报告。
+     */
+    private static final String CDS_TRAINING_PARAM = "systemCdsTraining";
+
+    /**
+     * 类数据共享训练输出目录的 Servlet 上下文参数名，默认为 Servlet 容器临时目录下的 {@value #CDS_TRAINING_DIRECTORY}。
+     */
+    private static final String CDS_TRAINING_OUTPUT_PARAM = "systemCdsTrainingOutput";
+
+    /**
+     * 类数据共享训练默认的输出目录名。
+     */
+    private static final String CDS_TRAINING_DIRECTORY = "cds";
+
     /**
      * Servlet 上下文。
      */
@@ -44,35 +116,314 @@ public class SystemInitializeListener
      */
     protected WebSystemContext context;
 
+    /**
+     * 启动报告，启动阶段结束（异步启动时为后台启动结束）或初始化失败后停止记录。
+     */
+    protected StartupReport startupReport;
+
+    /**
+     * 请求闸门，配合 {@link RequestGateFilter} 使用。
+     */
+    protected RequestGate requestGate;
+
+    /**
+     * 就绪状态，配合 {@link ReadinessFilter} 使用。
+     */
+    protected Readiness readiness;
+
+    /**
+     * 后台启动的结果，同步启动时为 {@code null}。
+     */
+    private Future<?> startFuture;
+
+    /**
+     * 是否开启了运行指标，停止时释放。
+     */
+    private boolean metricsRetained;
+
+    /**
+     * 类数据共享训练，未开启时为 {@code null}。
+     */
+    private CdsTraining cdsTraining;
+
+    /**
+     * 启动报告的 MBean 名称。
+     */
+    private ObjectName startupReportName;
+
+    /**
+     * 运行指标的 MBean 名称。
+     */
+    private ObjectName metricsName;
+
+    /**
+     * 请求闸门的 MBean 名称。
+     */
+    private ObjectName requestGateName;
+
     @Override
     public void contextInitialized(ServletContextEvent sce) {
         servletContext = sce.getServletContext();
+        startupReport = new StartupReport(servletContext.getContextPath());
+        requestGate = new RequestGate();
+        readiness = new Readiness();
+        if (BooleanUtils.toBoolean(servletContext.getInitParameter(CDS_TRAINING_PARAM))) {
+            cdsTraining = new CdsTraining(getCdsTrainingOutput());
+        }
+        if (BooleanUtils.toBoolean(servletContext.getInitParameter(METRICS_ENABLED_PARAM))) {
+            // 运行指标可能由同一 JVM 中的多个 Web 应用共用，按使用者计数
+            SystemMetrics.getInstance().retain();
+            metricsRetained = true;
+        }
 
         LOG.info(RBMF.get("系统环境 {} 初始化开始"), servletContext.getServletContextName());
 
+        try {
+            PhaseExecutor phases = createInitializePhases();
+            if (BooleanUtils.toBoolean(servletContext.getInitParameter(PARALLEL_INITIALIZE_PARAM))) {
+                ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                try {
+                    phases.execute(executor, this::measurePhase);
+                } finally {
+                    executor.shutdownNow();
+                }
+            } else {
+                phases.executeSequentially(this::measurePhase);
+            }
+            registerMBeans();
+        } catch (RuntimeException | Error e) {
+            startupReport.finish();
+            throw e;
+        }
+        if (BooleanUtils.toBoolean(servletContext.getInitParameter(START_ASYNC_PARAM))) {
+            startAsync();
+        } else {
+            start();
+        }
+
+        LOG.info(RBMF.get("系统环境 {} 初始化完成"), servletContext.getServletContextName());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(RBMF.get("系统环境 {} 启动报告 {}"), servletContext.getServletContextName(), startupReport.toJson());
+        }
+    }
+
+    /**
+     * 创建初始化阶段，执行到控制器初始化为止。顺序执行时按声明顺序执行，遇到第一个失败即停止；并行执行时互不依赖的阶段并发执行。
+     *
+     * @return 初始化阶段。
+     */
+    protected PhaseExecutor createInitializePhases() {
+        PhaseExecutor phases = new PhaseExecutor();
         // JUL 配置
-        SLF4Jmx.bridgeJUL();
+        phases.addPhase("bridgeJUL", SLF4Jmx::bridgeJUL);
         // 加载 jar 包中的消息定义
-        CodedMessageDefinitionLoader.loadBuiltinDefinitions();
-
+        phases.addPhase("loadBuiltinDefinitions", CodedMessageDefinitionLoader::loadBuiltinDefinitions, "bridgeJUL");
         // 初始化系统环境
-        context = new DefaultWebSystemContext(servletContext);
+        phases.addPhase("createContext", this::createContext, "bridgeJUL");
+        // 配置资源加载
+        phases.addPhase("setupResourceLoader", this::setupResourceLoader, "createContext");
+        // 加载消息定义
+        phases.addPhase("loadMessageDefinitions", this::loadMessageDefinitions, "loadBuiltinDefinitions", "setupResourceLoader");
+        // 加载配置，子类设置的配置在这里生效，默认配置在第一次使用时加载
+        phases.addPhase("loadConfig", this::loadConfig, "setupResourceLoader");
+        // 初始化控制器
+        phases.addPhase("createController", () -> context.getController(), "loadConfig");
+        phases.addPhase("initController", () -> timeController("controller.init", () -> context.getController().init()), "createController",
+            "loadMessageDefinitions", "loadConfig");
+        return phases;
+    }
+
+    /**
+     * 创建启动阶段，在初始化阶段全部完成后按声明顺序执行，完成后系统就绪。
+     *
+     * @return 启动阶段。
+     */
+    protected PhaseExecutor createStartPhases() {
+        PhaseExecutor phases = new PhaseExecutor();
+        // 启动控制器
+        phases.addPhase("startController", () -> timeController("controller.start", () -> context.getController().start()));
+        // 预热
+        phases.addPhase("warmup", this::warmup, "startController");
+        return phases;
+    }
+
+    /**
+     * 执行启动阶段并标记就绪状态。
+     */
+    private void start() {
+        try {
+            createStartPhases().executeSequentially(this::measurePhase);
+        } catch (RuntimeException | Error e) {
+            readiness.markFailed(e);
+            throw e;
+        } finally {
+            // 之后按需加载的配置等不计入启动报告
+            startupReport.finish();
+        }
+        readiness.markReady();
+        if (cdsTraining != null) {
+            cdsTraining.finish();
+        }
+    }
+
+    /**
+     * 按 Servlet 上下文参数注册 MBean。
+     */
+    private void registerMBeans() {
+        if (BooleanUtils.toBoolean(servletContext.getInitParameter(JMX_ENABLED_PARAM))) {
+            startupReportName = ManagementMx.registerMBean(startupReport, "StartupReport", servletContext);
+            requestGateName = ManagementMx.registerMBean(requestGate, "RequestGate", servletContext);
+        }
+        if (metricsRetained) {
+            metricsName = ManagementMx.registerMBean(SystemMetrics.getInstance(), "SystemMetrics", servletContext);
+        }
+    }
+
+    /**
+     * 执行并记录一个阶段。
+     *
+     * @param name
+     *     阶段名。
+     * @param action
+     *     阶段动作。
+     */
+    private void measurePhase(String name, Runnable action) {
+        if (cdsTraining == null) {
+            startupReport.measure(name, action);
+        } else {
+            cdsTraining.measure(name, () -> startupReport.measure(name, action));
+        }
+    }
+
+    /**
+     * 获取类数据共享训练的输出目录。
+     *
+     * @return 输出目录。
+     */
+    private Path getCdsTrainingOutput() {
+        String output = servletContext.getInitParameter(CDS_TRAINING_OUTPUT_PARAM);
+        if (StringUtils.isNotBlank(output)) {
+            return Path.of(output.strip());
+        }
+        if (servletContext.getAttribute(ServletContext.TEMPDIR) instanceof File tempDirectory) {
+            return tempDirectory.toPath().resolve(CDS_TRAINING_DIRECTORY);
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"), CDS_TRAINING_DIRECTORY);
+    }
+
+    /**
+     * 在后台线程中执行启动阶段，失败只记录日志，系统不会就绪。
+     */
+    private void startAsync() {
+        String contextName = servletContext.getServletContextName();
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "system-start");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            startFuture = executor.submit(() -> {
+                try {
+                    start();
+                    LOG.info(RBMF.get("系统环境 {} 已就绪"), contextName);
+                } catch (RuntimeException | Error e) {
+                    LOG.error(RBMF.get("系统环境 {} 启动失败"), contextName, e);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 创建系统环境。
+     */
+    private void createContext() {
+        DefaultWebSystemContext defaultContext = new DefaultWebSystemContext(servletContext);
+        context = defaultContext;
         context.registerObject(ServletContext.class, servletContext);
+        context.registerObject(StartupReport.class, startupReport);
+        context.registerObject(RequestGate.class, requestGate);
+        context.registerObject(Readiness.class, readiness);
+        context.registerObject(SystemMetrics.class, SystemMetrics.getInstance());
+        context.registerObject(Warmup.class, new Warmup());
+        // 执行器在第一次查找时创建，那时才读取系统配置
+        defaultContext.registerLazyObject(ManagedExecutors.class, () -> new ManagedExecutors(defaultContext.getConfig()));
         WebSystemContextMx.setWebSystemContext(servletContext, context);
+    }
 
-        // 配置资源加载
-        setupResourceLoader();
-        // 加载消息定义
-        loadMessageDefinitions();
-        // 加载配置
-        loadConfig();
+    /**
+     * 执行控制器生命周期动作并记录耗时。
+     *
+     * @param name
+     *     计时器名称。
+     * @param action
+     *     生命周期动作。
+     */
+    private static void timeController(String name, Runnable action) {
+        SystemMetrics metrics = SystemMetrics.getInstance();
+        if (!metrics.isEnabled()) {
+            action.run();
+            return;
+        }
 
-        // 初始化控制器
-        SystemController controller = context.getController();
-        controller.init();
-        controller.start();
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            metrics.getTimer(name).record(System.nanoTime() - start);
+        }
+    }
 
-        LOG.info(RBMF.get("系统环境 {} 初始化完成"), servletContext.getServletContextName());
+    /**
+     * 执行系统配置中声明的和控制器添加的预热任务，完成后系统才开始接受请求。
+     * 没有添加预热任务、系统配置也不可能包含预热配置时直接返回，按需加载的系统配置不会因此加载。
+     */
+    protected void warmup() {
+        Warmup warmup = context.lookupObject(Warmup.class);
+        if (warmup.getTaskNames().isEmpty() && !mayContainWarmupConfig()) {
+            return;
+        }
+
+        warmup.addConfiguredTasks(context.getConfig());
+        if (warmup.getTaskNames().isEmpty()) {
+            return;
+        }
+
+        boolean completed;
+        ManagedExecutors executors = context.lookupObject(ManagedExecutors.class);
+        if (executors != null) {
+            completed = warmup.run(context, executors.getTaskExecutor());
+        } else {
+            // 系统环境中没有执行器时（例如被子类移除），使用临时的执行器
+            ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "system-warmup");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                completed = warmup.run(context, executor);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        if (completed) {
+            LOG.info(RBMF.get("系统环境 {} 预热完成"), servletContext.getServletContextName());
+        } else {
+            LOG.warn(RBMF.get("系统环境 {} 预热未全部完成"), servletContext.getServletContextName());
+        }
+    }
+
+    /**
+     * 判断系统配置是否可能包含预热配置。
+     *
+     * @return 是否可能包含。
+     */
+    private boolean mayContainWarmupConfig() {
+        if (context instanceof DefaultWebSystemContext defaultContext) {
+            return defaultContext.mayContainConfigKeys(Warmup.CONFIG_PREFIX);
+        }
+        return true;
     }
 
     /**
@@ -90,14 +441,168 @@ public class SystemInitializeListener
     }
 
     /**
-     * 加载系统配置。
+     * 加载系统配置。在默认的系统配置加载前调用，子类可以通过 {@link WebSystemContext#setConfig} 设置系统配置。
      */
     protected void loadConfig() {
         // 空实现
     }
 
+    /**
+     * 关闭请求闸门并排空请求，停止控制器并关闭系统环境。设置了停止等待时间时，控制器未按时停止则推迟到停止后关闭系统环境。
+     */
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
-        context.getController().stop();
+        long shutdownTimeout = NumberUtils.toLong(servletContext.getInitParameter(SHUTDOWN_TIMEOUT_PARAM), 0);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeout);
+        drainRequests(shutdownTimeout);
+        if (shutdownTimeout > 0) {
+            awaitStart(getRemainingTime(deadline));
+            stopController(getRemainingTime(deadline), this::closeContext);
+        } else {
+            awaitStart(0);
+            timeController("controller.stop", () -> context.getController().stop());
+            closeContext();
+        }
+        ManagementMx.unregisterMBean(startupReportName);
+        ManagementMx.unregisterMBean(metricsName);
+        ManagementMx.unregisterMBean(requestGateName);
+        startupReportName = null;
+        metricsName = null;
+        requestGateName = null;
+        if (metricsRetained) {
+            SystemMetrics.getInstance().release();
+            metricsRetained = false;
+        }
+    }
+
+    /**
+     * 获取距截止时间的剩余时间，至少为 1 毫秒，以免被当作未设置停止等待时间。
+     */
+    private static long getRemainingTime(long deadline) {
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1);
+    }
+
+    /**
+     * 关闭请求闸门，停止等待时间大于 0 时等待已接纳的请求完成。
+     *
+     * @param timeout
+     *     最长等待时间（毫秒）。
+     */
+    private void drainRequests(long timeout) {
+        requestGate.close();
+        if (timeout <= 0) {
+            return;
+        }
+
+        try {
+            if (!requestGate.awaitDrain(timeout, TimeUnit.MILLISECONDS)) {
+                LOG.warn(RBMF.get("系统环境 {} 有 {} 个请求在 {} 毫秒内未完成"), servletContext.getServletContextName(), requestGate.getInFlight(), timeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn(RBMF.get("系统环境 {} 等待请求完成被中断"), servletContext.getServletContextName());
+        }
+    }
+
+    /**
+     * 关闭系统环境。
+     */
+    private void closeContext() {
+        if (context instanceof DefaultWebSystemContext defaultContext) {
+            defaultContext.close();
+        }
+    }
+
+    /**
+     * 等待后台启动结束，超时后中断启动线程。
+     *
+     * @param timeout
+     *     最长等待时间（毫秒），不大于 0 时最多等待 {@value #DEFAULT_START_WAIT} 毫秒。
+     */
+    private void awaitStart(long timeout) {
+        if (startFuture == null) {
+            return;
+        }
+
+        String contextName = servletContext.getServletContextName();
+        long wait = timeout > 0 ? timeout : DEFAULT_START_WAIT;
+        try {
+            startFuture.get(wait, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn(RBMF.get("系统环境 {} 的控制器在 {} 毫秒内未启动"), contextName, wait);
+            startFuture.cancel(true);
+        } catch (ExecutionException e) {
+            // 启动失败已记录日志
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn(RBMF.get("系统环境 {} 等待控制器启动被中断"), contextName);
+        }
+    }
+
+    /**
+     * 在后台线程中停止控制器，最多等待指定的时间，之后执行停止后的动作。
+     * 超时后中断停止线程并记录未停止的组件和已创建的执行器，停止后的动作推迟到控制器真正停止后在停止线程中执行。
+     *
+     * @param shutdownTimeout
+     *     最长等待时间（毫秒）。
+     * @param afterStop
+     *     停止后的动作，例如关闭系统环境。
+     */
+    protected void stopController(long shutdownTimeout, Runnable afterStop) {
+        String contextName = servletContext.getServletContextName();
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "system-controller-stop");
+            thread.setDaemon(true);
+            return thread;
+        });
+        boolean stopped = false;
+        Future<?> future = executor.submit(() -> timeController("controller.stop", () -> context.getController().stop()));
+        try {
+            future.get(shutdownTimeout, TimeUnit.MILLISECONDS);
+            stopped = true;
+        } catch (TimeoutException e) {
+            LOG.warn(RBMF.get("系统环境 {} 的控制器在 {} 毫秒内未停止，未停止的组件 {}，已创建的执行器 {}，系统环境在控制器停止后关闭"), contextName, shutdownTimeout,
+                getRunningComponentNames(), getExecutorNames());
+        } catch (ExecutionException e) {
+            LOG.error(RBMF.get("系统环境 {} 的控制器停止失败"), contextName, e.getCause());
+            stopped = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn(RBMF.get("系统环境 {} 等待控制器停止被中断，系统环境在控制器停止后关闭"), contextName);
+        }
+        if (stopped) {
+            executor.shutdown();
+            afterStop.run();
+            return;
+        }
+
+        // 中断停止动作，单线程执行器在停止动作真正返回后才执行下一个任务
+        future.cancel(true);
+        executor.execute(afterStop);
+        executor.shutdown();
+    }
+
+    /**
+     * 获取未停止的组件名，控制器不是 {@link CompositeSystemController} 时为空。
+     */
+    private List<String> getRunningComponentNames() {
+        if (context.getController() instanceof CompositeSystemController compositeController) {
+            return compositeController.getRunningComponentNames();
+        }
+        return List.of();
+    }
+
+    /**
+     * 获取已创建的执行器名称，不创建执行器。
+     */
+    private List<String> getExecutorNames() {
+        ManagedExecutors executors = null;
+        if (context instanceof DefaultWebSystemContext defaultContext) {
+            executors = defaultContext.lookupCreatedObject(ManagedExecutors.class);
+        }
+        if (executors == null) {
+            return List.of();
+        }
+        return executors.getExecutorNames();
     }
 }
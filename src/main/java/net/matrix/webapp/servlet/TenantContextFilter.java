@@ -0,0 +1,257 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+import net.matrix.webapp.WebSystemContext;
+import net.matrix.webapp.WebSystemContextHolder;
+import net.matrix.webapp.tenant.TenantContextRegistry;
+import net.matrix.webapp.tenant.TenantResolver;
+import net.matrix.webapp.tenant.TenantWebSystemContext;
+
+/**
+ * 多租户过滤器，注册在 web.xml 中，从请求中解析租户标识，把租户的系统环境绑定到当前线程，通过 {@link WebSystemContextHolder} 读取。
+ * 租户的系统环境在第一次请求时创建，空闲一段时间后停止。过滤器初始化参数：
+ * <ul>
+ * <li>{@code tenantResolver}：{@code header:请求头名}、{@code host} 或 {@code path}，默认 {@code header:X-Tenant-Id}</li>
+ * <li>{@code tenantConfigLocation}：租户的系统配置位置，{@code {tenant}} 替换为租户标识，含 {@code {tenant}} 的文件都不存在时视为没有该租户</li>
+ * <li>{@code tenantIdleTimeout}：空闲时间（毫秒），默认 1800000，0 表示不停止</li>
+ * <li>{@code tenantRetryDelay}：租户的系统环境创建失败后的重试间隔（毫秒），默认 30000</li>
+ * </ul>
+ * 映射异步派发时，异步派发沿用最初请求的租约，租约在整个异步处理完成后结束。
+ * 没有租户标识或没有该租户时返回 404。租户索引保存在 Servlet 上下文属性 {@link #REGISTRY_ATTRIBUTE} 中。
+ */
+public class TenantContextFilter
+    implements Filter {
+    /**
+     * 保存租户索引的 Servlet 上下文属性名。
+     */
+    public static final String REGISTRY_ATTRIBUTE = TenantContextRegistry.class.getName();
+
+    /**
+     * 保存租约的请求属性名。
+     */
+    private static final String LEASE_ATTRIBUTE = TenantContextRegistry.Lease.class.getName();
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(TenantContextFilter.class).useCurrentLocale();
+
+    /**
+     * 租户标识在配置位置中的占位符。
+     */
+    private static final String TENANT_PLACEHOLDER = "{tenant}";
+
+    /**
+     * 默认的租户系统配置位置。
+     */
+    private static final String DEFAULT_CONFIG_LOCATION = "/WEB-INF/sysconfig.cfg,/WEB-INF/tenants/" + TENANT_PLACEHOLDER + ".cfg";
+
+    /**
+     * Servlet 上下文。
+     */
+    protected ServletContext servletContext;
+
+    /**
+     * 租户解析器。
+     */
+    protected TenantResolver tenantResolver;
+
+    /**
+     * 租户索引。
+     */
+    protected TenantContextRegistry registry;
+
+    /**
+     * 租户的系统配置位置模板。
+     */
+    private List<String> configLocations;
+
+    @Override
+    public void init(FilterConfig filterConfig)
+        throws ServletException {
+        servletContext = filterConfig.getServletContext();
+        tenantResolver = createTenantResolver(StringUtils.defaultIfBlank(filterConfig.getInitParameter("tenantResolver"), "header:X-Tenant-Id"));
+        configLocations = List.of(StringUtils.stripAll(
+            StringUtils.split(StringUtils.defaultIfBlank(filterConfig.getInitParameter("tenantConfigLocation"), DEFAULT_CONFIG_LOCATION), ",; \t\n")));
+        long idleTimeout = NumberUtils.toLong(filterConfig.getInitParameter("tenantIdleTimeout"), 1800000);
+        long retryDelay = NumberUtils.toLong(filterConfig.getInitParameter("tenantRetryDelay"), 30000);
+
+        registry = new TenantContextRegistry(this::createTenantContext, idleTimeout, retryDelay);
+        registry.start();
+        servletContext.setAttribute(REGISTRY_ATTRIBUTE, registry);
+    }
+
+    /**
+     * 根据描述创建租户解析器。
+     *
+     * @param spec
+     *     描述。
+     * @return 租户解析器。
+     * @throws ServletException
+     *     描述无效。
+     */
+    protected TenantResolver createTenantResolver(String spec)
+        throws ServletException {
+        if (spec.startsWith("header:") && spec.length() > "header:".length()) {
+            return TenantResolver.header(spec.substring("header:".length()));
+        }
+        if ("host".equals(spec)) {
+            return TenantResolver.host();
+        }
+        if ("path".equals(spec)) {
+            return TenantResolver.pathSegment();
+        }
+        throw new ServletException(RBMF.format("租户解析器描述 {0} 无效", spec));
+    }
+
+    /**
+     * 创建租户的系统环境。
+     *
+     * @param tenantId
+     *     租户标识。
+     * @return 系统环境，没有该租户时为 {@code null}。
+     */
+    protected WebSystemContext createTenantContext(String tenantId) {
+        List<String> tenantConfigLocations = new ArrayList<>();
+        boolean found = false;
+        for (String configLocation : configLocations) {
+            String tenantConfigLocation = StringUtils.replace(configLocation, TENANT_PLACEHOLDER, tenantId);
+            if (!tenantConfigLocation.equals(configLocation) && isResourceFound(tenantConfigLocation)) {
+                found = true;
+            }
+            tenantConfigLocations.add(tenantConfigLocation);
+        }
+        if (!found) {
+            return null;
+        }
+
+        TenantWebSystemContext context = new TenantWebSystemContext(servletContext, tenantId, tenantConfigLocations);
+        context.registerObject(ServletContext.class, servletContext);
+        return context;
+    }
+
+    /**
+     * 判断资源是否存在。
+     */
+    private boolean isResourceFound(String location) {
+        try {
+            return servletContext.getResource(StringUtils.substringBefore(location, "#")) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        if (request.getDispatcherType() == DispatcherType.ASYNC
+            && request.getAttribute(LEASE_ATTRIBUTE) instanceof TenantContextRegistry.Lease asyncLease) {
+            // 租约由最初请求注册的监听器结束，再次开始异步处理时监听器会重新注册
+            WebSystemContext previous = WebSystemContextHolder.bind(asyncLease.getContext());
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                WebSystemContextHolder.restore(previous);
+            }
+            return;
+        }
+
+        String tenantId = tenantResolver.resolveTenant((HttpServletRequest) request);
+        TenantContextRegistry.Lease lease = tenantId == null ? null : registry.acquire(tenantId);
+        if (lease == null) {
+            ((HttpServletResponse) response).sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        WebSystemContext previous = WebSystemContextHolder.bind(lease.getContext());
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.setAttribute(LEASE_ATTRIBUTE, lease);
+                request.getAsyncContext().addListener(new ReleaseListener(registry, lease));
+                async = true;
+            }
+        } finally {
+            WebSystemContextHolder.restore(previous);
+            if (!async) {
+                registry.release(lease);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        servletContext.removeAttribute(REGISTRY_ATTRIBUTE);
+        registry.close();
+    }
+
+    /**
+     * 异步处理完成时结束租约。
+     */
+    private static final class ReleaseListener
+        implements AsyncListener {
+        /**
+         * 租户索引。
+         */
+        private final TenantContextRegistry registry;
+
+        /**
+         * 租约。
+         */
+        private final TenantContextRegistry.Lease lease;
+
+        /**
+         * 构造器。
+         */
+        ReleaseListener(TenantContextRegistry registry, TenantContextRegistry.Lease lease) {
+            this.registry = registry;
+            this.lease = lease;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            registry.release(lease);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // 超时后仍会完成
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // 出错后仍会完成
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 重新开始异步处理时需要重新注册
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextAttributeEvent;
+import jakarta.servlet.ServletContextAttributeListener;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+import net.matrix.java.util.EnumerationIterable;
+import net.matrix.webapp.WebSystemContext;
+import net.matrix.webapp.WebSystemContextMx;
+import net.matrix.webapp.WebSystemContextRegistry;
+
+/**
+ * 系统环境属性监听器，注册在 web.xml 中把直接设置的 {@link WebSystemContext} 属性也记录到 {@link WebSystemContextRegistry}。
+ * Servlet 上下文初始化时索引已有的属性并把索引标记为完整，之后查找唯一的系统环境只检查索引。
+ * 系统环境属性被直接修改时同时使 {@link WebSystemContextMx} 缓存的根系统环境失效。
+ */
+public class WebSystemContextAttributeListener
+    implements ServletContextListener, ServletContextAttributeListener {
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ServletContext servletContext = sce.getServletContext();
+        WebSystemContextRegistry registry = WebSystemContextRegistry.getOrCreateRegistry(servletContext);
+        for (String attributeName : new EnumerationIterable<>(servletContext.getAttributeNames())) {
+            registry.update(attributeName, servletContext.getAttribute(attributeName));
+        }
+        registry.markComplete();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        // 空实现
+    }
+    @Override
+    public void attributeAdded(ServletContextAttributeEvent event) {
+        update(event.getServletContext(), event.getName(), null, event.getValue());
+    }
+
+    @Override
+    public void attributeRemoved(ServletContextAttributeEvent event) {
+        update(event.getServletContext(), event.getName(), event.getValue(), null);
+    }
+
+    @Override
+    public void attributeReplaced(ServletContextAttributeEvent event) {
+        // 事件中是旧值
+        ServletContext servletContext = event.getServletContext();
+        update(servletContext, event.getName(), event.getValue(), servletContext.getAttribute(event.getName()));
+    }
+
+    /**
+     * 更新系统环境索引和缓存。
+     *
+     * @param servletContext
+     *     Servlet 上下文。
+     * @param attributeName
+     *     属性名。
+     * @param oldAttribute
+     *     属性的旧值。
+     * @param attribute
+     *     属性的新值。
+     */
+    private void update(ServletContext servletContext, String attributeName, Object oldAttribute, Object attribute) {
+        if (oldAttribute instanceof WebSystemContext || attribute instanceof WebSystemContext) {
+            WebSystemContextMx.invalidateCachedWebSystemContext(servletContext);
+        }
+
+        WebSystemContextRegistry registry;
+        if (attribute instanceof WebSystemContext) {
+            registry = WebSystemContextRegistry.getOrCreateRegistry(servletContext);
+        } else {
+            registry = WebSystemContextRegistry.getRegistry(servletContext);
+        }
+        if (registry != null) {
+            registry.update(attributeName, attribute);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.io.IOException;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+
+import net.matrix.webapp.WebSystemContext;
+import net.matrix.webapp.WebSystemContextHolder;
+import net.matrix.webapp.WebSystemContextMx;
+
+/**
+ * 系统环境绑定过滤器，注册在 web.xml 中，在处理请求期间把系统环境绑定到当前线程，通过 {@link WebSystemContextHolder} 读取。
+ * 异步请求分派到其它线程时，过滤器需要同时映射 {@code ASYNC} 分派类型；{@link jakarta.servlet.AsyncContext#start(Runnable)}
+ * 的任务使用 {@link WebSystemContextHolder#wrap(Runnable)} 传递绑定。
+ */
+public class WebSystemContextFilter
+    implements Filter {
+    /**
+     * 系统环境。
+     */
+    protected WebSystemContext context;
+
+    @Override
+    public void init(FilterConfig filterConfig)
+        throws ServletException {
+        context = WebSystemContextMx.getRequiredCachedWebSystemContext(filterConfig.getServletContext());
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        // 嵌套的分派结束后恢复外层的绑定
+        WebSystemContext previous = WebSystemContextHolder.bind(context);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            WebSystemContextHolder.restore(previous);
+        }
+    }
+}
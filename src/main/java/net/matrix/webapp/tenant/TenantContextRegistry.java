@@ -0,0 +1,459 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.tenant;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.matrix.text.ResourceBundleMessageFormatter;
+import net.matrix.webapp.DefaultWebSystemContext;
+import net.matrix.webapp.WebSystemContext;
+
+/**
+ * 按租户标识索引的系统环境。租户的系统环境在第一次使用时创建并启动控制器，同一租户只创建一次；
+ * 空闲超过指定时间且没有正在处理的请求时停止控制器并移除，下次使用时重新创建。
+ * 创建或启动失败时清理已创建的部分，在重试间隔内直接抛出失败原因，不再重复创建。<br>
+ * 使用方式：{@link #acquire(String)} 取得系统环境，处理完成后 {@link #release(Lease)}。
+ */
+@ThreadSafe
+public class TenantContextRegistry
+    implements Closeable {
+    /**
+     * 日志记录器。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(TenantContextRegistry.class);
+
+    /**
+     * 区域相关资源。
+     */
+    private static final ResourceBundleMessageFormatter RBMF = new ResourceBundleMessageFormatter(TenantContextRegistry.class).useCurrentLocale();
+
+    /**
+     * 有效的租户标识，租户标识会用于拼接配置位置，不能包含路径分隔符。
+     */
+    private static final Pattern TENANT_ID_PATTERN = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_.-]{0,63}");
+
+    /**
+     * 租户系统环境的创建过程，返回 {@code null} 表示没有该租户。
+     */
+    @Nonnull
+    private final Function<String, WebSystemContext> factory;
+
+    /**
+     * 空闲时间（纳秒），0 表示不移除。
+     */
+    private final long idleTimeoutNanos;
+
+    /**
+     * 创建失败后的重试间隔（纳秒），0 表示下次使用时立即重试。
+     */
+    private final long retryDelayNanos;
+
+    /**
+     * 租户。
+     */
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    /**
+     * 定时移除空闲租户的执行器。
+     */
+    private ScheduledExecutorService evictor;
+
+    /**
+     * 是否已关闭，关闭后不再创建租户。
+     */
+    private volatile boolean closed;
+
+    /**
+     * 构造器，创建失败后下次使用时立即重试。
+     *
+     * @param factory
+     *     租户系统环境的创建过程，返回 {@code null} 表示没有该租户。
+     * @param idleTimeout
+     *     空闲时间（毫秒），0 表示不移除。
+     */
+    public TenantContextRegistry(@Nonnull Function<String, WebSystemContext> factory, long idleTimeout) {
+        this(factory, idleTimeout, 0);
+    }
+
+    /**
+     * 构造器。
+     *
+     * @param factory
+     *     租户系统环境的创建过程，返回 {@code null} 表示没有该租户。
+     * @param idleTimeout
+     *     空闲时间（毫秒），0 表示不移除。
+     * @param retryDelay
+     *     创建失败后的重试间隔（毫秒），0 表示下次使用时立即重试。
+     */
+    public TenantContextRegistry(@Nonnull Function<String, WebSystemContext> factory, long idleTimeout, long retryDelay) {
+        this.factory = factory;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(idleTimeout, 0));
+        this.retryDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(retryDelay, 0));
+    }
+
+    /**
+     * 判断租户标识是否有效。
+     *
+     * @param tenantId
+     *     租户标识。
+     * @return 是否有效。
+     */
+    public static boolean isValidTenantId(@Nullable String tenantId) {
+        return tenantId != null && TENANT_ID_PATTERN.matcher(tenantId).matches();
+    }
+
+    /**
+     * 开始在后台定时移除空闲的租户，检查间隔为空闲时间的一半。
+     */
+    public synchronized void start() {
+        if (closed || evictor != null || idleTimeoutNanos == 0) {
+            return;
+        }
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "system-tenant-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeoutNanos / 2, TimeUnit.SECONDS.toNanos(1));
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 取得租户的系统环境，没有时创建并启动控制器。
+     *
+     * @param tenantId
+     *     租户标识。
+     * @return 租约，租户标识无效、没有该租户或已关闭时为 {@code null}。
+     * @throws IllegalStateException
+     *     租户的系统环境创建失败，重试间隔内不再重复创建。
+     */
+    @Nullable
+    public Lease acquire(@Nonnull String tenantId) {
+        if (closed || !isValidTenantId(tenantId)) {
+            return null;
+        }
+        while (true) {
+            Tenant tenant = tenants.computeIfAbsent(tenantId, Tenant::new);
+            if (!tenant.enter()) {
+                // 正在被移除
+                tenants.remove(tenantId, tenant);
+                continue;
+            }
+            WebSystemContext context = null;
+            try {
+                context = tenant.getContext(factory, retryDelayNanos);
+            } finally {
+                if (context == null) {
+                    // 没有该租户或创建失败，没有其它请求时移除，下次重新创建；需要等待重试间隔时保留失败记录
+                    tenant.exit();
+                    if (tenant.context == null && !tenant.isRetryDelayed() && tenant.retire()) {
+                        tenants.remove(tenantId, tenant);
+                    }
+                }
+            }
+            if (context == null) {
+                return null;
+            }
+            if (closed) {
+                // 与 close() 并发时由最后一个请求停止
+                tenant.exit();
+                if (tenant.retire()) {
+                    tenants.remove(tenantId, tenant);
+                    tenant.stop();
+                }
+                return null;
+            }
+            return new Lease(tenant, context);
+        }
+    }
+
+    /**
+     * 结束租约，重复结束同一租约时忽略。
+     *
+     * @param lease
+     *     租约。
+     */
+    public void release(@Nonnull Lease lease) {
+        if (lease.released.compareAndSet(false, true)) {
+            lease.tenant.exit();
+        }
+    }
+
+    /**
+     * 获取已创建的租户标识。
+     *
+     * @return 租户标识。
+     */
+    @Nonnull
+    public Set<String> getTenantIds() {
+        return Set.copyOf(tenants.keySet());
+    }
+
+    /**
+     * 移除空闲超过指定时间的租户。
+     *
+     * @return 移除的租户数。
+     */
+    public int evictIdle() {
+        if (idleTimeoutNanos == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        int count = 0;
+        for (Tenant tenant : tenants.values()) {
+            if (now - tenant.lastAccess > idleTimeoutNanos && tenant.retire()) {
+                tenants.remove(tenant.tenantId, tenant);
+                tenant.stop();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 停止后台移除并停止全部租户，之后不再创建租户。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (evictor != null) {
+                evictor.shutdownNow();
+                evictor = null;
+            }
+        }
+        for (Tenant tenant : tenants.values()) {
+            tenants.remove(tenant.tenantId, tenant);
+            tenant.stop();
+        }
+    }
+
+    /**
+     * 租约，持有期间租户不会被移除。
+     */
+    public static final class Lease {
+        /**
+         * 租户。
+         */
+        private final Tenant tenant;
+
+        /**
+         * 系统环境。
+         */
+        private final WebSystemContext context;
+
+        /**
+         * 是否已结束。
+         */
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * 构造器。
+         */
+        Lease(Tenant tenant, WebSystemContext context) {
+            this.tenant = tenant;
+            this.context = context;
+        }
+
+        /**
+         * 获取租户标识。
+         *
+         * @return 租户标识。
+         */
+        @Nonnull
+        public String getTenantId() {
+            return tenant.tenantId;
+        }
+
+        /**
+         * 获取租户的系统环境。
+         *
+         * @return 系统环境。
+         */
+        @Nonnull
+        public WebSystemContext getContext() {
+            return context;
+        }
+    }
+
+    /**
+     * 租户。
+     */
+    private static final class Tenant {
+        /**
+         * 租户标识。
+         */
+        final String tenantId;
+
+        /**
+         * 正在处理的请求数，-1 表示已移除。
+         */
+        final AtomicInteger active = new AtomicInteger();
+
+        /**
+         * 最近一次使用的时间。
+         */
+        volatile long lastAccess = System.nanoTime();
+
+        /**
+         * 系统环境，创建完成后设置。
+         */
+        volatile WebSystemContext context;
+
+        /**
+         * 最近一次创建失败的原因。
+         */
+        RuntimeException failure;
+
+        /**
+         * 可以重试创建的时间。
+         */
+        long retryTime;
+
+        /**
+         * 构造器。
+         */
+        Tenant(String tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        /**
+         * 开始处理请求。
+         *
+         * @return 是否成功，已移除时失败。
+         */
+        boolean enter() {
+            while (true) {
+                int count = active.get();
+                if (count < 0) {
+                    return false;
+                }
+                if (active.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 结束处理请求。
+         */
+        void exit() {
+            lastAccess = System.nanoTime();
+            active.decrementAndGet();
+        }
+
+        /**
+         * 没有正在处理的请求时标记为已移除。
+         *
+         * @return 是否成功。
+         */
+        boolean retire() {
+            return active.compareAndSet(0, -1);
+        }
+
+        /**
+         * 是否在创建失败后的重试间隔内。
+         */
+        synchronized boolean isRetryDelayed() {
+            return failure != null && System.nanoTime() - retryTime < 0;
+        }
+
+        /**
+         * 获取系统环境，第一次调用时创建并启动控制器。创建失败时清理已创建的部分，重试间隔内直接抛出失败原因。
+         */
+        WebSystemContext getContext(Function<String, WebSystemContext> factory, long retryDelayNanos) {
+            WebSystemContext current = context;
+            if (current != null) {
+                return current;
+            }
+            synchronized (this) {
+                if (context != null) {
+                    return context;
+                }
+                if (isRetryDelayed()) {
+                    throw new IllegalStateException(RBMF.format("租户 {0} 的系统环境创建失败", tenantId), failure);
+                }
+                WebSystemContext created = null;
+                try {
+                    created = factory.apply(tenantId);
+                    if (created == null) {
+                        return null;
+                    }
+                    created.getController().init();
+                    created.getController().start();
+                } catch (RuntimeException e) {
+                    if (created != null) {
+                        dispose(created);
+                    }
+                    failure = e;
+                    retryTime = System.nanoTime() + retryDelayNanos;
+                    throw e;
+                }
+                failure = null;
+                LOG.info(RBMF.get("租户 {} 的系统环境已启动"), tenantId);
+                context = created;
+                return context;
+            }
+        }
+
+        /**
+         * 清理启动失败的系统环境。
+         */
+        private void dispose(WebSystemContext created) {
+            try {
+                created.getController().stop();
+            } catch (RuntimeException e) {
+                LOG.warn(RBMF.get("租户 {} 的系统环境停止失败"), tenantId, e);
+            }
+            if (created instanceof DefaultWebSystemContext defaultContext) {
+                try {
+                    defaultContext.close();
+                } catch (RuntimeException e) {
+                    LOG.warn(RBMF.get("租户 {} 的系统环境关闭失败"), tenantId, e);
+                }
+            }
+        }
+
+        /**
+         * 停止系统环境。
+         */
+        void stop() {
+            WebSystemContext current;
+            synchronized (this) {
+                current = context;
+                context = null;
+            }
+            if (current == null) {
+                return;
+            }
+            try {
+                current.getController().stop();
+                if (current instanceof DefaultWebSystemContext defaultContext) {
+                    defaultContext.close();
+                }
+                LOG.info(RBMF.get("租户 {} 的系统环境已停止"), tenantId);
+            } catch (RuntimeException e) {
+                LOG.error(RBMF.get("租户 {} 的系统环境停止失败"), tenantId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.tenant;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 从请求中解析租户标识。
+ */
+@FunctionalInterface
+public interface TenantResolver {
+    /**
+     * 解析租户标识。
+     *
+     * @param request
+     *     请求。
+     * @return 租户标识，没有时为 {@code null}。
+     */
+    @Nullable
+    String resolveTenant(@Nonnull HttpServletRequest request);
+
+    /**
+     * 从请求头解析租户标识。
+     *
+     * @param headerName
+     *     请求头名。
+     * @return 租户解析器。
+     */
+    @Nonnull
+    static TenantResolver header(@Nonnull String headerName) {
+        return request -> StringUtils.trimToNull(request.getHeader(headerName));
+    }
+
+    /**
+     * 从主机名的第一段解析租户标识，例如 {@code tenant1.example.com} 的租户标识为 {@code tenant1}。
+     *
+     * @return 租户解析器。
+     */
+    @Nonnull
+    static TenantResolver host() {
+        return request -> {
+            String serverName = request.getServerName();
+            if (serverName == null) {
+                return null;
+            }
+            int dot = serverName.indexOf('.');
+            if (dot <= 0) {
+                return null;
+            }
+            return serverName.substring(0, dot);
+        };
+    }
+
+    /**
+     * 从上下文路径之后的第一段路径解析租户标识，例如 {@code /app/tenant1/index} 的租户标识为 {@code tenant1}。
+     *
+     * @return 租户解析器。
+     */
+    @Nonnull
+    static TenantResolver pathSegment() {
+        return request -> {
+            String uri = request.getRequestURI();
+            int start = request.getContextPath().length();
+            if (uri == null || uri.length() <= start + 1 || uri.charAt(start) != '/') {
+                return null;
+            }
+            int end = uri.indexOf('/', start + 1);
+            return StringUtils.trimToNull(uri.substring(start + 1, end < 0 ? uri.length() : end));
+        };
+    }
+}
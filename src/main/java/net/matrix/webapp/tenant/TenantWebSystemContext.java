@@ -0,0 +1,62 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.tenant;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import jakarta.servlet.ServletContext;
+
+import net.matrix.webapp.DefaultWebSystemContext;
+
+/**
+ * 租户的系统环境，使用租户自己的系统配置位置，其它设置与 {@link DefaultWebSystemContext} 相同。
+ */
+public class TenantWebSystemContext
+    extends DefaultWebSystemContext {
+    /**
+     * 租户标识。
+     */
+    @Nonnull
+    private final String tenantId;
+
+    /**
+     * 系统配置位置。
+     */
+    @Nonnull
+    private final List<String> configLocations;
+
+    /**
+     * 构造器。
+     *
+     * @param servletContext
+     *     Servlet 上下文。
+     * @param tenantId
+     *     租户标识。
+     * @param configLocations
+     *     系统配置位置，按覆盖顺序从低到高排列。
+     */
+    public TenantWebSystemContext(@Nonnull ServletContext servletContext, @Nonnull String tenantId, @Nonnull List<String> configLocations) {
+        super(servletContext);
+        this.tenantId = tenantId;
+        this.configLocations = List.copyOf(configLocations);
+    }
+
+    /**
+     * 获取租户标识。
+     *
+     * @return 租户标识。
+     */
+    @Nonnull
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    @Override
+    protected List<String> getConfigLocations() {
+        return configLocations;
+    }
+}
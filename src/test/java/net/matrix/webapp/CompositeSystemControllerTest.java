@@ -0,0 +1,179 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockServletContext;
+
+import net.matrix.app.DefaultSystemController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompositeSystemControllerTest {
+    @Test
+    void testGetComponentNames() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CompositeSystemController controller = new CompositeSystemController();
+        controller.addComponent("search", new RecordingController("search", events), "db", "cache");
+        controller.addComponent("cache", new RecordingController("cache", events));
+        controller.addComponent("db", new RecordingController("db", events));
+        controller.addComponent("scheduler", new RecordingController("scheduler", events), "db");
+
+        assertThat(controller.getComponentNames()).containsExactly("db", "cache", "search", "scheduler");
+    }
+
+    @Test
+    void testInit() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CompositeSystemController controller = new CompositeSystemController();
+        controller.addComponent("db", new RecordingController("db", events));
+        controller.addComponent("search", new RecordingController("search", events), "db");
+        controller.addComponent("scheduler", new RecordingController("scheduler", events), "search");
+
+        controller.init();
+        controller.start();
+        assertThat(events).containsExactly("db.init", "search.init", "scheduler.init", "db.start", "search.start", "scheduler.start");
+        assertThat(controller.getRunningComponentNames()).containsExactly("db", "search", "scheduler");
+        events.clear();
+        controller.stop();
+        assertThat(events).containsExactly("scheduler.stop", "search.stop", "db.stop");
+        assertThat(controller.getRunningComponentNames()).isEmpty();
+    }
+
+    @Test
+    void testInit_parallel() {
+        CountDownLatch latch = new CountDownLatch(2);
+        CompositeSystemController controller = new CompositeSystemController();
+        controller.addComponent("cache", new LatchController(latch));
+        controller.addComponent("db", new LatchController(latch));
+
+        // 两个组件互相等待，只有并行初始化才能完成
+        controller.init();
+        assertThat(latch.getCount()).isZero();
+    }
+
+    @Test
+    void testInit_failure() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CompositeSystemController controller = new CompositeSystemController();
+        controller.addComponent("db", new FailingController());
+        controller.addComponent("search", new RecordingController("search", events), "db");
+        controller.addComponent("cache", new RecordingController("cache", events));
+
+        assertThatThrownBy(controller::init).isInstanceOf(IllegalStateException.class).hasMessage("db");
+        assertThat(events).containsExactly("cache.init");
+        controller.stop();
+        assertThat(events).containsExactly("cache.init", "cache.stop");
+    }
+
+    @Test
+    void testInit_cycle() {
+        CompositeSystemController controller = new CompositeSystemController();
+        controller.addComponent("a", new DefaultSystemController(), "b");
+        controller.addComponent("b", new DefaultSystemController(), "a");
+
+        assertThatThrownBy(controller::init).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testInit_missingDependency() {
+        CompositeSystemController controller = new CompositeSystemController();
+        controller.addComponent("a", new DefaultSystemController(), "b");
+
+        assertThatThrownBy(controller::init).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testAddComponent() {
+        CompositeSystemController controller = new CompositeSystemController();
+        controller.addComponent(new DiscoveredComponent());
+        controller.addComponent(new DefaultSystemController());
+
+        assertThat(controller.getComponentNames()).containsExactly("discovered", DefaultSystemController.class.getName());
+        assertThatThrownBy(() -> controller.addComponent(new DiscoveredComponent())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testSetContext() {
+        DefaultWebSystemContext context = new DefaultWebSystemContext(new MockServletContext());
+        DefaultSystemController component = new DefaultSystemController();
+        CompositeSystemController controller = new CompositeSystemController();
+        controller.addComponent("a", component);
+
+        controller.setContext(context);
+        assertThat(component.getContext()).isSameAs(context);
+    }
+
+    static class RecordingController
+        extends DefaultSystemController {
+        private final String name;
+
+        private final List<String> events;
+
+        RecordingController(String name, List<String> events) {
+            this.name = name;
+            this.events = events;
+        }
+
+        @Override
+        public void init() {
+            events.add(name + ".init");
+        }
+
+        @Override
+        public void start() {
+            events.add(name + ".start");
+        }
+
+        @Override
+        public void stop() {
+            events.add(name + ".stop");
+        }
+    }
+
+    static class LatchController
+        extends DefaultSystemController {
+        private final CountDownLatch latch;
+
+        LatchController(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void init() {
+            latch.countDown();
+            try {
+                if (!latch.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("timeout");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static class FailingController
+        extends DefaultSystemController {
+        @Override
+        public void init() {
+            throw new IllegalStateException("db");
+        }
+    }
+
+    public static class DiscoveredComponent
+        extends DefaultSystemController
+        implements SystemComponent {
+        @Override
+        public String getName() {
+            return "discovered";
+        }
+    }
+}
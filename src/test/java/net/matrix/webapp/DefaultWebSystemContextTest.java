@@ -4,14 +4,29 @@
  */
 package net.matrix.webapp;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.ServletContext;
+
 import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.mock.web.MockServletContext;
 
 import net.matrix.app.DefaultSystemController;
 import net.matrix.app.SystemController;
+import net.matrix.webapp.config.CompactConfiguration;
+import net.matrix.webapp.config.ConfigurationSnapshot;
+import net.matrix.webapp.config.IntSetting;
+import net.matrix.webapp.config.LazyLayeredConfiguration;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 class DefaultWebSystemContextTest {
     @Test
@@ -45,6 +60,241 @@ class DefaultWebSystemContextTest {
         assertThat(config.getString("xyz")).isEqualTo("1");
     }
 
+    @Test
+    void testGetConfig_parallel() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig.dev.cfg,/WEB-INF/sysconfig2.cfg");
+        servletContext.setInitParameter("systemConfigLoadParallelism", "4");
+        try (DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext)) {
+            Configuration config = context.getConfig();
+            assertThat(config).isNotNull();
+            assertThat(config.getString("test")).isEqualTo("b");
+            assertThat(config.getString("xyz")).isEqualTo("1");
+
+            // 重新加载时复用线程池
+            context.setConfig(null);
+            config = context.getConfig();
+            assertThat(config.getString("test")).isEqualTo("b");
+        }
+    }
+
+    @Test
+    void testGetConfig_lazy() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig2.cfg#module.,/WEB-INF/missing.cfg");
+        servletContext.setInitParameter("systemConfigLazy", "true");
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+
+        Configuration config = context.getConfig();
+        assertThat(config).isInstanceOf(LazyLayeredConfiguration.class);
+        assertThat(config.getString("test")).isEqualTo("a");
+        assertThat(((LazyLayeredConfiguration) config).getLoadedLayerNames()).containsExactly("/WEB-INF/sysconfig.cfg");
+    }
+
+    @Test
+    void testMayContainConfigKeys() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+
+        assertThat(context.mayContainConfigKeys("xy")).isTrue();
+        assertThat(context.mayContainConfigKeys("system.warmup.")).isFalse();
+    }
+
+    @Test
+    void testMayContainConfigKeys_lazy() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig2.cfg#module.|system.warmup.");
+        servletContext.setInitParameter("systemConfigLazy", "true");
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+
+        assertThat(context.mayContainConfigKeys("system.warmup.")).isTrue();
+        assertThat(context.mayContainConfigKeys("module.a.")).isTrue();
+        assertThat(context.mayContainConfigKeys("test")).isFalse();
+        assertThat(((LazyLayeredConfiguration) context.getConfig()).getLoadedLayerNames()).isEmpty();
+    }
+
+    @Test
+    void testGetConfig_cache(@TempDir Path tempDir) {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig2.cfg");
+        servletContext.setInitParameter("systemConfigCache", "true");
+        servletContext.setAttribute(ServletContext.TEMPDIR, tempDir.toFile());
+
+        Configuration config = new DefaultWebSystemContext(servletContext).getConfig();
+        assertThat(config).isInstanceOf(ConfigurationSnapshot.class);
+        assertThat(config.getString("test")).isEqualTo("b");
+        assertThat(tempDir.resolve("system-config.cache")).exists();
+
+        Configuration cachedConfig = new DefaultWebSystemContext(servletContext).getConfig();
+        assertThat(cachedConfig.getString("test")).isEqualTo("b");
+        assertThat(cachedConfig.getInt("xyz")).isEqualTo(1);
+    }
+
+    @Test
+    void testGetConfig_streaming() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/missing.cfg,/WEB-INF/sysconfig2.cfg");
+        servletContext.setInitParameter("systemConfigStreaming", "true");
+
+        Configuration config = new DefaultWebSystemContext(servletContext).getConfig();
+        assertThat(config).isInstanceOf(CompactConfiguration.class);
+        assertThat(config.getString("test")).isEqualTo("b");
+        assertThat(config.getInt("xyz")).isEqualTo(1);
+    }
+
+    @Test
+    void testGetConfig_share() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig2.cfg");
+        servletContext.setInitParameter("systemConfigShare", "true");
+
+        Configuration config = new DefaultWebSystemContext(servletContext).getConfig();
+        assertThat(config.getString("test")).isEqualTo("b");
+        assertThat(config.getInt("xyz")).isEqualTo(1);
+    }
+
+    @Test
+    void testGetConfig_snapshot() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig2.cfg");
+        servletContext.setInitParameter("systemConfigSnapshot", "true");
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+
+        Configuration config = context.getConfig();
+        assertThat(config).isInstanceOf(ConfigurationSnapshot.class);
+        assertThat(config.getString("test")).isEqualTo("b");
+        assertThat(config.getInt("xyz")).isEqualTo(1);
+    }
+
+    @Test
+    void testGetConfig_reload(@TempDir Path tempDir)
+        throws IOException, InterruptedException {
+        Path file = tempDir.resolve("sysconfig.cfg");
+        Files.writeString(file, "test=a");
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg," + file.toUri());
+        servletContext.setInitParameter("systemConfigReload", "true");
+
+        try (DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext)) {
+            Configuration config = context.getConfig();
+            assertThat(config.getString("test")).isEqualTo("a");
+            assertThat(config.getString("xyz")).isEqualTo("1");
+
+            Files.writeString(file, "test=c");
+            for (int i = 0; i < 100 && !"c".equals(config.getString("test")); i++) {
+                Thread.sleep(100);
+            }
+            assertThat(context.getConfig()).isSameAs(config);
+            assertThat(config.getString("test")).isEqualTo("c");
+            assertThat(config.getString("xyz")).isEqualTo("1");
+        }
+    }
+
+    @Test
+    void testGetConfig_reloadCreated(@TempDir Path tempDir)
+        throws IOException, InterruptedException {
+        Path file = tempDir.resolve("sysconfig.cfg");
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg," + file.toUri());
+        servletContext.setInitParameter("systemConfigReload", "true");
+
+        try (DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext)) {
+            Configuration config = context.getConfig();
+            assertThat(config.getString("test")).isEqualTo("a");
+
+            // 启动时不存在的文件同样监视
+            Files.writeString(file, "test=c");
+            for (int i = 0; i < 100 && !"c".equals(config.getString("test")); i++) {
+                Thread.sleep(100);
+            }
+            assertThat(config.getString("test")).isEqualTo("c");
+            assertThat(config.getString("xyz")).isEqualTo("1");
+        }
+    }
+
+    @Test
+    void testGetConfig_reloadAfterReset(@TempDir Path tempDir)
+        throws IOException, InterruptedException {
+        Path file = tempDir.resolve("sysconfig.cfg");
+        Files.writeString(file, "test=a");
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", file.toUri().toString());
+        servletContext.setInitParameter("systemConfigReload", "true");
+
+        try (DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext)) {
+            Configuration oldConfig = context.getConfig();
+            context.setConfig(null);
+            Configuration config = context.getConfig();
+            assertThat(config).isNotSameAs(oldConfig);
+
+            Files.writeString(file, "test=c");
+            for (int i = 0; i < 100 && !"c".equals(config.getString("test")); i++) {
+                Thread.sleep(100);
+            }
+            assertThat(config.getString("test")).isEqualTo("c");
+            // 原系统配置的文件监视已关闭
+            assertThat(oldConfig.getString("test")).isEqualTo("a");
+        }
+    }
+
+    @Test
+    void testInheritedFields() {
+        MockServletContext servletContext = new MockServletContext();
+        Object[] fields = new Object[3];
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext) {
+            @Override
+            public void close() {
+                fields[0] = resourceLoader;
+                fields[1] = config;
+                fields[2] = controller;
+            }
+        };
+
+        context.close();
+        assertThat(fields).containsOnlyNulls();
+        Object[] components = {context.getResourceLoader(), context.getConfig(), context.getController()};
+        context.close();
+        assertThat(fields).containsExactly(components);
+
+        context.setConfig(null);
+        context.close();
+        assertThat(fields[1]).isNull();
+    }
+
+    @Test
+    void testCreateIntSetting() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+
+        IntSetting setting = context.createIntSetting("xyz", 0);
+        assertThat(setting.get()).isEqualTo(1);
+        context.getConfig().setProperty("xyz", "2");
+        assertThat(setting.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testCreateIntSetting_setConfig() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        IntSetting setting = context.createIntSetting("xyz", 0);
+        Configuration oldConfig = context.getConfig();
+
+        PropertiesConfiguration config = new PropertiesConfiguration();
+        config.addProperty("xyz", "3");
+        context.setConfig(config);
+        assertThat(setting.get()).isEqualTo(3);
+        oldConfig.setProperty("xyz", "4");
+        assertThat(setting.get()).isEqualTo(3);
+
+        context.setConfig(null);
+        assertThat(setting.get()).isEqualTo(3);
+        context.getConfig();
+        assertThat(setting.get()).isEqualTo(1);
+
+        context.close();
+        assertThat(setting.isClosed()).isTrue();
+    }
+
     @Test
     void testGetController() {
         MockServletContext servletContext = new MockServletContext();
@@ -69,4 +319,51 @@ class DefaultWebSystemContextTest {
     static class TestController
         extends DefaultSystemController {
     }
+
+    @Test
+    void testGetController_failure() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemControllerClass", "none.Controller");
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+
+        Throwable failure = catchThrowable(context::getController);
+        assertThat(failure).isInstanceOf(ConfigurationRuntimeException.class);
+        assertThat(catchThrowable(context::getController)).hasCause(failure);
+
+        DefaultSystemController controller = new DefaultSystemController();
+        context.setController(controller);
+        assertThat(context.getController()).isSameAs(controller);
+    }
+
+    @Test
+    void testRegisterLazyObject() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        AtomicInteger creations = new AtomicInteger();
+
+        context.registerLazyObject(StringBuilder.class, () -> {
+            creations.incrementAndGet();
+            return new StringBuilder("lazy");
+        });
+        assertThat(creations).hasValue(0);
+        StringBuilder object = context.lookupObject(StringBuilder.class);
+        assertThat(object).hasToString("lazy");
+        assertThat(context.lookupObject(StringBuilder.class.getName())).isSameAs(object);
+        assertThat(creations).hasValue(1);
+    }
+
+    @Test
+    void testGetController_components() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemControllerClass", DefaultSystemController.class.getName());
+        servletContext.setInitParameter("systemControllerComponents", CompositeSystemControllerTest.FailingController.class.getName());
+        servletContext.setInitParameter("systemControllerDiscover", "true");
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+
+        SystemController controller = context.getController();
+        assertThat(controller).isInstanceOf(CompositeSystemController.class);
+        assertThat(((CompositeSystemController) controller).getComponentNames()).containsExactly(DefaultSystemController.class.getName(),
+            CompositeSystemControllerTest.FailingController.class.getName(), "discovered");
+        assertThat(controller.getContext()).isSameAs(context);
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class LazyComponentTest {
+    @Test
+    void testGet() {
+        AtomicInteger creations = new AtomicInteger();
+        LazyComponent<Object> component = new LazyComponent<>(() -> {
+            creations.incrementAndGet();
+            return new Object();
+        });
+
+        assertThat(component.getIfCreated()).isNull();
+        Object value = component.get();
+        assertThat(component.get()).isSameAs(value);
+        assertThat(component.getIfCreated()).isSameAs(value);
+        assertThat(creations).hasValue(1);
+    }
+
+    @Test
+    void testGet_concurrent()
+        throws Exception {
+        AtomicInteger creations = new AtomicInteger();
+        CountDownLatch creating = new CountDownLatch(1);
+        LazyComponent<Object> component = new LazyComponent<>(() -> {
+            creations.incrementAndGet();
+            creating.countDown();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Object();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            futures.add(executor.submit(component::get));
+            creating.await();
+            for (int i = 0; i < 7; i++) {
+                futures.add(executor.submit(component::get));
+            }
+            Object value = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Object> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS)).isSameAs(value);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(creations).hasValue(1);
+    }
+
+    @Test
+    void testGet_failure() {
+        AtomicInteger creations = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException();
+        LazyComponent<Object> component = new LazyComponent<>(() -> {
+            creations.incrementAndGet();
+            throw failure;
+        });
+
+        assertThatThrownBy(component::get).isSameAs(failure);
+        Throwable cached = catchThrowable(component::get);
+        assertThat(cached).isInstanceOf(IllegalStateException.class).isNotSameAs(failure).hasCause(failure);
+        assertThat(catchThrowable(component::get)).isNotSameAs(cached).hasCause(failure);
+        assertThat(component.getIfCreated()).isNull();
+        assertThat(creations).hasValue(1);
+
+        component.set("value");
+        assertThat(component.get()).isEqualTo("value");
+    }
+
+    @Test
+    void testGet_null() {
+        LazyComponent<Object> component = new LazyComponent<>(() -> null);
+
+        assertThatThrownBy(component::get).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testGet_recursive() {
+        AtomicReference<LazyComponent<Object>> reference = new AtomicReference<>();
+        LazyComponent<Object> component = new LazyComponent<>(() -> reference.get().get());
+        reference.set(component);
+
+        assertThatThrownBy(component::get).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testReset() {
+        AtomicInteger creations = new AtomicInteger();
+        LazyComponent<Integer> component = new LazyComponent<>(creations::incrementAndGet);
+
+        assertThat(component.get()).isEqualTo(1);
+        component.reset();
+        assertThat(component.get()).isEqualTo(2);
+    }
+}
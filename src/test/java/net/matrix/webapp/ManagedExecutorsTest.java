@@ -0,0 +1,63 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ManagedExecutorsTest {
+    @Test
+    void testGetTaskExecutor()
+        throws InterruptedException, ExecutionException {
+        ManagedExecutors executors = new ManagedExecutors(new PropertiesConfiguration());
+
+        ExecutorService executor = executors.getTaskExecutor();
+        assertThat(executor.submit(() -> "done").get()).isEqualTo("done");
+        assertThat(executors.getTaskExecutor()).isSameAs(executor);
+        assertThat(executors.shutdown(1000)).isTrue();
+        assertThat(executor.isShutdown()).isTrue();
+    }
+
+    @Test
+    void testGetPool()
+        throws InterruptedException, ExecutionException {
+        PropertiesConfiguration config = new PropertiesConfiguration();
+        config.addProperty("system.executor.io.threads", "3");
+        ManagedExecutors executors = new ManagedExecutors(config);
+
+        ExecutorService pool = executors.getPool("io");
+        assertThat(((ThreadPoolExecutor) pool).getMaximumPoolSize()).isEqualTo(3);
+        assertThat(pool.submit(() -> Thread.currentThread().getName()).get()).startsWith("system-io-");
+        assertThat(executors.getExecutorNames()).containsExactly("io");
+        executors.close();
+    }
+
+    @Test
+    void testShutdown_timeout()
+        throws InterruptedException {
+        ManagedExecutors executors = new ManagedExecutors(new PropertiesConfiguration());
+        CountDownLatch started = new CountDownLatch(1);
+        executors.getPool("slow").execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+
+        assertThat(executors.shutdown(50)).isFalse();
+        assertThatThrownBy(() -> executors.getPool("slow")).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PhaseExecutorTest {
+    @Test
+    void testAddPhase() {
+        PhaseExecutor phases = new PhaseExecutor();
+        phases.addPhase("a", () -> {
+        });
+        phases.addPhase("b", () -> {
+        }, "a");
+
+        assertThat(phases.getPhaseNames()).containsExactly("a", "b");
+        assertThatThrownBy(() -> phases.addPhase("a", () -> {
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> phases.addPhase("c", () -> {
+        }, "d")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testExecute_sequential() {
+        List<String> executed = new CopyOnWriteArrayList<>();
+        PhaseExecutor phases = new PhaseExecutor();
+        phases.addPhase("a", () -> executed.add("a"));
+        phases.addPhase("b", () -> executed.add("b"));
+        phases.addPhase("c", () -> executed.add("c"), "a", "b");
+
+        phases.execute(Runnable::run);
+        assertThat(executed).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void testExecute_parallel() {
+        // a 和 b 必须并发执行才能都通过闩锁
+        CountDownLatch latch = new CountDownLatch(2);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        PhaseExecutor phases = new PhaseExecutor();
+        phases.addPhase("a", () -> await(latch, executed, "a"));
+        phases.addPhase("b", () -> await(latch, executed, "b"));
+        phases.addPhase("c", () -> executed.add("c"), "a", "b");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            phases.execute(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(executed).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(executed.get(2)).isEqualTo("c");
+    }
+
+    @Test
+    void testExecute_failure() {
+        List<String> executed = new CopyOnWriteArrayList<>();
+        IllegalStateException failureA = new IllegalStateException("a");
+        IllegalStateException failureC = new IllegalStateException("c");
+        PhaseExecutor phases = new PhaseExecutor();
+        phases.addPhase("a", () -> {
+            throw failureA;
+        });
+        phases.addPhase("b", () -> executed.add("b"), "a");
+        phases.addPhase("c", () -> {
+            throw failureC;
+        });
+        phases.addPhase("d", () -> executed.add("d"));
+
+        assertThatThrownBy(() -> phases.execute(Runnable::run)).isSameAs(failureA).hasSuppressedException(failureC);
+        assertThat(executed).containsExactly("d");
+    }
+
+    @Test
+    void testExecuteSequentially_failure() {
+        List<String> executed = new CopyOnWriteArrayList<>();
+        IllegalStateException failure = new IllegalStateException("b");
+        PhaseExecutor phases = new PhaseExecutor();
+        phases.addPhase("a", () -> executed.add("a"));
+        phases.addPhase("b", () -> {
+            throw failure;
+        });
+        phases.addPhase("c", () -> executed.add("c"));
+
+        assertThatThrownBy(() -> phases.executeSequentially((name, action) -> action.run())).isSameAs(failure);
+        assertThat(executed).containsExactly("a");
+    }
+
+    private static void await(CountDownLatch latch, List<String> executed, String name) {
+        latch.countDown();
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executed.add(name);
+    }
+}
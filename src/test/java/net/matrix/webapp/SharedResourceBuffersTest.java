@@ -0,0 +1,93 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SharedResourceBuffersTest {
+    @Test
+    void testGetBuffer_file(@TempDir Path tempDir)
+        throws IOException {
+        Path file = tempDir.resolve("table.dat");
+        Files.writeString(file, "abc");
+        SharedResourceBuffers buffers = new SharedResourceBuffers();
+
+        ByteBuffer buffer = buffers.getBuffer(new FileSystemResource(file));
+        assertThat(buffer.isReadOnly()).isTrue();
+        assertThat(buffer.isDirect()).isTrue();
+        assertThat(StandardCharsets.UTF_8.decode(buffer).toString()).isEqualTo("abc");
+
+        ByteBuffer buffer2 = buffers.getBuffer(new FileSystemResource(file));
+        assertThat(buffer2.position()).isZero();
+        assertThat(buffer2.get(0)).isEqualTo((byte) 'a');
+    }
+
+    @Test
+    void testGetBuffer_modified(@TempDir Path tempDir)
+        throws IOException {
+        Path file = tempDir.resolve("table.dat");
+        Files.writeString(file, "abc");
+        SharedResourceBuffers buffers = new SharedResourceBuffers();
+        assertThat(buffers.getBuffer(new FileSystemResource(file)).remaining()).isEqualTo(3);
+
+        Files.writeString(file, "a");
+        ByteBuffer buffer = buffers.getBuffer(new FileSystemResource(file));
+        assertThat(StandardCharsets.UTF_8.decode(buffer).toString()).isEqualTo("a");
+    }
+
+    @Test
+    void testGetBuffer_maxSize(@TempDir Path tempDir)
+        throws IOException {
+        Path file = tempDir.resolve("table.dat");
+        Files.writeString(file, "abc");
+        Path file2 = tempDir.resolve("table2.dat");
+        Files.writeString(file2, "de");
+        SharedResourceBuffers buffers = new SharedResourceBuffers(4);
+
+        ByteBuffer buffer = buffers.getBuffer(new FileSystemResource(file));
+        ByteBuffer buffer2 = buffers.getBuffer(new FileSystemResource(file2));
+        assertThat(StandardCharsets.UTF_8.decode(buffer2).toString()).isEqualTo("de");
+        // 第一个文件在缓存中，第二个文件超过上限不缓存
+        assertThat(buffers.getBuffer(new FileSystemResource(file)).get(0)).isEqualTo(buffer.get(0));
+        buffers.clear();
+        assertThat(buffers.getBuffer(new FileSystemResource(file2)).remaining()).isEqualTo(2);
+    }
+
+    @Test
+    void testClose(@TempDir Path tempDir)
+        throws IOException {
+        Path file = tempDir.resolve("table.dat");
+        Files.writeString(file, "abc");
+        SharedResourceBuffers buffers = new SharedResourceBuffers();
+        ByteBuffer buffer = buffers.getBuffer(new FileSystemResource(file));
+
+        buffers.close();
+        assertThat(buffer.get(0)).isEqualTo((byte) 'a');
+        assertThatThrownBy(() -> buffers.getBuffer(new FileSystemResource(file))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testGetBuffer_stream()
+        throws IOException {
+        SharedResourceBuffers buffers = new SharedResourceBuffers();
+        ByteArrayResource resource = new ByteArrayResource("abc".getBytes(StandardCharsets.UTF_8));
+
+        ByteBuffer buffer = buffers.getBuffer(resource);
+        assertThat(buffer.isReadOnly()).isTrue();
+        assertThat(buffer.remaining()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockServletContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WarmupTest {
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testRun() {
+        DefaultWebSystemContext context = new DefaultWebSystemContext(new MockServletContext());
+        context.getConfig().addProperty("system.warmup.iterations", "3");
+        Warmup warmup = new Warmup();
+        AtomicInteger count = new AtomicInteger();
+        warmup.addTask("count", ctx -> count.incrementAndGet());
+
+        assertThat(warmup.run(context, executor)).isTrue();
+        assertThat(count).hasValue(3);
+    }
+
+    @Test
+    void testRun_timeout() {
+        DefaultWebSystemContext context = new DefaultWebSystemContext(new MockServletContext());
+        context.getConfig().addProperty("system.warmup.timeout", "50");
+        Warmup warmup = new Warmup();
+        warmup.addTask("slow", ctx -> Thread.sleep(10000));
+        warmup.addTask("failed", ctx -> {
+            throw new IllegalStateException();
+        });
+
+        assertThat(warmup.run(context, executor)).isFalse();
+    }
+
+    @Test
+    void testAddConfiguredTasks() {
+        DefaultWebSystemContext context = new DefaultWebSystemContext(new MockServletContext());
+        context.getConfig().addProperty("system.warmup.config", "true");
+        context.getConfig().addProperty("system.warmup.resources", "/WEB-INF/sysconfig.cfg");
+        Warmup warmup = new Warmup();
+
+        warmup.addConfiguredTasks(context.getConfig());
+        assertThat(warmup.getTaskNames()).containsExactly("config", "resources");
+        assertThat(warmup.run(context, executor)).isTrue();
+
+        context.getConfig().addProperty("system.warmup.tasks", "none.Task");
+        context.getConfig().addProperty("system.warmup.tasks", CountTask.class.getName());
+        warmup.addConfiguredTasks(context.getConfig());
+        assertThat(warmup.getTaskNames()).containsExactly("config", "resources", CountTask.class.getName());
+    }
+
+    @Test
+    void testRun_rejected() {
+        DefaultWebSystemContext context = new DefaultWebSystemContext(new MockServletContext());
+        Warmup warmup = new Warmup();
+        AtomicInteger count = new AtomicInteger();
+        warmup.addTask("count", ctx -> count.incrementAndGet());
+        executor.shutdown();
+
+        assertThat(warmup.run(context, executor)).isFalse();
+        assertThat(count).hasValue(0);
+    }
+
+    static class CountTask
+        implements WarmupTask {
+        @Override
+        public void warmup(WebSystemContext context) {
+            // 空实现
+        }
+    }
+}
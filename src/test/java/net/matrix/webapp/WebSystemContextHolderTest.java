@@ -0,0 +1,47 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockServletContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebSystemContextHolderTest {
+    @Test
+    void testBind() {
+        WebSystemContext context = new DefaultWebSystemContext(new MockServletContext());
+
+        assertThat(WebSystemContextHolder.getContext()).isNull();
+        WebSystemContext previous = WebSystemContextHolder.bind(context);
+        try {
+            assertThat(previous).isNull();
+            assertThat(WebSystemContextHolder.getRequiredContext()).isSameAs(context);
+        } finally {
+            WebSystemContextHolder.restore(previous);
+        }
+        assertThat(WebSystemContextHolder.getContext()).isNull();
+        assertThatThrownBy(WebSystemContextHolder::getRequiredContext).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testWrap() {
+        WebSystemContext context = new DefaultWebSystemContext(new MockServletContext());
+        WebSystemContext[] seen = new WebSystemContext[1];
+        Runnable task;
+
+        WebSystemContext previous = WebSystemContextHolder.bind(context);
+        try {
+            task = WebSystemContextHolder.wrap(() -> seen[0] = WebSystemContextHolder.getContext());
+        } finally {
+            WebSystemContextHolder.restore(previous);
+        }
+        CompletableFuture.runAsync(task).join();
+        assertThat(seen[0]).isSameAs(context);
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockServletContext;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class WebSystemContextMxTest {
     @Test
@@ -37,6 +38,71 @@ class WebSystemContextMxTest {
         assertThat(WebSystemContextMx.getRequiredWebSystemContext(servletContext)).isSameAs(context);
     }
 
+    @Test
+    void testGetRequiredCachedWebSystemContext() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextMx.setWebSystemContext(servletContext, context);
+
+        assertThat(WebSystemContextMx.getRequiredCachedWebSystemContext(servletContext)).isSameAs(context);
+    }
+
+    @Test
+    void testGetCachedWebSystemContext() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        servletContext.setAttribute(WebSystemContext.class.getName() + ".ROOT", context);
+
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isSameAs(context);
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isSameAs(context);
+    }
+
+    @Test
+    void testGetCachedWebSystemContext_replace() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextMx.setWebSystemContext(servletContext, context);
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isSameAs(context);
+
+        DefaultWebSystemContext context2 = new DefaultWebSystemContext(servletContext);
+        WebSystemContextMx.setWebSystemContext(servletContext, context2);
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isSameAs(context2);
+
+        WebSystemContextMx.setWebSystemContext(servletContext, null);
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isNull();
+    }
+
+    @Test
+    void testGetCachedWebSystemContext_otherServletContext() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextMx.setWebSystemContext(servletContext, context);
+        MockServletContext servletContext2 = new MockServletContext();
+        DefaultWebSystemContext context2 = new DefaultWebSystemContext(servletContext2);
+        WebSystemContextMx.setWebSystemContext(servletContext2, context2);
+
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isSameAs(context);
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext2)).isSameAs(context2);
+    }
+
+    @Test
+    void testGetCachedWebSystemContext_removeOtherServletContext() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextMx.setWebSystemContext(servletContext, context);
+        MockServletContext servletContext2 = new MockServletContext();
+        DefaultWebSystemContext context2 = new DefaultWebSystemContext(servletContext2);
+        WebSystemContextMx.setWebSystemContext(servletContext2, context2);
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isSameAs(context);
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext2)).isSameAs(context2);
+
+        WebSystemContextMx.setWebSystemContext(servletContext2, null);
+        // 直接修改的属性不影响缓存，说明仍命中缓存
+        servletContext.setAttribute(WebSystemContext.class.getName() + ".ROOT", new DefaultWebSystemContext(servletContext));
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isSameAs(context);
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext2)).isNull();
+    }
+
     @Test
     void testGetWebSystemContext() {
         MockServletContext servletContext = new MockServletContext();
@@ -63,4 +129,33 @@ class WebSystemContextMxTest {
 
         assertThat(WebSystemContextMx.findWebSystemContext(servletContext)).isSameAs(context);
     }
+
+    @Test
+    void testFindWebSystemContext_scan() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        servletContext.setAttribute("test", context);
+
+        assertThat(WebSystemContextMx.findWebSystemContext(servletContext)).isSameAs(context);
+    }
+
+    @Test
+    void testFindWebSystemContext_nonunique() {
+        MockServletContext servletContext = new MockServletContext();
+        WebSystemContextMx.setWebSystemContext(servletContext, "test", new DefaultWebSystemContext(servletContext));
+        WebSystemContextMx.setWebSystemContext(servletContext, "test2", new DefaultWebSystemContext(servletContext));
+
+        assertThatThrownBy(() -> WebSystemContextMx.findWebSystemContext(servletContext)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testFindWebSystemContext_nonuniqueOutsideIndex() {
+        MockServletContext servletContext = new MockServletContext();
+        WebSystemContextMx.setWebSystemContext(servletContext, "test", new DefaultWebSystemContext(servletContext));
+        servletContext.setAttribute("test2", new DefaultWebSystemContext(servletContext));
+
+        // 没有注册属性监听器时索引不完整，扫描全部属性
+        assertThatThrownBy(() -> WebSystemContextMx.findWebSystemContext(servletContext)).isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Nonunique");
+    }
 }
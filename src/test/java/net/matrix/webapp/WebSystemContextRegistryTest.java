@@ -0,0 +1,77 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockServletContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebSystemContextRegistryTest {
+    @Test
+    void testGetOrCreateRegistry() {
+        MockServletContext servletContext = new MockServletContext();
+        assertThat(WebSystemContextRegistry.getRegistry(servletContext)).isNull();
+
+        WebSystemContextRegistry registry = WebSystemContextRegistry.getOrCreateRegistry(servletContext);
+        assertThat(registry.isEmpty()).isTrue();
+        assertThat(WebSystemContextRegistry.getRegistry(servletContext)).isSameAs(registry);
+        assertThat(WebSystemContextRegistry.getOrCreateRegistry(servletContext)).isSameAs(registry);
+    }
+
+    @Test
+    void testMarkComplete() {
+        MockServletContext servletContext = new MockServletContext();
+        WebSystemContextRegistry registry = WebSystemContextRegistry.getOrCreateRegistry(servletContext);
+        assertThat(registry.isComplete()).isFalse();
+
+        registry.markComplete();
+        assertThat(registry.isComplete()).isTrue();
+    }
+
+    @Test
+    void testUpdate() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextRegistry registry = WebSystemContextRegistry.getOrCreateRegistry(servletContext);
+
+        registry.update("test", context);
+        assertThat(registry.getAttributeNames()).containsExactly("test");
+        registry.update("test", "value");
+        assertThat(registry.isEmpty()).isTrue();
+    }
+
+    @Test
+    void testFindUnique() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextMx.setWebSystemContext(servletContext, "test", context);
+
+        WebSystemContextRegistry registry = WebSystemContextRegistry.getRegistry(servletContext);
+        assertThat(registry.findUnique(servletContext)).isSameAs(context);
+    }
+
+    @Test
+    void testFindUnique_nonunique() {
+        MockServletContext servletContext = new MockServletContext();
+        WebSystemContextMx.setWebSystemContext(servletContext, "test", new DefaultWebSystemContext(servletContext));
+        WebSystemContextMx.setWebSystemContext(servletContext, "test2", new DefaultWebSystemContext(servletContext));
+
+        WebSystemContextRegistry registry = WebSystemContextRegistry.getRegistry(servletContext);
+        assertThatThrownBy(() -> registry.findUnique(servletContext)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testFindUnique_stale() {
+        MockServletContext servletContext = new MockServletContext();
+        WebSystemContextMx.setWebSystemContext(servletContext, "test", new DefaultWebSystemContext(servletContext));
+        servletContext.removeAttribute("test");
+
+        WebSystemContextRegistry registry = WebSystemContextRegistry.getRegistry(servletContext);
+        assertThat(registry.findUnique(servletContext)).isNull();
+        assertThat(registry.isEmpty()).isTrue();
+    }
+}
@@ -4,7 +4,16 @@
  */
 package net.matrix.webapp;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.mock.web.MockServletContext;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -17,4 +26,57 @@ class WebSystemResourceLoaderTest {
 
         assertThat(resourceLoader.getResourceByPath("/WEB-INF/sysconfig.cfg")).isNotNull();
     }
+
+    @Test
+    void testGetResourceByPath_cache() {
+        MockServletContext context = new MockServletContext();
+        WebSystemResourceLoader resourceLoader = new WebSystemResourceLoader(context, 10, false);
+
+        Resource resource = resourceLoader.getResourceByPath("/WEB-INF/sysconfig.cfg");
+        assertThat(resourceLoader.getResourceByPath("/WEB-INF/sysconfig.cfg")).isSameAs(resource);
+        Resource missing = resourceLoader.getResourceByPath("/WEB-INF/none.cfg");
+        assertThat(missing.exists()).isFalse();
+        assertThat(resourceLoader.getResourceByPath("/WEB-INF/none.cfg")).isSameAs(missing);
+
+        resourceLoader.clearCache();
+        assertThat(resourceLoader.getResourceByPath("/WEB-INF/sysconfig.cfg")).isNotSameAs(resource);
+    }
+
+    @Test
+    void testGetResourceByPath_evict() {
+        MockServletContext context = new MockServletContext();
+        WebSystemResourceLoader resourceLoader = new WebSystemResourceLoader(context, 4, false);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(resourceLoader.getResourceByPath("/WEB-INF/none" + i + ".cfg")).isNotNull();
+        }
+        Resource resource = resourceLoader.getResourceByPath("/WEB-INF/sysconfig.cfg");
+        assertThat(resourceLoader.getResourceByPath("/WEB-INF/sysconfig.cfg")).isSameAs(resource);
+    }
+
+    @Test
+    void testGetResourceByPath_validate(@TempDir Path tempDir)
+        throws IOException {
+        MockServletContext context = new MockServletContext("file:" + tempDir);
+        WebSystemResourceLoader resourceLoader = new WebSystemResourceLoader(context, 10, true);
+
+        Resource missing = resourceLoader.getResourceByPath("/test.cfg");
+        assertThat(missing).isInstanceOf(FileSystemResource.class);
+        assertThat(resourceLoader.getResourceByPath("/test.cfg")).isSameAs(missing);
+
+        Files.writeString(tempDir.resolve("test.cfg"), "test=a");
+        Resource resource = resourceLoader.getResourceByPath("/test.cfg");
+        assertThat(resource).isNotSameAs(missing);
+        assertThat(resource.exists()).isTrue();
+    }
+
+    @Test
+    void testGetResourceBuffer()
+        throws IOException {
+        MockServletContext context = new MockServletContext();
+        WebSystemResourceLoader resourceLoader = new WebSystemResourceLoader(context);
+
+        ByteBuffer buffer = resourceLoader.getResourceBuffer("/WEB-INF/sysconfig.cfg");
+        assertThat(StandardCharsets.ISO_8859_1.decode(buffer).toString()).startsWith("test=a");
+    }
 }
@@ -0,0 +1,23 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BooleanSettingTest {
+    @Test
+    void testGet() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.addProperty("feature.enabled", "true");
+        BooleanSetting setting = new BooleanSetting(config, "feature.enabled", false);
+
+        assertThat(setting.get()).isTrue();
+        config.setProperty("feature.enabled", "off");
+        assertThat(setting.get()).isFalse();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactConfigurationTest {
+    @Test
+    void testGetString() {
+        CompactConfiguration config = new CompactConfiguration(Map.of("test", "a", "name", "${test}!", "list", List.of("x", "y")));
+
+        assertThat(config.getString("test")).isEqualTo("a");
+        assertThat(config.getString("name")).isEqualTo("a!");
+        assertThat(config.getString("list")).isEqualTo("x");
+        assertThat(config.getList(String.class, "list")).containsExactly("x", "y");
+        assertThat(config.getString("missing")).isNull();
+        assertThat(config.size()).isEqualTo(3);
+    }
+
+    @Test
+    void testSetProperty() {
+        CompactConfiguration config = new CompactConfiguration(Map.of("test", "a"));
+
+        assertThatThrownBy(() -> config.setProperty("test", "b")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> config.clearProperty("test")).isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompiledConfigurationCacheTest {
+    @Test
+    void testStoreAndLoad(@TempDir Path tempDir)
+        throws IOException {
+        Path sourceFile = tempDir.resolve("sysconfig.cfg");
+        Files.writeString(sourceFile, "test=a");
+        List<CompiledConfigurationCache.SourceStamp> sources = List
+            .of(CompiledConfigurationCache.SourceStamp.of("sysconfig.cfg", new FileSystemResource(sourceFile)));
+        PropertiesConfiguration config = new PropertiesConfiguration();
+        config.addProperty("test", "a");
+        config.addProperty("list", List.of("x", "y"));
+        config.addProperty("number", "1");
+        CompiledConfigurationCache cache = new CompiledConfigurationCache(tempDir.resolve("cache/system-config.cache"));
+
+        assertThat(cache.load(sources)).isNull();
+        cache.store(sources, config);
+        ConfigurationSnapshot snapshot = cache.load(sources);
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.getString("test")).isEqualTo("a");
+        assertThat(snapshot.getList(String.class, "list")).containsExactly("x", "y");
+        assertThat(snapshot.getInt("number")).isEqualTo(1);
+    }
+
+    @Test
+    void testLoad_interpolation(@TempDir Path tempDir)
+        throws IOException {
+        String property = CompiledConfigurationCacheTest.class.getName() + ".home";
+        PropertiesConfiguration config = new PropertiesConfiguration();
+        config.addProperty("home", "${sys:" + property + "}");
+        config.addProperty("path", "${home}/bin");
+        List<CompiledConfigurationCache.SourceStamp> sources = List.of();
+        CompiledConfigurationCache cache = new CompiledConfigurationCache(tempDir.resolve("system-config.cache"));
+
+        try {
+            System.setProperty(property, "/a");
+            assertThat(config.getString("path")).isEqualTo("/a/bin");
+            cache.store(sources, config);
+
+            System.setProperty(property, "/b");
+            ConfigurationSnapshot snapshot = cache.load(sources);
+            assertThat(snapshot).isNotNull();
+            assertThat(snapshot.getString("home")).isEqualTo("/b");
+            assertThat(snapshot.getString("path")).isEqualTo("/b/bin");
+        } finally {
+            System.clearProperty(property);
+        }
+    }
+
+    @Test
+    void testLoad_changed(@TempDir Path tempDir)
+        throws IOException {
+        PropertiesConfiguration config = new PropertiesConfiguration();
+        config.addProperty("test", "a");
+        CompiledConfigurationCache cache = new CompiledConfigurationCache(tempDir.resolve("system-config.cache"));
+        cache.store(List.of(CompiledConfigurationCache.SourceStamp.of("a", new ByteArrayResource("test=a".getBytes(StandardCharsets.UTF_8)))), config);
+
+        assertThat(cache.load(List.of(CompiledConfigurationCache.SourceStamp.of("a", new ByteArrayResource("test=b".getBytes(StandardCharsets.UTF_8))))))
+            .isNull();
+        assertThat(cache.load(List.of())).isNull();
+    }
+
+    @Test
+    void testLoad_corrupt(@TempDir Path tempDir)
+        throws IOException {
+        Path cacheFile = tempDir.resolve("system-config.cache");
+        Files.write(cacheFile, new byte[] {
+            0x4D, 0x43
+        });
+        CompiledConfigurationCache cache = new CompiledConfigurationCache(cacheFile);
+
+        assertThat(cache.load(List.of())).isNull();
+    }
+}
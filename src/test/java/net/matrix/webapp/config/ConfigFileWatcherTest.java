@@ -0,0 +1,65 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfigFileWatcherTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testStart()
+        throws IOException, InterruptedException {
+        Path file = tempDir.resolve("sysconfig.cfg");
+        Files.writeString(file, "test=a");
+        BlockingQueue<Integer> changed = new LinkedBlockingQueue<>();
+
+        try (ConfigFileWatcher watcher = new ConfigFileWatcher(Arrays.asList(null, file), changed::add)) {
+            watcher.start();
+            Files.writeString(file, "test=b");
+            assertThat(changed.poll(10, TimeUnit.SECONDS)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testStart_otherFile()
+        throws IOException, InterruptedException {
+        Path file = tempDir.resolve("sysconfig.cfg");
+        Files.writeString(file, "test=a");
+        BlockingQueue<Integer> changed = new LinkedBlockingQueue<>();
+
+        try (ConfigFileWatcher watcher = new ConfigFileWatcher(Arrays.asList(file), changed::add)) {
+            watcher.start();
+            Files.writeString(tempDir.resolve("other.cfg"), "test=b");
+            assertThat(changed.poll(1, TimeUnit.SECONDS)).isNull();
+        }
+    }
+
+    @Test
+    void testStart_created()
+        throws IOException, InterruptedException {
+        Path file = tempDir.resolve("sysconfig.cfg");
+        Path missingDirectoryFile = tempDir.resolve("missing").resolve("sysconfig.cfg");
+        BlockingQueue<Integer> changed = new LinkedBlockingQueue<>();
+
+        try (ConfigFileWatcher watcher = new ConfigFileWatcher(Arrays.asList(missingDirectoryFile, file), changed::add)) {
+            watcher.start();
+            Files.writeString(file, "test=a");
+            assertThat(changed.poll(10, TimeUnit.SECONDS)).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.apache.commons.configuration2.ex.ConversionException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConfigurationSnapshotTest {
+    @Test
+    void testGetString() {
+        BaseConfiguration source = new BaseConfiguration();
+        source.addProperty("name", "test");
+        source.addProperty("greeting", "hello ${name}");
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(source);
+
+        assertThat(snapshot.getString("greeting")).isEqualTo("hello test");
+        assertThat(snapshot.getString("none", "default")).isEqualTo("default");
+        assertThat(snapshot.getString("none")).isNull();
+    }
+
+    @Test
+    void testGetList() {
+        BaseConfiguration source = new BaseConfiguration();
+        source.addProperty("list", "a");
+        source.addProperty("list", "b");
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(source);
+
+        assertThat(snapshot.getList("list")).isEqualTo(List.of("a", "b"));
+        assertThat(snapshot.getString("list")).isEqualTo("a");
+    }
+
+    @Test
+    void testGetInt() {
+        BaseConfiguration source = new BaseConfiguration();
+        source.addProperty("int", "12");
+        source.addProperty("text", "abc");
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(source);
+
+        assertThat(snapshot.getInt("int")).isEqualTo(12);
+        assertThat(snapshot.getInt("none", 3)).isEqualTo(3);
+        assertThat(snapshot.getLong("int")).isEqualTo(12L);
+        assertThatThrownBy(() -> snapshot.getInt("none")).isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(() -> snapshot.getInt("text")).isInstanceOf(ConversionException.class);
+    }
+
+    @Test
+    void testGetBoolean() {
+        BaseConfiguration source = new BaseConfiguration();
+        source.addProperty("flag", "yes");
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(source);
+
+        assertThat(snapshot.getBoolean("flag")).isTrue();
+        assertThat(snapshot.getBoolean("none", true)).isTrue();
+    }
+
+    @Test
+    void testGetDuration() {
+        BaseConfiguration source = new BaseConfiguration();
+        source.addProperty("timeout", "PT5S");
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(source);
+
+        assertThat(snapshot.getDuration("timeout")).isEqualTo(Duration.ofSeconds(5));
+        assertThat(snapshot.getDuration("none", Duration.ZERO)).isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    void testSetProperty() {
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(new BaseConfiguration());
+
+        assertThatThrownBy(() -> snapshot.setProperty("test", "a")).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(snapshot.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.time.Duration;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DurationSettingTest {
+    @Test
+    void testGet() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.addProperty("request.timeout", "PT30S");
+        DurationSetting setting = new DurationSetting(config, "request.timeout", Duration.ZERO);
+
+        assertThat(setting.get()).isEqualTo(Duration.ofSeconds(30));
+        config.setProperty("request.timeout", "PT1M");
+        assertThat(setting.get()).isEqualTo(Duration.ofMinutes(1));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.apache.commons.configuration2.event.ConfigurationEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntSettingTest {
+    @Test
+    void testGet() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.addProperty("pool.size", "8");
+        IntSetting setting = new IntSetting(config, "pool.size", 1);
+
+        assertThat(setting.getKey()).isEqualTo("pool.size");
+        assertThat(setting.get()).isEqualTo(8);
+    }
+
+    @Test
+    void testGet_default() {
+        IntSetting setting = new IntSetting(new BaseConfiguration(), "pool.size", 1);
+
+        assertThat(setting.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testRefresh() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.addProperty("pool.size", "8");
+        IntSetting setting = new IntSetting(config, "pool.size", 1);
+
+        config.setProperty("pool.size", "16");
+        assertThat(setting.get()).isEqualTo(16);
+        config.clearProperty("pool.size");
+        assertThat(setting.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testRefresh_invalid() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.addProperty("pool.size", "8");
+        IntSetting setting = new IntSetting(config, "pool.size", 1);
+
+        config.setProperty("pool.size", "abc");
+        assertThat(setting.get()).isEqualTo(8);
+    }
+
+    @Test
+    void testRefresh_replace() {
+        BaseConfiguration delegate = new BaseConfiguration();
+        delegate.addProperty("pool.size", "8");
+        ReloadableConfiguration config = new ReloadableConfiguration(delegate);
+        IntSetting setting = new IntSetting(config, "pool.size", 1);
+
+        BaseConfiguration delegate2 = new BaseConfiguration();
+        delegate2.addProperty("pool.size", "32");
+        config.replace(delegate2);
+        assertThat(setting.get()).isEqualTo(32);
+    }
+
+    @Test
+    void testRebind() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.addProperty("pool.size", "8");
+        IntSetting setting = new IntSetting(config, "pool.size", 1);
+
+        BaseConfiguration config2 = new BaseConfiguration();
+        config2.addProperty("pool.size", "32");
+        setting.rebind(config2);
+        assertThat(setting.get()).isEqualTo(32);
+        config.setProperty("pool.size", "16");
+        assertThat(setting.get()).isEqualTo(32);
+        config2.setProperty("pool.size", "64");
+        assertThat(setting.get()).isEqualTo(64);
+    }
+
+    @Test
+    void testRebind_invalid() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.addProperty("pool.size", "8");
+        IntSetting setting = new IntSetting(config, "pool.size", 1);
+
+        BaseConfiguration config2 = new BaseConfiguration();
+        config2.addProperty("pool.size", "abc");
+        setting.rebind(config2);
+        assertThat(setting.get()).isEqualTo(8);
+        config2.setProperty("pool.size", "32");
+        assertThat(setting.get()).isEqualTo(32);
+    }
+
+    @Test
+    void testClose() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.addProperty("pool.size", "8");
+        IntSetting setting = new IntSetting(config, "pool.size", 1);
+
+        setting.close();
+        assertThat(setting.isClosed()).isTrue();
+        assertThat(config.getEventListeners(ConfigurationEvent.ANY)).isEmpty();
+        config.setProperty("pool.size", "16");
+        assertThat(setting.get()).isEqualTo(8);
+    }
+}
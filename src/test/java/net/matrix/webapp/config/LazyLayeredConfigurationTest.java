@@ -0,0 +1,58 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.util.List;
+
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LazyLayeredConfigurationTest {
+    @Test
+    void testGetString() {
+        LazyLayeredConfiguration config = new LazyLayeredConfiguration();
+        config.addLayer("base", List.of(), () -> properties("test", "a", "xyz", "1"));
+        config.addLayer("module", List.of("module."), () -> properties("module.name", "m", "test", "m"));
+        config.addLayer("override", List.of(), () -> properties("test", "b"));
+
+        assertThat(config.getString("test")).isEqualTo("b");
+        assertThat(config.getString("xyz")).isEqualTo("1");
+        assertThat(config.getLoadedLayerNames()).containsExactly("base", "override");
+
+        assertThat(config.getString("module.name")).isEqualTo("m");
+        assertThat(config.getLoadedLayerNames()).containsExactly("base", "module", "override");
+        assertThat(config.getString("test")).isEqualTo("b");
+    }
+
+    @Test
+    void testGetKeys() {
+        LazyLayeredConfiguration config = new LazyLayeredConfiguration();
+        config.addLayer("base", List.of(), () -> properties("test", "a"));
+        config.addLayer("module", List.of("module."), () -> properties("module.name", "m"));
+        config.addLayer("missing", List.of(), () -> null);
+
+        assertThat(config.getKeys()).toIterable().containsExactly("test", "module.name");
+        assertThat(config.size()).isEqualTo(2);
+        assertThat(config.isEmpty()).isFalse();
+    }
+
+    @Test
+    void testAddProperty() {
+        LazyLayeredConfiguration config = new LazyLayeredConfiguration();
+
+        assertThatThrownBy(() -> config.addProperty("test", "a")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private static PropertiesConfiguration properties(String... keyValues) {
+        PropertiesConfiguration config = new PropertiesConfiguration();
+        for (int index = 0; index < keyValues.length; index += 2) {
+            config.addProperty(keyValues[index], keyValues[index + 1]);
+        }
+        return config;
+    }
+}
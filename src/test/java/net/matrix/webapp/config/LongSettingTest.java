@@ -0,0 +1,23 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongSettingTest {
+    @Test
+    void testGet() {
+        BaseConfiguration config = new BaseConfiguration();
+        config.addProperty("cache.bytes", "4294967296");
+        LongSetting setting = new LongSetting(config, "cache.bytes", 1L);
+
+        assertThat(setting.get()).isEqualTo(4294967296L);
+        config.setProperty("cache.bytes", "2");
+        assertThat(setting.get()).isEqualTo(2L);
+    }
+}
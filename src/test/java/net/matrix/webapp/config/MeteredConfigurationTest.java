@@ -0,0 +1,88 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.jupiter.api.Test;
+
+import net.matrix.webapp.monitor.SystemMetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MeteredConfigurationTest {
+    @Test
+    void testGetString() {
+        PropertiesConfiguration delegate = new PropertiesConfiguration();
+        delegate.addProperty("test", "a");
+        delegate.addProperty("ref", "${test}");
+        SystemMetrics metrics = new SystemMetrics(100);
+        MeteredConfiguration config = new MeteredConfiguration(delegate, metrics, true);
+
+        assertThat(config.getString("test")).isEqualTo("a");
+        assertThat(config.getInt("missing", 1)).isEqualTo(1);
+        assertThat(config.getString("ref")).isEqualTo("a");
+        assertThat(metrics.getCounter("config.read.test").getCount()).isEqualTo(1);
+        assertThat(metrics.getCounter("config.miss").getCount()).isEqualTo(1);
+        assertThat(metrics.getCounter("config.miss.missing").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testGetString_total() {
+        PropertiesConfiguration delegate = new PropertiesConfiguration();
+        delegate.addProperty("test", "a");
+        SystemMetrics metrics = new SystemMetrics(100);
+        MeteredConfiguration config = new MeteredConfiguration(delegate, metrics);
+
+        assertThat(config.getString("test")).isEqualTo("a");
+        assertThat(config.getString("missing")).isNull();
+        assertThat(metrics.getCounter("config.read").getCount()).isEqualTo(2);
+        assertThat(metrics.getCounter("config.miss").getCount()).isEqualTo(1);
+        assertThat(metrics.getCounters()).containsOnlyKeys("config.read", "config.miss");
+    }
+
+    @Test
+    void testReadTimer() {
+        PropertiesConfiguration source = new PropertiesConfiguration();
+        source.addProperty("size", "8");
+        SystemMetrics metrics = new SystemMetrics(100);
+        MeteredConfiguration config = new MeteredConfiguration(source, metrics);
+        MeteredConfiguration snapshotConfig = new MeteredConfiguration(new ConfigurationSnapshot(source), metrics);
+
+        assertThat(config.getInt("size")).isEqualTo(8);
+        assertThat(metrics.getTimer("config.read").getCount()).isZero();
+
+        metrics.setEnabled(true);
+        assertThat(config.getInt("size")).isEqualTo(8);
+        assertThat(snapshotConfig.getInt("size")).isEqualTo(8);
+        assertThat(snapshotConfig.getInt("missing", 1)).isEqualTo(1);
+        assertThat(metrics.getTimer("config.read").getCount()).isEqualTo(3);
+    }
+
+    @Test
+    void testGetInt_snapshot() {
+        PropertiesConfiguration source = new PropertiesConfiguration();
+        source.addProperty("size", "8");
+        SystemMetrics metrics = new SystemMetrics(100);
+        MeteredConfiguration config = new MeteredConfiguration(new ConfigurationSnapshot(source), metrics, true);
+
+        assertThat(config.getInt("size")).isEqualTo(8);
+        assertThat(config.getInt("missing", 1)).isEqualTo(1);
+        assertThat(config.getString("size")).isEqualTo("8");
+        assertThat(metrics.getCounter("config.read").getCount()).isEqualTo(3);
+        assertThat(metrics.getCounter("config.read.size").getCount()).isEqualTo(2);
+        assertThat(metrics.getCounter("config.miss.missing").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testSetting() {
+        PropertiesConfiguration delegate = new PropertiesConfiguration();
+        delegate.addProperty("size", "1");
+        MeteredConfiguration config = new MeteredConfiguration(delegate, new SystemMetrics(100));
+        IntSetting setting = new IntSetting(config, "size", 0);
+
+        delegate.setProperty("size", "2");
+        assertThat(setting.get()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.apache.commons.configuration2.Configuration;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReloadableConfigurationTest {
+    @Test
+    void testGetProperty() {
+        BaseConfiguration delegate = new BaseConfiguration();
+        delegate.addProperty("test", "a");
+        ReloadableConfiguration config = new ReloadableConfiguration(delegate);
+
+        assertThat(config.getString("test")).isEqualTo("a");
+        assertThat(config.containsKey("test")).isTrue();
+        assertThat(config.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testSetProperty() {
+        BaseConfiguration delegate = new BaseConfiguration();
+        ReloadableConfiguration config = new ReloadableConfiguration(delegate);
+
+        config.setProperty("test", "a");
+        assertThat(delegate.getString("test")).isEqualTo("a");
+    }
+
+    @Test
+    void testReplace() {
+        BaseConfiguration delegate = new BaseConfiguration();
+        delegate.addProperty("test", "a");
+        BaseConfiguration delegate2 = new BaseConfiguration();
+        delegate2.addProperty("test", "b");
+        ReloadableConfiguration config = new ReloadableConfiguration(delegate);
+        List<Object> events = new ArrayList<>();
+        config.addEventListener(ReloadableConfiguration.CONFIGURATION_REPLACED, event -> events.add(event.getPropertyValue()));
+
+        Configuration oldDelegate = config.replace(delegate2);
+        assertThat(oldDelegate).isSameAs(delegate);
+        assertThat(config.getDelegate()).isSameAs(delegate2);
+        assertThat(config.getString("test")).isEqualTo("b");
+        assertThat(events).containsExactly(delegate2);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.configuration2.AbstractConfiguration;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SharedConfigurationCacheTest {
+    @Test
+    void testLoad()
+        throws ConfigurationException {
+        SharedConfigurationCache cache = new SharedConfigurationCache();
+        byte[] content = "test = a\nxyz = 1\nname = ${test}-${xyz}\nlist = x\nlist = y\n".getBytes(StandardCharsets.ISO_8859_1);
+
+        AbstractConfiguration config = cache.load(content);
+        assertThat(config.getString("test")).isEqualTo("a");
+        assertThat(config.getInt("xyz")).isEqualTo(1);
+        assertThat(config.getString("name")).isEqualTo("a-1");
+        assertThat(config.getList(String.class, "list")).containsExactly("x", "y");
+        assertThat(config.getKeys()).toIterable().containsExactlyInAnyOrder("test", "xyz", "name", "list");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testLoad_shared()
+        throws ConfigurationException {
+        SharedConfigurationCache cache = new SharedConfigurationCache();
+        byte[] content = "test = a\n".getBytes(StandardCharsets.ISO_8859_1);
+
+        AbstractConfiguration config1 = cache.load(content);
+        AbstractConfiguration config2 = cache.load(content.clone());
+        assertThat(config1).isNotSameAs(config2);
+        assertThat(config1.getString("test")).isSameAs(config2.getString("test"));
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.load("test = b\n".getBytes(StandardCharsets.ISO_8859_1));
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testSetProperty()
+        throws ConfigurationException {
+        AbstractConfiguration config = new SharedConfigurationCache().load("test = a\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        assertThatThrownBy(() -> config.setProperty("test", "b")).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(config.getString("test")).isEqualTo("a");
+    }
+}
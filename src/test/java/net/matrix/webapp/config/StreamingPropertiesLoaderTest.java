@@ -0,0 +1,81 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.io.FileHandler;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingPropertiesLoaderTest {
+    private static final String CONTENT = "# comment\n"
+        + "test = a\n"
+        + "xyz : 1\n"
+        + "name = ${test}-${xyz}\n"
+        + "list = x\n"
+        + "list = y\n"
+        + "escaped = line\\\n"
+        + "    continued \\u00e9\\t!\n"
+        + "key\\ with\\ spaces = value\n";
+
+    @Test
+    void testLoad()
+        throws IOException, ConfigurationException {
+        CompactConfiguration config = new StreamingPropertiesLoader().load(input(CONTENT)).build();
+
+        PropertiesConfiguration expected = new PropertiesConfiguration();
+        new FileHandler(expected).load(input(CONTENT));
+        assertThat(config.getKeys()).toIterable().containsExactlyInAnyOrderElementsOf(() -> expected.getKeys());
+        for (String key : (Iterable<String>) expected::getKeys) {
+            assertThat(config.getList(String.class, key)).as(key).isEqualTo(expected.getList(String.class, key));
+        }
+        assertThat(config.getString("name")).isEqualTo("a-1");
+    }
+
+    @Test
+    void testLoad_override()
+        throws IOException {
+        CompactConfiguration config = new StreamingPropertiesLoader()
+            .load(input("test = a\nxyz = 1\nlist = x\nlist = y\n"))
+            .load(input("test = b\nlist = z\n"))
+            .build();
+
+        assertThat(config.getString("test")).isEqualTo("b");
+        assertThat(config.getInt("xyz")).isEqualTo(1);
+        assertThat(config.getList(String.class, "list")).containsExactly("z");
+    }
+
+    @Test
+    void testLoad_dedupe()
+        throws IOException {
+        CompactConfiguration config = new StreamingPropertiesLoader()
+            .load(input("a = shared-value\nb = shared-value\n"))
+            .build();
+
+        assertThat(config.getProperty("a")).isSameAs(config.getProperty("b"));
+    }
+
+    @Test
+    void testBuild()
+        throws IOException {
+        StreamingPropertiesLoader loader = new StreamingPropertiesLoader().load(input("test = a\n"));
+        loader.build();
+
+        assertThatThrownBy(loader::build).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> loader.load(input("test = b\n"))).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.monitor;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CdsTrainingTest {
+    @Test
+    void testMeasure(@TempDir Path tempDir) {
+        CdsTraining training = new CdsTraining(tempDir);
+
+        training.measure("idle", () -> {
+        });
+        // 新的类加载器中的代理类总是新加载的类
+        training.measure("load", () -> Proxy.newProxyInstance(new ClassLoader(CdsTrainingTest.class.getClassLoader()) {
+        }, new Class<?>[] {
+            Runnable.class
+        }, (proxy, method, args) -> null));
+        assertThat(training.getPhases()).extracting(CdsTraining.PhaseClassLoading::name).containsExactlyInAnyOrder("load", "idle");
+        assertThat(training.getPhases()).extracting(CdsTraining.PhaseClassLoading::classesLoaded).isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(training.getPhases()).filteredOn(phase -> "load".equals(phase.name())).first()
+            .extracting(CdsTraining.PhaseClassLoading::classesLoaded).asInstanceOf(InstanceOfAssertFactories.LONG).isPositive();
+    }
+
+    @Test
+    void testFinish(@TempDir Path tempDir)
+        throws IOException {
+        Path outputDirectory = tempDir.resolve("cds");
+        CdsTraining training = new CdsTraining(outputDirectory);
+        training.measure("phase", () -> {
+        });
+
+        Path archive = training.finish();
+        String report = Files.readString(outputDirectory.resolve(CdsTraining.REPORT_FILE));
+        assertThat(report).contains("\"name\":\"phase\"", "\"archiveDumped\":" + (archive != null));
+        String options = Files.readString(outputDirectory.resolve(CdsTraining.OPTIONS_FILE));
+        if (archive == null) {
+            // 测试 JVM 没有以 -XX:+RecordDynamicDumpInfo 启动
+            assertThat(options).startsWith("-XX:ArchiveClassesAtExit=");
+        } else {
+            assertThat(options).startsWith("-XX:SharedArchiveFile=");
+            assertThat(archive).exists();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.monitor;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockServletContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ManagementMxTest {
+    @Test
+    void testRegisterMBean() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setContextPath("/test");
+
+        ObjectName name = ManagementMx.registerMBean(new StartupReport("test"), "StartupReport", servletContext);
+        assertThat(name).isNotNull();
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name)).isTrue();
+        assertThat(ManagementMx.registerMBean(new StartupReport("test"), "StartupReport", servletContext)).isEqualTo(name);
+
+        ManagementMx.unregisterMBean(name);
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name)).isFalse();
+    }
+
+    @Test
+    void testRegisterMBean_invalid() {
+        MockServletContext servletContext = new MockServletContext();
+
+        assertThat(ManagementMx.registerMBean(new Object(), "Object", servletContext)).isNull();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.monitor;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StartupReportTest {
+    @Test
+    void testMeasure() {
+        StartupReport report = new StartupReport("test");
+
+        report.measure("a", () -> {
+            byte[] buffer = new byte[1024];
+            assertThat(buffer).hasSize(1024);
+        });
+        List<StartupReport.PhaseTiming> timings = report.getTimings();
+        assertThat(timings).hasSize(1);
+        StartupReport.PhaseTiming timing = timings.get(0);
+        assertThat(timing.name()).isEqualTo("a");
+        assertThat(timing.threadName()).isEqualTo(Thread.currentThread().getName());
+        assertThat(timing.wallNanos()).isNotNegative();
+        assertThat(timing.failed()).isFalse();
+        assertThat(report.getPhaseCount()).isEqualTo(1);
+        assertThat(report.getPhaseSummaries()).hasSize(1);
+    }
+
+    @Test
+    void testMeasure_failed() {
+        StartupReport report = new StartupReport("test");
+
+        assertThatThrownBy(() -> report.measure("a", () -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(report.getTimings().get(0).failed()).isTrue();
+    }
+
+    @Test
+    void testFinish() {
+        StartupReport report = new StartupReport("test");
+        StartupReport.Measurement measurement = report.begin("a");
+        report.finish();
+
+        measurement.end(false);
+        report.measure("b", () -> {
+        });
+        assertThat(report.isFinished()).isTrue();
+        assertThat(report.getTimings()).isEmpty();
+    }
+
+    @Test
+    void testToJson() {
+        StartupReport report = new StartupReport("/te\"st");
+        report.begin("a\\b").end(false);
+
+        String json = report.toJson();
+        assertThat(json).startsWith("{\"name\":\"/te\\\"st\",\"totalWallTimeMillis\":");
+        assertThat(json).contains("\"phases\":[{\"name\":\"a\\\\b\"");
+        assertThat(json).endsWith("\"failed\":false}]}");
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SystemMetricsTest {
+    @Test
+    void testGetCounter() {
+        SystemMetrics metrics = new SystemMetrics(2);
+
+        metrics.getCounter("a").increment();
+        metrics.getCounter("a").increment();
+        metrics.getCounter("b").increment();
+        metrics.getCounter("c").increment();
+        assertThat(metrics.getCounter("a").getCount()).isEqualTo(2);
+        assertThat(metrics.getCounters()).containsOnlyKeys("a", "b", SystemMetrics.OVERFLOW_NAME);
+        assertThat(metrics.getTopCounters("", 2)).containsExactly("a count=2", SystemMetrics.OVERFLOW_NAME + " count=1");
+    }
+
+    @Test
+    void testGetTimer() {
+        SystemMetrics metrics = new SystemMetrics(10);
+        SystemMetrics.Timer timer = metrics.getTimer("t");
+
+        timer.record(100);
+        timer.record(1000);
+        timer.record(-1);
+        assertThat(timer.getCount()).isEqualTo(3);
+        assertThat(timer.getTotalNanos()).isEqualTo(1100);
+        assertThat(timer.getMaxNanos()).isEqualTo(1000);
+        assertThat(timer.getPercentileNanos(0.5)).isEqualTo(127);
+        assertThat(timer.getPercentileNanos(1)).isEqualTo(1023);
+        assertThat(metrics.getTimerSummaries()).hasSize(1);
+    }
+
+    @Test
+    void testReset() {
+        SystemMetrics metrics = new SystemMetrics(10);
+        SystemMetrics.Counter counter = metrics.getCounter("a");
+        counter.increment();
+        metrics.getTimer("t").record(1);
+
+        metrics.reset();
+        assertThat(counter.getCount()).isZero();
+        assertThat(metrics.getTimer("t").getCount()).isZero();
+        counter.increment();
+        assertThat(metrics.getCounter("a").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testRetain() {
+        SystemMetrics metrics = new SystemMetrics(10);
+
+        metrics.retain();
+        metrics.retain();
+        assertThat(metrics.isEnabled()).isTrue();
+        metrics.release();
+        assertThat(metrics.isEnabled()).isTrue();
+        metrics.release();
+        assertThat(metrics.isEnabled()).isFalse();
+        metrics.release();
+        assertThat(metrics.isEnabled()).isFalse();
+    }
+}
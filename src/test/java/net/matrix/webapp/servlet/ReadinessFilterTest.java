@@ -0,0 +1,91 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.io.IOException;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+
+import net.matrix.webapp.DefaultWebSystemContext;
+import net.matrix.webapp.WebSystemContextMx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReadinessFilterTest {
+    @Test
+    void testDoFilter()
+        throws IOException, ServletException {
+        MockServletContext servletContext = new MockServletContext();
+        Readiness readiness = new Readiness();
+        ReadinessFilter filter = createFilter(servletContext, readiness, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        readiness.markReady();
+        filter.doFilter(new MockHttpServletRequest(servletContext), response, chain);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    @Test
+    void testDoFilter_notReady()
+        throws IOException, ServletException {
+        MockServletContext servletContext = new MockServletContext();
+        ReadinessFilter filter = createFilter(servletContext, new Readiness(), null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest(servletContext), response, chain);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void testDoFilter_wait()
+        throws IOException, ServletException {
+        MockServletContext servletContext = new MockServletContext();
+        Readiness readiness = new Readiness();
+        ReadinessFilter filter = createFilter(servletContext, readiness, "10000");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        new Thread(readiness::markReady).start();
+        filter.doFilter(new MockHttpServletRequest(servletContext), response, chain);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    @Test
+    void testInit_noReadiness() {
+        MockServletContext servletContext = new MockServletContext();
+        WebSystemContextMx.setWebSystemContext(servletContext, new DefaultWebSystemContext(servletContext));
+        ReadinessFilter filter = new ReadinessFilter();
+
+        assertThatThrownBy(() -> filter.init(new MockFilterConfig(servletContext))).isInstanceOf(ServletException.class);
+    }
+
+    private static ReadinessFilter createFilter(MockServletContext servletContext, Readiness readiness, String readyTimeout)
+        throws ServletException {
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        context.registerObject(Readiness.class, readiness);
+        WebSystemContextMx.setWebSystemContext(servletContext, context);
+        MockFilterConfig filterConfig = new MockFilterConfig(servletContext);
+        if (readyTimeout != null) {
+            filterConfig.addInitParameter("readyTimeout", readyTimeout);
+        }
+        ReadinessFilter filter = new ReadinessFilter();
+        filter.init(filterConfig);
+        return filter;
+    }
+}
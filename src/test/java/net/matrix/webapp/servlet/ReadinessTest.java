@@ -0,0 +1,54 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadinessTest {
+    @Test
+    void testMarkReady() {
+        Readiness readiness = new Readiness();
+        assertThat(readiness.getState()).isEqualTo(Readiness.State.STARTING);
+        assertThat(readiness.isReady()).isFalse();
+
+        readiness.markReady();
+        assertThat(readiness.getState()).isEqualTo(Readiness.State.READY);
+        assertThat(readiness.isReady()).isTrue();
+    }
+
+    @Test
+    void testMarkFailed() {
+        Readiness readiness = new Readiness();
+        IllegalStateException failure = new IllegalStateException();
+
+        readiness.markFailed(failure);
+        readiness.markReady();
+        assertThat(readiness.getState()).isEqualTo(Readiness.State.FAILED);
+        assertThat(readiness.getFailure()).isSameAs(failure);
+    }
+
+    @Test
+    void testAwaitReady()
+        throws InterruptedException {
+        Readiness readiness = new Readiness();
+
+        assertThat(readiness.awaitReady(10, TimeUnit.MILLISECONDS)).isFalse();
+        new Thread(readiness::markReady).start();
+        assertThat(readiness.awaitReady(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void testAwaitReady_failed()
+        throws InterruptedException {
+        Readiness readiness = new Readiness();
+        readiness.markFailed(new IllegalStateException());
+
+        assertThat(readiness.awaitReady(10, TimeUnit.SECONDS)).isFalse();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.io.IOException;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+
+import net.matrix.webapp.DefaultWebSystemContext;
+import net.matrix.webapp.WebSystemContextMx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestGateFilterTest {
+    @Test
+    void testDoFilter()
+        throws IOException, ServletException {
+        MockServletContext servletContext = new MockServletContext();
+        RequestGate gate = new RequestGate();
+        RequestGateFilter filter = createFilter(servletContext, gate);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest(servletContext), response, (req, resp) -> assertThat(gate.getInFlight()).isEqualTo(1));
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(gate.getInFlight()).isZero();
+    }
+
+    @Test
+    void testDoFilter_closed()
+        throws IOException, ServletException {
+        MockServletContext servletContext = new MockServletContext();
+        RequestGate gate = new RequestGate();
+        RequestGateFilter filter = createFilter(servletContext, gate);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        gate.close();
+        filter.doFilter(new MockHttpServletRequest(servletContext), response, chain);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void testInit_noGate() {
+        MockServletContext servletContext = new MockServletContext();
+        WebSystemContextMx.setWebSystemContext(servletContext, new DefaultWebSystemContext(servletContext));
+        RequestGateFilter filter = new RequestGateFilter();
+
+        assertThatThrownBy(() -> filter.init(new MockFilterConfig(servletContext))).isInstanceOf(ServletException.class);
+    }
+
+    private static RequestGateFilter createFilter(MockServletContext servletContext, RequestGate gate)
+        throws ServletException {
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        context.registerObject(RequestGate.class, gate);
+        WebSystemContextMx.setWebSystemContext(servletContext, context);
+        RequestGateFilter filter = new RequestGateFilter();
+        filter.init(new MockFilterConfig(servletContext));
+        return filter;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestGateTest {
+    @Test
+    void testEnter() {
+        RequestGate gate = new RequestGate();
+
+        assertThat(gate.enter()).isTrue();
+        assertThat(gate.getInFlight()).isEqualTo(1);
+        gate.exit();
+        assertThat(gate.getInFlight()).isZero();
+    }
+
+    @Test
+    void testClose() {
+        RequestGate gate = new RequestGate();
+
+        gate.close();
+        assertThat(gate.isClosed()).isTrue();
+        assertThat(gate.enter()).isFalse();
+        assertThat(gate.getInFlight()).isZero();
+    }
+
+    @Test
+    void testAwaitDrain()
+        throws InterruptedException {
+        RequestGate gate = new RequestGate();
+        gate.enter();
+        gate.close();
+
+        assertThat(gate.awaitDrain(10, TimeUnit.MILLISECONDS)).isFalse();
+        new Thread(gate::exit).start();
+        assertThat(gate.awaitDrain(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void testDrain() {
+        RequestGate gate = new RequestGate();
+        gate.enter();
+
+        assertThat(gate.drain(10)).isFalse();
+        assertThat(gate.isClosed()).isTrue();
+        gate.exit();
+        assertThat(gate.drain(10)).isTrue();
+    }
+}
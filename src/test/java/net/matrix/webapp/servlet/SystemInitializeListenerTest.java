@@ -4,12 +4,38 @@
  */
 package net.matrix.webapp.servlet;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletContextEvent;
 
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.ex.ConfigurationRuntimeException;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.mock.web.MockServletContext;
 
+import net.matrix.app.DefaultSystemController;
+import net.matrix.webapp.DefaultWebSystemContext;
+import net.matrix.webapp.ManagedExecutors;
+import net.matrix.webapp.WebSystemContextMx;
+import net.matrix.webapp.config.LazyLayeredConfiguration;
+import net.matrix.webapp.monitor.CdsTraining;
+import net.matrix.webapp.monitor.StartupReport;
+import net.matrix.webapp.monitor.SystemMetrics;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class SystemInitializeListenerTest {
     @Test
@@ -21,4 +47,332 @@ class SystemInitializeListenerTest {
         assertThat(listener.servletContext).isNotNull();
         assertThat(listener.context).isNotNull();
     }
+
+    @Test
+    void testContextInitialized_startupReport() {
+        MockServletContext servletContext = new MockServletContext();
+        SystemInitializeListener listener = new SystemInitializeListener();
+
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        StartupReport startupReport = listener.context.lookupObject(StartupReport.class);
+        assertThat(startupReport).isSameAs(listener.startupReport);
+        assertThat(startupReport.getTimings()).extracting(StartupReport.PhaseTiming::name).contains("bridgeJUL", "loadConfig",
+            "loadConfig /WEB-INF/sysconfig.cfg", "createController", "initController", "startController", "warmup");
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+    }
+
+    @Test
+    void testContextInitialized_lazyConfig() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemConfigLocation", "/WEB-INF/sysconfig.cfg,/WEB-INF/sysconfig2.cfg#module.");
+        servletContext.setInitParameter("systemConfigLazy", "true");
+        SystemInitializeListener listener = new SystemInitializeListener();
+
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        DefaultWebSystemContext context = (DefaultWebSystemContext) listener.context;
+        // 启动过程中不加载任何配置层
+        assertThat(((LazyLayeredConfiguration) context.getConfig()).getLoadedLayerNames()).isEmpty();
+        assertThat(listener.startupReport.getTimings()).extracting(StartupReport.PhaseTiming::name)
+            .noneMatch(name -> name.startsWith("loadConfig /"));
+
+        // 启动完成后按需加载的配置层不计入启动报告
+        int phaseCount = listener.startupReport.getPhaseCount();
+        assertThat(context.getConfig().getString("test")).isEqualTo("a");
+        assertThat(listener.startupReport.getPhaseCount()).isEqualTo(phaseCount);
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+    }
+
+    @Test
+    void testContextInitialized_loadConfig() {
+        MockServletContext servletContext = new MockServletContext();
+        PropertiesConfiguration config = new PropertiesConfiguration();
+        config.addProperty("test", "custom");
+        SystemInitializeListener listener = new SystemInitializeListener() {
+            @Override
+            protected void loadConfig() {
+                context.setConfig(config);
+            }
+        };
+
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        assertThat(listener.context.getConfig()).isSameAs(config);
+        assertThat(listener.startupReport.getTimings()).extracting(StartupReport.PhaseTiming::name)
+            .doesNotContain("loadConfig /WEB-INF/sysconfig.cfg");
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+    }
+
+    @Test
+    void testContextInitialized_metrics() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemMetricsEnabled", "true");
+        servletContext.setInitParameter("systemMetricsConfigKeys", "true");
+        SystemInitializeListener listener = new SystemInitializeListener();
+        SystemMetrics metrics = SystemMetrics.getInstance();
+
+        try {
+            listener.contextInitialized(new ServletContextEvent(servletContext));
+            assertThat(listener.context.lookupObject(SystemMetrics.class)).isSameAs(metrics);
+            assertThat(metrics.getTimer("controller.start").getCount()).isPositive();
+            listener.context.getConfig().getString("test");
+            assertThat(metrics.getCounter("config.read.test").getCount()).isPositive();
+            listener.contextDestroyed(new ServletContextEvent(servletContext));
+            assertThat(metrics.getTimer("controller.stop").getCount()).isPositive();
+            assertThat(metrics.isEnabled()).isFalse();
+        } finally {
+            metrics.setEnabled(false);
+            metrics.reset();
+        }
+    }
+
+    @Test
+    void testContextInitialized_executors() {
+        MockServletContext servletContext = new MockServletContext();
+        SystemInitializeListener listener = new SystemInitializeListener();
+
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        ManagedExecutors executors = listener.context.lookupObject(ManagedExecutors.class);
+        assertThat(executors).isNotNull();
+        ExecutorService executor = executors.getTaskExecutor();
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+        assertThat(executor.isTerminated()).isTrue();
+    }
+
+    @Test
+    void testContextInitialized_parallel() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemInitializeParallel", "true");
+        SystemInitializeListener listener = new SystemInitializeListener();
+
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        assertThat(listener.context).isNotNull();
+        assertThat(WebSystemContextMx.getWebSystemContext(servletContext)).isSameAs(listener.context);
+    }
+
+    @Test
+    void testContextInitialized_async()
+        throws InterruptedException {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemControllerClass", SlowStartController.class.getName());
+        servletContext.setInitParameter("systemStartAsync", "true");
+        SystemInitializeListener listener = new SystemInitializeListener();
+
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        Readiness readiness = listener.context.lookupObject(Readiness.class);
+        assertThat(readiness).isSameAs(listener.readiness);
+        assertThat(readiness.isReady()).isFalse();
+        assertThat(readiness.awaitReady(10, TimeUnit.SECONDS)).isTrue();
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+    }
+
+    @Test
+    void testContextInitialized_asyncFailure()
+        throws InterruptedException {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemControllerClass", FailStartController.class.getName());
+        servletContext.setInitParameter("systemStartAsync", "true");
+        SystemInitializeListener listener = new SystemInitializeListener();
+
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        assertThat(listener.readiness.awaitReady(10, TimeUnit.SECONDS)).isFalse();
+        assertThat(listener.readiness.getState()).isEqualTo(Readiness.State.FAILED);
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+    }
+
+    @Test
+    void testContextInitialized_cdsTraining(@TempDir Path tempDir)
+        throws IOException {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemCdsTraining", "true");
+        servletContext.setAttribute(ServletContext.TEMPDIR, tempDir.toFile());
+        SystemInitializeListener listener = new SystemInitializeListener();
+
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        Path report = tempDir.resolve("cds").resolve(CdsTraining.REPORT_FILE);
+        assertThat(report).exists();
+        assertThat(Files.readString(report)).contains("\"name\":\"loadConfig\"", "\"name\":\"warmup\"");
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+    }
+
+    @Test
+    void testContextInitialized_failure() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemControllerClass", "none.Controller");
+        SystemInitializeListener listener = new SystemInitializeListener();
+
+        assertThatThrownBy(() -> listener.contextInitialized(new ServletContextEvent(servletContext)))
+            .isInstanceOf(ConfigurationRuntimeException.class);
+    }
+
+    @Test
+    void testContextInitialized_stopAtFirstFailure() {
+        MockServletContext servletContext = new MockServletContext();
+        IllegalStateException failure = new IllegalStateException();
+        SystemInitializeListener listener = new SystemInitializeListener() {
+            @Override
+            protected void loadConfig() {
+                throw failure;
+            }
+        };
+
+        assertThatThrownBy(() -> listener.contextInitialized(new ServletContextEvent(servletContext))).isSameAs(failure);
+        assertThat(listener.startupReport.getTimings()).extracting(StartupReport.PhaseTiming::name).contains("loadConfig")
+            .doesNotContain("createController", "initController");
+    }
+
+    @Test
+    void testContextDestroyed()
+        throws JMException {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemJmxEnabled", "true");
+        SystemInitializeListener listener = new SystemInitializeListener();
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName gateName = new ObjectName("net.matrix.webapp:type=RequestGate,context=" + ObjectName.quote(servletContext.getContextPath()));
+        assertThat(server.isRegistered(gateName)).isTrue();
+
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+        assertThat(server.isRegistered(gateName)).isFalse();
+        assertThat(listener.requestGate.isClosed()).isTrue();
+        assertThat(listener.readiness.isReady()).isTrue();
+    }
+
+    @Test
+    void testContextInitialized_mbeansDisabled()
+        throws JMException {
+        MockServletContext servletContext = new MockServletContext();
+        SystemInitializeListener listener = new SystemInitializeListener();
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String context = ",context=" + ObjectName.quote(servletContext.getContextPath());
+
+        assertThat(server.isRegistered(new ObjectName("net.matrix.webapp:type=StartupReport" + context))).isFalse();
+        assertThat(server.isRegistered(new ObjectName("net.matrix.webapp:type=RequestGate" + context))).isFalse();
+        assertThat(server.isRegistered(new ObjectName("net.matrix.webapp:type=SystemMetrics" + context))).isFalse();
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+    }
+
+    @Test
+    void testContextInitialized_mbeansOnFailedStart()
+        throws JMException {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemJmxEnabled", "true");
+        servletContext.setInitParameter("systemControllerClass", FailStartController.class.getName());
+        SystemInitializeListener listener = new SystemInitializeListener();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName reportName = new ObjectName("net.matrix.webapp:type=StartupReport,context=" + ObjectName.quote(servletContext.getContextPath()));
+
+        try {
+            assertThatThrownBy(() -> listener.contextInitialized(new ServletContextEvent(servletContext))).isInstanceOf(IllegalStateException.class);
+            assertThat(server.isRegistered(reportName)).isTrue();
+        } finally {
+            listener.contextDestroyed(new ServletContextEvent(servletContext));
+        }
+        assertThat(server.isRegistered(reportName)).isFalse();
+    }
+
+    @Test
+    void testContextDestroyed_timeout() {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemControllerClass", SlowStopController.class.getName());
+        servletContext.setInitParameter("systemShutdownTimeout", "100");
+        SystemInitializeListener listener = new SystemInitializeListener();
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        listener.requestGate.enter();
+
+        long start = System.nanoTime();
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        assertThat(listener.requestGate.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void testContextDestroyed_drain()
+        throws InterruptedException {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemShutdownTimeout", "5000");
+        SystemInitializeListener listener = new SystemInitializeListener();
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        listener.requestGate.enter();
+        Thread request = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            listener.requestGate.exit();
+        });
+        request.start();
+
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+        assertThat(listener.requestGate.isClosed()).isTrue();
+        assertThat(listener.requestGate.getInFlight()).isZero();
+        request.join();
+    }
+
+    @Test
+    void testContextDestroyed_deferClose()
+        throws InterruptedException {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setInitParameter("systemControllerClass", BlockingStopController.class.getName());
+        servletContext.setInitParameter("systemShutdownTimeout", "100");
+        SystemInitializeListener listener = new SystemInitializeListener();
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        ExecutorService executor = listener.context.lookupObject(ManagedExecutors.class).getTaskExecutor();
+        BlockingStopController.release = new CountDownLatch(1);
+
+        listener.contextDestroyed(new ServletContextEvent(servletContext));
+        // 控制器仍在停止，系统环境尚未关闭
+        assertThat(executor.isShutdown()).isFalse();
+        BlockingStopController.release.countDown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    static class SlowStartController
+        extends DefaultSystemController {
+        @Override
+        public void start() {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static class FailStartController
+        extends DefaultSystemController {
+        @Override
+        public void start() {
+            throw new IllegalStateException();
+        }
+    }
+
+    static class BlockingStopController
+        extends DefaultSystemController {
+        static volatile CountDownLatch release;
+
+        @Override
+        public void stop() {
+            // 忽略中断，模拟不响应中断的停止动作
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // 继续等待
+                }
+            }
+        }
+    }
+
+    static class SlowStopController
+        extends DefaultSystemController {
+        @Override
+        public void stop() {
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.io.IOException;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+
+import net.matrix.webapp.WebSystemContextHolder;
+import net.matrix.webapp.tenant.TenantContextRegistry;
+import net.matrix.webapp.tenant.TenantWebSystemContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantContextFilterTest {
+    @Test
+    void testDoFilter()
+        throws IOException, ServletException {
+        MockServletContext servletContext = new MockServletContext();
+        TenantContextFilter filter = new TenantContextFilter();
+        filter.init(new MockFilterConfig(servletContext));
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext);
+        request.addHeader("X-Tenant-Id", "t1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String[] seen = new String[2];
+
+        filter.doFilter(request, response, (req, resp) -> {
+            TenantWebSystemContext context = (TenantWebSystemContext) WebSystemContextHolder.getRequiredContext();
+            seen[0] = context.getTenantId();
+            seen[1] = context.getConfig().getString("test");
+        });
+        assertThat(seen).containsExactly("t1", "t1");
+        assertThat(WebSystemContextHolder.getContext()).isNull();
+        assertThat(servletContext.getAttribute(TenantContextFilter.REGISTRY_ATTRIBUTE)).isNotNull();
+        filter.destroy();
+        assertThat(servletContext.getAttribute(TenantContextFilter.REGISTRY_ATTRIBUTE)).isNull();
+    }
+
+    @Test
+    void testDoFilter_asyncDispatch()
+        throws IOException, ServletException, InterruptedException {
+        MockServletContext servletContext = new MockServletContext();
+        TenantContextFilter filter = new TenantContextFilter();
+        MockFilterConfig filterConfig = new MockFilterConfig(servletContext);
+        filterConfig.addInitParameter("tenantIdleTimeout", "1");
+        filter.init(filterConfig);
+        TenantContextRegistry registry = (TenantContextRegistry) servletContext.getAttribute(TenantContextFilter.REGISTRY_ATTRIBUTE);
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext);
+        request.setAsyncSupported(true);
+        request.addHeader("X-Tenant-Id", "t1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, resp) -> req.startAsync());
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        request.setAsyncStarted(false);
+        request.setDispatcherType(DispatcherType.ASYNC);
+        String[] seen = new String[1];
+        filter.doFilter(request, response, (req, resp) -> {
+            seen[0] = ((TenantWebSystemContext) WebSystemContextHolder.getRequiredContext()).getTenantId();
+        });
+        assertThat(seen).containsExactly("t1");
+        Thread.sleep(5);
+        assertThat(registry.evictIdle()).isZero();
+
+        for (int i = 0; i < 2; i++) {
+            for (AsyncListener listener : asyncContext.getListeners()) {
+                listener.onComplete(new AsyncEvent(asyncContext));
+            }
+        }
+        Thread.sleep(5);
+        assertThat(registry.evictIdle()).isEqualTo(1);
+        filter.destroy();
+    }
+
+    @Test
+    void testDoFilter_unknownTenant()
+        throws IOException, ServletException {
+        MockServletContext servletContext = new MockServletContext();
+        TenantContextFilter filter = new TenantContextFilter();
+        filter.init(new MockFilterConfig(servletContext));
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext);
+        request.addHeader("X-Tenant-Id", "t2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, resp) -> {
+        });
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+        filter.destroy();
+    }
+}
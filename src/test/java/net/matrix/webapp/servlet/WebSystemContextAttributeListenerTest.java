@@ -0,0 +1,100 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import jakarta.servlet.ServletContextAttributeEvent;
+import jakarta.servlet.ServletContextEvent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockServletContext;
+
+import net.matrix.webapp.DefaultWebSystemContext;
+import net.matrix.webapp.WebSystemContext;
+import net.matrix.webapp.WebSystemContextMx;
+import net.matrix.webapp.WebSystemContextRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebSystemContextAttributeListenerTest {
+    @Test
+    void testContextInitialized() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        servletContext.setAttribute("test", context);
+        WebSystemContextAttributeListener listener = new WebSystemContextAttributeListener();
+
+        listener.contextInitialized(new ServletContextEvent(servletContext));
+        WebSystemContextRegistry registry = WebSystemContextRegistry.getRegistry(servletContext);
+        assertThat(registry.isComplete()).isTrue();
+        assertThat(registry.getAttributeNames()).containsExactly("test");
+        assertThat(WebSystemContextMx.findWebSystemContext(servletContext)).isSameAs(context);
+    }
+
+    @Test
+    void testAttributeAdded() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextAttributeListener listener = new WebSystemContextAttributeListener();
+
+        servletContext.setAttribute("test", context);
+        listener.attributeAdded(new ServletContextAttributeEvent(servletContext, "test", context));
+        assertThat(WebSystemContextRegistry.getRegistry(servletContext).getAttributeNames()).containsExactly("test");
+    }
+
+    @Test
+    void testAttributeAdded_other() {
+        MockServletContext servletContext = new MockServletContext();
+        WebSystemContextAttributeListener listener = new WebSystemContextAttributeListener();
+
+        servletContext.setAttribute("test", "value");
+        listener.attributeAdded(new ServletContextAttributeEvent(servletContext, "test", "value"));
+        assertThat(WebSystemContextRegistry.getRegistry(servletContext)).isNull();
+    }
+
+    @Test
+    void testAttributeReplaced() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextAttributeListener listener = new WebSystemContextAttributeListener();
+        servletContext.setAttribute("test", context);
+        listener.attributeAdded(new ServletContextAttributeEvent(servletContext, "test", context));
+
+        servletContext.setAttribute("test", "value");
+        listener.attributeReplaced(new ServletContextAttributeEvent(servletContext, "test", context));
+        assertThat(WebSystemContextRegistry.getRegistry(servletContext).isEmpty()).isTrue();
+    }
+
+    @Test
+    void testAttributeReplaced_cachedRoot() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextMx.setWebSystemContext(servletContext, context);
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isSameAs(context);
+        WebSystemContextAttributeListener listener = new WebSystemContextAttributeListener();
+
+        String rootAttributeName = WebSystemContext.class.getName() + ".ROOT";
+        DefaultWebSystemContext context2 = new DefaultWebSystemContext(servletContext);
+        servletContext.setAttribute(rootAttributeName, context2);
+        listener.attributeReplaced(new ServletContextAttributeEvent(servletContext, rootAttributeName, context));
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isSameAs(context2);
+
+        servletContext.removeAttribute(rootAttributeName);
+        listener.attributeRemoved(new ServletContextAttributeEvent(servletContext, rootAttributeName, context2));
+        assertThat(WebSystemContextMx.getCachedWebSystemContext(servletContext)).isNull();
+    }
+
+    @Test
+    void testAttributeRemoved() {
+        MockServletContext servletContext = new MockServletContext();
+        DefaultWebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextAttributeListener listener = new WebSystemContextAttributeListener();
+        servletContext.setAttribute("test", context);
+        listener.attributeAdded(new ServletContextAttributeEvent(servletContext, "test", context));
+
+        servletContext.removeAttribute("test");
+        listener.attributeRemoved(new ServletContextAttributeEvent(servletContext, "test", context));
+        assertThat(WebSystemContextRegistry.getRegistry(servletContext).isEmpty()).isTrue();
+    }
+}
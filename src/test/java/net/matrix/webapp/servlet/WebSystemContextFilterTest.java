@@ -0,0 +1,38 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.servlet;
+
+import java.io.IOException;
+
+import jakarta.servlet.ServletException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+
+import net.matrix.webapp.DefaultWebSystemContext;
+import net.matrix.webapp.WebSystemContext;
+import net.matrix.webapp.WebSystemContextHolder;
+import net.matrix.webapp.WebSystemContextMx;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebSystemContextFilterTest {
+    @Test
+    void testDoFilter()
+        throws IOException, ServletException {
+        MockServletContext servletContext = new MockServletContext();
+        WebSystemContext context = new DefaultWebSystemContext(servletContext);
+        WebSystemContextMx.setWebSystemContext(servletContext, context);
+        WebSystemContextFilter filter = new WebSystemContextFilter();
+        filter.init(new MockFilterConfig(servletContext));
+
+        filter.doFilter(new MockHttpServletRequest(servletContext), new MockHttpServletResponse(),
+            (req, resp) -> assertThat(WebSystemContextHolder.getContext()).isSameAs(context));
+        assertThat(WebSystemContextHolder.getContext()).isNull();
+    }
+}
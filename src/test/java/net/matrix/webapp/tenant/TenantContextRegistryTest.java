@@ -0,0 +1,137 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.tenant;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockServletContext;
+
+import net.matrix.app.DefaultSystemController;
+import net.matrix.webapp.WebSystemContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TenantContextRegistryTest {
+    @Test
+    void testAcquire() {
+        AtomicInteger created = new AtomicInteger();
+        TenantContextRegistry registry = new TenantContextRegistry(tenantId -> {
+            created.incrementAndGet();
+            return "unknown".equals(tenantId) ? null : createContext(tenantId);
+        }, 0);
+
+        TenantContextRegistry.Lease lease = registry.acquire("t1");
+        assertThat(lease.getTenantId()).isEqualTo("t1");
+        TenantContextRegistry.Lease lease2 = registry.acquire("t1");
+        assertThat(lease2.getContext()).isSameAs(lease.getContext());
+        assertThat(created).hasValue(1);
+        registry.release(lease);
+        registry.release(lease2);
+
+        assertThat(registry.acquire("unknown")).isNull();
+        assertThat(registry.acquire("../t1")).isNull();
+        assertThat(registry.getTenantIds()).containsExactly("t1");
+        registry.close();
+        assertThat(registry.getTenantIds()).isEmpty();
+    }
+
+    @Test
+    void testAcquire_failure() {
+        AtomicInteger attempts = new AtomicInteger();
+        TenantContextRegistry registry = new TenantContextRegistry(tenantId -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException();
+            }
+            return createContext(tenantId);
+        }, 0);
+
+        assertThatThrownBy(() -> registry.acquire("t1")).isInstanceOf(IllegalStateException.class);
+        assertThat(registry.getTenantIds()).isEmpty();
+        assertThat(registry.acquire("t1")).isNotNull();
+    }
+
+    @Test
+    void testAcquire_retryDelay() {
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger stopped = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException();
+        TenantContextRegistry registry = new TenantContextRegistry(tenantId -> {
+            attempts.incrementAndGet();
+            WebSystemContext context = createContext(tenantId);
+            context.setController(new DefaultSystemController() {
+                @Override
+                public void start() {
+                    throw failure;
+                }
+
+                @Override
+                public void stop() {
+                    stopped.incrementAndGet();
+                }
+            });
+            return context;
+        }, 0, 60000);
+
+        assertThatThrownBy(() -> registry.acquire("t1")).isSameAs(failure);
+        assertThat(stopped).hasValue(1);
+        assertThatThrownBy(() -> registry.acquire("t1")).isInstanceOf(IllegalStateException.class).hasCause(failure);
+        assertThat(attempts).hasValue(1);
+        assertThat(registry.getTenantIds()).containsExactly("t1");
+        registry.close();
+    }
+
+    @Test
+    void testRelease_twice()
+        throws InterruptedException {
+        TenantContextRegistry registry = new TenantContextRegistry(TenantContextRegistryTest::createContext, 1);
+
+        TenantContextRegistry.Lease lease = registry.acquire("t1");
+        TenantContextRegistry.Lease lease2 = registry.acquire("t1");
+        registry.release(lease);
+        registry.release(lease);
+        Thread.sleep(5);
+        assertThat(registry.evictIdle()).isZero();
+        registry.release(lease2);
+        assertThat(registry.getTenantIds()).containsExactly("t1");
+        registry.close();
+    }
+
+    @Test
+    void testClose() {
+        AtomicInteger created = new AtomicInteger();
+        TenantContextRegistry registry = new TenantContextRegistry(tenantId -> {
+            created.incrementAndGet();
+            return createContext(tenantId);
+        }, 0);
+
+        registry.close();
+        assertThat(registry.acquire("t1")).isNull();
+        assertThat(created).hasValue(0);
+        assertThat(registry.getTenantIds()).isEmpty();
+    }
+
+    @Test
+    void testEvictIdle()
+        throws InterruptedException {
+        TenantContextRegistry registry = new TenantContextRegistry(TenantContextRegistryTest::createContext, 1);
+
+        TenantContextRegistry.Lease lease = registry.acquire("t1");
+        Thread.sleep(5);
+        assertThat(registry.evictIdle()).isZero();
+        registry.release(lease);
+        Thread.sleep(5);
+        assertThat(registry.evictIdle()).isEqualTo(1);
+        assertThat(registry.getTenantIds()).isEmpty();
+
+        assertThat(registry.acquire("t1").getContext()).isNotSameAs(lease.getContext());
+    }
+
+    private static WebSystemContext createContext(String tenantId) {
+        return new TenantWebSystemContext(new MockServletContext(), tenantId, List.of("/WEB-INF/sysconfig.cfg"));
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.tenant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantResolverTest {
+    @Test
+    void testHeader() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Tenant-Id", " t1 ");
+
+        assertThat(TenantResolver.header("X-Tenant-Id").resolveTenant(request)).isEqualTo("t1");
+        assertThat(TenantResolver.header("X-Other").resolveTenant(request)).isNull();
+    }
+
+    @Test
+    void testHost() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServerName("t1.example.com");
+
+        assertThat(TenantResolver.host().resolveTenant(request)).isEqualTo("t1");
+        request.setServerName("localhost");
+        assertThat(TenantResolver.host().resolveTenant(request)).isNull();
+    }
+
+    @Test
+    void testPathSegment() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/t1/index");
+        request.setContextPath("/app");
+
+        assertThat(TenantResolver.pathSegment().resolveTenant(request)).isEqualTo("t1");
+        request.setRequestURI("/app/t2");
+        assertThat(TenantResolver.pathSegment().resolveTenant(request)).isEqualTo("t2");
+        request.setRequestURI("/app/");
+        assertThat(TenantResolver.pathSegment().resolveTenant(request)).isNull();
+    }
+}
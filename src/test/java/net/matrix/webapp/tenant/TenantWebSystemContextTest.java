@@ -0,0 +1,24 @@
+/*
+ * 版权所有 2024 Matrix。
+ * 保留所有权利。
+ */
+package net.matrix.webapp.tenant;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockServletContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantWebSystemContextTest {
+    @Test
+    void testGetConfig() {
+        TenantWebSystemContext context = new TenantWebSystemContext(new MockServletContext(), "t1",
+            List.of("/WEB-INF/sysconfig.cfg", "/WEB-INF/tenants/t1.cfg"));
+
+        assertThat(context.getTenantId()).isEqualTo("t1");
+        assertThat(context.getConfig().getString("test")).isEqualTo("t1");
+        assertThat(context.getConfig().getString("xyz")).isEqualTo("1");
+    }
+}